@@ -3,9 +3,11 @@ package com.lb;
 import org.springframework.beans.factory.annotation.Configurable;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @Configurable
+@EnableScheduling
 public class Application {
 
     public static void main(String[] args){
@@ -46,6 +46,8 @@ public class RedisClientConfig {
                 .setKeepAlive(properties.isKeepAlive())
         ;
 
+        // 脚本以 EVALSHA 发送，服务端未缓存时自动回退为 EVAL
+        config.setUseScriptCache(properties.isUseScriptCache());
         config.setCodec(new JsonJacksonCodec());
         return Redisson.create(config);
     }
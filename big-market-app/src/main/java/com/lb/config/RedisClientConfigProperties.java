@@ -32,5 +32,7 @@ public class RedisClientConfigProperties {
     private int pingInterval = 0;
     /** 设置是否保持长连接，默认为true */
     private boolean keepAlive = true;
+    /** 设置是否缓存 Lua 脚本，开启后以 EVALSHA 发送脚本摘要，默认为true */
+    private boolean useScriptCache = true;
 
 }
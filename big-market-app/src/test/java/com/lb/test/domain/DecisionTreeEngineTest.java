@@ -0,0 +1,159 @@
+package com.lb.test.domain;
+
+import com.lb.domain.strategy.model.valobj.*;
+import com.lb.domain.strategy.repository.IStrategyRepository;
+import com.lb.domain.strategy.service.armory.IStrategyDispatch;
+import com.lb.domain.strategy.service.rule.tree.ILogicTreeNode;
+import com.lb.domain.strategy.service.rule.tree.factory.DefaultTreeFactory;
+import com.lb.domain.strategy.service.rule.tree.factory.engine.IDecisionTreeEngine;
+import com.lb.domain.strategy.service.rule.tree.impl.RuleLockLogicTreeNode;
+import com.lb.domain.strategy.service.rule.tree.impl.RuleLuckAwardLogicTreeNode;
+import com.lb.domain.strategy.service.rule.tree.impl.RuleStoreLogicTreeNode;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 决策树引擎编译测试；跳转表与比较运算
+ */
+@Slf4j
+public class DecisionTreeEngineTest {
+
+    /**
+     * rule_lock 接管 --GT ALLOW--> rule_luck_award
+     * rule_lock 放行 --LE ALLOW--> rule_stock --GE ALLOW--> rule_luck_award
+     */
+    @Test
+    public void test_compare() {
+        Map<String, ILogicTreeNode> logicTreeNodeGroup = new HashMap<>();
+        logicTreeNodeGroup.put("rule_lock", (userId, strategyId, awardId) -> action("user001".equals(userId) ? RuleLogicCheckTypeVO.TAKE_OVER : RuleLogicCheckTypeVO.ALLOW, 100));
+        logicTreeNodeGroup.put("rule_stock", (userId, strategyId, awardId) -> action(RuleLogicCheckTypeVO.TAKE_OVER, 200));
+        logicTreeNodeGroup.put("rule_luck_award", (userId, strategyId, awardId) -> action(RuleLogicCheckTypeVO.TAKE_OVER, 101));
+        DefaultTreeFactory defaultTreeFactory = new DefaultTreeFactory(logicTreeNodeGroup);
+
+        Map<String, RuleTreeNodeVO> treeNodeMap = new HashMap<>();
+        treeNodeMap.put("rule_lock", node("rule_lock", line("rule_lock", "rule_luck_award", RuleLimitTypeVO.GT), line("rule_lock", "rule_stock", RuleLimitTypeVO.LE)));
+        treeNodeMap.put("rule_stock", node("rule_stock", line("rule_stock", "rule_luck_award", RuleLimitTypeVO.GE)));
+        treeNodeMap.put("rule_luck_award", node("rule_luck_award"));
+        RuleTreeVO ruleTreeVO = RuleTreeVO.builder()
+                .treeId(100000001)
+                .treeName("决策树规则；比较运算")
+                .treeRootRuleNode("rule_lock")
+                .treeNodeMap(treeNodeMap)
+                .build();
+
+        IDecisionTreeEngine treeEngine = defaultTreeFactory.openLogicTree(ruleTreeVO);
+        Assert.assertSame(treeEngine, defaultTreeFactory.openLogicTree(ruleTreeVO));
+
+        // 接管 0001 > 0000，直接兜底；放行经库存节点后兜底
+        Assert.assertEquals(Integer.valueOf(101), treeEngine.process("user001", 100001L, 100).getAwardId());
+        Assert.assertEquals(Integer.valueOf(101), treeEngine.process("user002", 100001L, 100).getAwardId());
+    }
+
+    /**
+     * 库表初始化的规则树 100000001
+     * rule_lock --EQUAL ALLOW--> rule_stock --EQUAL ALLOW--> rule_luck_award
+     * 库存扣减成功时 rule_stock 接管，未配置接管连线，以抽中的奖品结束
+     */
+    @Test
+    public void test_stock_take_over() {
+        IStrategyDispatch strategyDispatch = Mockito.mock(IStrategyDispatch.class);
+        IStrategyRepository strategyRepository = Mockito.mock(IStrategyRepository.class);
+        Mockito.when(strategyDispatch.subtractionAwardStock("user001", 100001L, 107)).thenReturn(true);
+        Mockito.when(strategyDispatch.subtractionAwardStock("user002", 100001L, 107)).thenReturn(false);
+        RuleStoreLogicTreeNode ruleStock = new RuleStoreLogicTreeNode();
+        ReflectionTestUtils.setField(ruleStock, "strategyDispatch", strategyDispatch);
+        ReflectionTestUtils.setField(ruleStock, "strategyRepository", strategyRepository);
+
+        Map<String, ILogicTreeNode> logicTreeNodeGroup = new HashMap<>();
+        logicTreeNodeGroup.put("rule_lock", new RuleLockLogicTreeNode());
+        logicTreeNodeGroup.put("rule_stock", ruleStock);
+        logicTreeNodeGroup.put("rule_luck_award", new RuleLuckAwardLogicTreeNode());
+
+        Map<String, RuleTreeNodeVO> treeNodeMap = new HashMap<>();
+        treeNodeMap.put("rule_lock", node("rule_lock", line("rule_lock", "rule_stock", RuleLimitTypeVO.EQUAL)));
+        treeNodeMap.put("rule_stock", node("rule_stock", line("rule_stock", "rule_luck_award", RuleLimitTypeVO.EQUAL)));
+        treeNodeMap.put("rule_luck_award", node("rule_luck_award"));
+        IDecisionTreeEngine treeEngine = new DefaultTreeFactory(logicTreeNodeGroup).openLogicTree(RuleTreeVO.builder()
+                .treeId(100000001)
+                .treeName("规则树")
+                .treeRootRuleNode("rule_lock")
+                .treeNodeMap(treeNodeMap)
+                .build());
+
+        // 扣减成功返回抽中的奖品，并写入库存扣减记录
+        Assert.assertEquals(Integer.valueOf(107), treeEngine.process("user001", 100001L, 107).getAwardId());
+        Mockito.verify(strategyRepository, Mockito.times(1)).awardStockConsumeSendQueue(Mockito.any(StrategyAwardStockKeyVO.class));
+
+        // 库存不足走兜底奖励
+        Assert.assertEquals(Integer.valueOf(101), treeEngine.process("user002", 100001L, 107).getAwardId());
+        Mockito.verify(strategyRepository, Mockito.times(1)).awardStockConsumeSendQueue(Mockito.any(StrategyAwardStockKeyVO.class));
+    }
+
+    /**
+     * 规则树变化后重新编译并替换旧引擎；同一规则树对象命中缓存
+     */
+    @Test
+    public void test_tree_changed() {
+        Map<String, ILogicTreeNode> logicTreeNodeGroup = new HashMap<>();
+        logicTreeNodeGroup.put("rule_lock", (userId, strategyId, awardId) -> action(RuleLogicCheckTypeVO.ALLOW, 100));
+        logicTreeNodeGroup.put("rule_luck_award", (userId, strategyId, awardId) -> action(RuleLogicCheckTypeVO.TAKE_OVER, 101));
+        DefaultTreeFactory defaultTreeFactory = new DefaultTreeFactory(logicTreeNodeGroup);
+
+        Map<String, RuleTreeNodeVO> treeNodeMap = new HashMap<>();
+        treeNodeMap.put("rule_lock", node("rule_lock"));
+        IDecisionTreeEngine treeEngine = defaultTreeFactory.openLogicTree(RuleTreeVO.builder().treeId(100000001).treeRootRuleNode("rule_lock").treeNodeMap(treeNodeMap).build());
+        Assert.assertEquals(Integer.valueOf(100), treeEngine.process("user001", 100001L, 100).getAwardId());
+
+        Map<String, RuleTreeNodeVO> changedTreeNodeMap = new HashMap<>();
+        changedTreeNodeMap.put("rule_lock", node("rule_lock", line("rule_lock", "rule_luck_award", RuleLimitTypeVO.EQUAL)));
+        changedTreeNodeMap.put("rule_luck_award", node("rule_luck_award"));
+        RuleTreeVO changed = RuleTreeVO.builder().treeId(100000001).treeRootRuleNode("rule_lock").treeNodeMap(changedTreeNodeMap).build();
+        IDecisionTreeEngine changedTreeEngine = defaultTreeFactory.openLogicTree(changed);
+
+        Assert.assertNotSame(treeEngine, changedTreeEngine);
+        Assert.assertSame(changedTreeEngine, defaultTreeFactory.openLogicTree(changed));
+        Assert.assertEquals(Integer.valueOf(101), changedTreeEngine.process("user001", 100001L, 100).getAwardId());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void test_unknown_node() {
+        Map<String, RuleTreeNodeVO> treeNodeMap = new HashMap<>();
+        treeNodeMap.put("rule_lock", node("rule_lock", line("rule_lock", "rule_stock", RuleLimitTypeVO.EQUAL)));
+        new DefaultTreeFactory(Collections.singletonMap("rule_lock", (userId, strategyId, awardId) -> action(RuleLogicCheckTypeVO.ALLOW, null)))
+                .openLogicTree(RuleTreeVO.builder().treeId(100000002).treeRootRuleNode("rule_lock").treeNodeMap(treeNodeMap).build());
+    }
+
+    private DefaultTreeFactory.TreeActionEntity action(RuleLogicCheckTypeVO ruleLogicCheckType, Integer awardId) {
+        return DefaultTreeFactory.TreeActionEntity.builder()
+                .ruleLogicCheckType(ruleLogicCheckType)
+                .strategyAwardData(DefaultTreeFactory.StrategyAwardData.builder().awardId(awardId).build())
+                .build();
+    }
+
+    private RuleTreeNodeVO node(String ruleKey, RuleTreeNodeLineVO... lines) {
+        return RuleTreeNodeVO.builder()
+                .treeId(100000001)
+                .ruleKey(ruleKey)
+                .treeNodeLineVOList(0 == lines.length ? null : Arrays.asList(lines))
+                .build();
+    }
+
+    private RuleTreeNodeLineVO line(String from, String to, RuleLimitTypeVO ruleLimitType) {
+        return RuleTreeNodeLineVO.builder()
+                .treeId(100000001)
+                .ruleNodeFrom(from)
+                .ruleNodeTo(to)
+                .ruleLimitType(ruleLimitType)
+                .ruleLimitValue(RuleLogicCheckTypeVO.ALLOW)
+                .build();
+    }
+
+}
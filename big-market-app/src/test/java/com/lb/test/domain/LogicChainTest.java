@@ -3,14 +3,13 @@ package com.lb.test.domain;
 import com.lb.domain.strategy.service.armory.IStrategyArmory;
 import com.lb.domain.strategy.service.rule.chain.ILogicChain;
 import com.lb.domain.strategy.service.rule.chain.factory.DefaultChainFactory;
-import com.lb.domain.strategy.service.rule.chain.impl.RuleWeightLogicChain;
 import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
-import org.springframework.test.util.ReflectionTestUtils;
 
 import javax.annotation.Resource;
 
@@ -25,8 +24,6 @@ public class LogicChainTest {
     @Resource
     private IStrategyArmory strategyArmory;
     @Resource
-    private RuleWeightLogicChain ruleWeightLogicChain;
-    @Resource
     private DefaultChainFactory defaultChainFactory;
 
     @Before
@@ -40,25 +37,31 @@ public class LogicChainTest {
     @Test
     public void test_LogicChain_rule_blacklist() {
         ILogicChain logicChain = defaultChainFactory.openLogicChain(100003L);
-        Integer awardId = logicChain.logic("user001", 100003L);
+        Integer awardId = logicChain.logic("user001", 100003L, 0L);
         log.info("测试结果：{}", awardId);
     }
 
     @Test
     public void test_LogicChain_rule_weight() {
-        // 通过反射 mock 规则中的值
-        ReflectionTestUtils.setField(ruleWeightLogicChain, "userScore", 4900L);
-
+        // 4900 积分命中 4000:102,103,104,105 权重范围
         ILogicChain logicChain = defaultChainFactory.openLogicChain(100001L);
-        Integer awardId = logicChain.logic("xiaofuge", 100001L);
+        Integer awardId = logicChain.logic("xiaofuge", 100001L, 4900L);
         log.info("测试结果：{}", awardId);
     }
 
     @Test
     public void test_LogicChain_rule_default() {
         ILogicChain logicChain = defaultChainFactory.openLogicChain(100001L);
-        Integer awardId = logicChain.logic("xiaofuge", 100001L);
+        Integer awardId = logicChain.logic("xiaofuge", 100001L, 0L);
         log.info("测试结果：{}", awardId);
     }
 
+    @Test
+    public void test_LogicChain_cached() {
+        // 同一策略复用已装配的责任链，不同策略的责任链节点互相独立
+        ILogicChain logicChain = defaultChainFactory.openLogicChain(100001L);
+        Assert.assertSame(logicChain, defaultChainFactory.openLogicChain(100001L));
+        Assert.assertNotSame(logicChain, defaultChainFactory.openLogicChain(100003L));
+    }
+
 }
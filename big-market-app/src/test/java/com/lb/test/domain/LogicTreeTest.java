@@ -2,6 +2,7 @@ package com.lb.test.domain;
 
 import com.alibaba.fastjson.JSON;
 import com.lb.domain.strategy.model.valobj.*;
+import com.lb.domain.strategy.repository.IStrategyRepository;
 import com.lb.domain.strategy.service.rule.tree.factory.DefaultTreeFactory;
 import com.lb.domain.strategy.service.rule.tree.factory.engine.IDecisionTreeEngine;
 import lombok.extern.slf4j.Slf4j;
@@ -25,9 +26,12 @@ public class LogicTreeTest {
     @Resource
     private DefaultTreeFactory defaultTreeFactory;
 
+    @Resource
+    private IStrategyRepository strategyRepository;
+
     /**
      * rule_lock --左--> rule_luck_award
-     * --右--> rule_stock --右--> rule_luck_award
+     * --右--> rule_stock --库存不足--> rule_luck_award
      */
     @Test
     public void test_tree_rule() {
@@ -72,10 +76,10 @@ public class LogicTreeTest {
                 .treeNodeLineVOList(new ArrayList<RuleTreeNodeLineVO>() {{
                     add(RuleTreeNodeLineVO.builder()
                             .treeId(100000001)
-                            .ruleNodeFrom("rule_lock")
+                            .ruleNodeFrom("rule_stock")
                             .ruleNodeTo("rule_luck_award")
                             .ruleLimitType(RuleLimitTypeVO.EQUAL)
-                            .ruleLimitValue(RuleLogicCheckTypeVO.TAKE_OVER)
+                            .ruleLimitValue(RuleLogicCheckTypeVO.ALLOW)
                             .build());
                 }})
                 .build();
@@ -98,4 +102,19 @@ public class LogicTreeTest {
         log.info("测试结果：{}", JSON.toJSONString(data));
 
     }
+
+    /**
+     * 规则树从库表加载；奖品的规则树ID来自奖品规则索引
+     */
+    @Test
+    public void test_tree_rule_from_repository() {
+        Integer treeId = strategyRepository.queryStrategyAwardRuleModelVO(100001L, 107).getTreeId();
+        RuleTreeVO ruleTreeVO = strategyRepository.queryRuleTreeVOByTreeId(treeId);
+        log.info("规则树：{}", JSON.toJSONString(ruleTreeVO));
+
+        IDecisionTreeEngine treeEngine = defaultTreeFactory.openLogicTree(ruleTreeVO);
+        DefaultTreeFactory.StrategyAwardData data = treeEngine.process("xiaofuge", 100001L, 107);
+        log.info("测试结果：{}", JSON.toJSONString(data));
+    }
+
 }
@@ -5,15 +5,12 @@ import com.lb.domain.strategy.model.entity.RaffleAwardEntity;
 import com.lb.domain.strategy.model.entity.RaffleFactorEntity;
 import com.lb.domain.strategy.service.IRaffleStrategy;
 import com.lb.domain.strategy.service.armory.IStrategyArmory;
-import com.lb.domain.strategy.service.rule.chain.impl.RuleWeightLogicChain;
-import com.lb.domain.strategy.service.rule.filter.impl.RuleLockLogicFilter;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
-import org.springframework.test.util.ReflectionTestUtils;
 
 import javax.annotation.Resource;
 
@@ -28,21 +25,12 @@ public class RaffleStrategyTest {
     @Resource
     private IRaffleStrategy raffleStrategy;
 
-    @Resource
-    private RuleWeightLogicChain ruleWeightLogicChain;
-
-    @Resource
-    private RuleLockLogicFilter ruleLockLogicFilter;
-
     @Before
     public void setUp() {
         // 策略装配 100001、100002、100003
         log.info("测试结果：{}", strategyArmory.assembleLotteryStrategy(100001L));
         log.info("测试结果：{}", strategyArmory.assembleLotteryStrategy(100002L));
         log.info("测试结果：{}", strategyArmory.assembleLotteryStrategy(100003L));
-
-        // 通过反射 mock 规则中的值
-        ReflectionTestUtils.setField(ruleWeightLogicChain, "userScore", 4900L);
     }
 
     @Test
@@ -50,6 +38,7 @@ public class RaffleStrategyTest {
         RaffleFactorEntity raffleFactorEntity = RaffleFactorEntity.builder()
                 .userId("RainSoul")
                 .strategyId(100001L)
+                .userScore(4900L)
                 .build();
 
         RaffleAwardEntity raffleAwardEntity = raffleStrategy.performRaffle(raffleFactorEntity);
@@ -72,8 +61,8 @@ public class RaffleStrategyTest {
     }
 
     /**
-     * 次数错校验，抽奖n次后解锁。100003 策略，你可以通过调整 @Before 的 setUp 方法中个人抽奖次数来验证。比如最开始设置0，之后设置10
-     * ReflectionTestUtils.setField(ruleLockLogicFilter, "userRaffleCount", 10L);
+     * 次数错校验，抽奖n次后解锁。100003 策略，每次抽奖累加用户抽奖次数，可以通过调整 Redis 计数来验证。比如最开始设置0，之后设置10
+     * SET big_market_user_raffle_count_key_100003_RainSoul 10
      */
     @Test
     public void test_raffle_center_rule_lock(){
@@ -0,0 +1,222 @@
+package com.lb.test.domain;
+
+import com.lb.domain.strategy.model.entity.StrategyAwardEntity;
+import com.lb.domain.strategy.model.valobj.StrategyAwardAliasTableVO;
+import com.lb.domain.strategy.service.armory.random.IRandomSource;
+import com.lb.domain.strategy.service.armory.random.factory.DefaultRandomSourceFactory;
+import com.lb.domain.strategy.service.armory.random.impl.SecureRandomSource;
+import com.lb.domain.strategy.service.armory.random.impl.SplittableRandomSource;
+import com.lb.domain.strategy.service.armory.random.impl.ThreadLocalRandomSource;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 随机源统计检验；卡方检验各随机源的均匀性，以及按概率查找表、别名表抽奖的奖品分布
+ */
+@Slf4j
+public class RandomSourceTest {
+
+    private static final int SAMPLES = 1_000_000;
+
+    /** 卡方分布 p = 0.001 的临界值；自由度 8、99 */
+    private static final double CHI_SQUARE_DF_8 = 26.124;
+    private static final double CHI_SQUARE_DF_99 = 148.230;
+
+    /** 100001 策略的奖品概率配置 */
+    private static final int[] AWARD_IDS = {101, 102, 103, 104, 105, 106, 107, 108, 109};
+    private static final String[] AWARD_RATES = {"0.3", "0.2", "0.2", "0.1", "0.1", "0.05", "0.04", "0.0099", "0.0001"};
+
+    private final IRandomSource[] randomSources = {new ThreadLocalRandomSource(), new SplittableRandomSource(), new SecureRandomSource()};
+
+    /**
+     * 均匀性；[0, 100) 每个值的出现次数
+     */
+    @Test
+    public void test_uniform() {
+        for (IRandomSource randomSource : randomSources) {
+            long[] observed = new long[100];
+            for (int i = 0; i < SAMPLES; i++) {
+                observed[randomSource.nextInt(100)]++;
+            }
+            double[] expected = new double[100];
+            Arrays.fill(expected, SAMPLES / 100d);
+            double chiSquare = chiSquare(observed, expected);
+            log.info("测试结果：{} 均匀性 chiSquare: {}", randomSource.getClass().getSimpleName(), chiSquare);
+            Assert.assertTrue(chiSquare < CHI_SQUARE_DF_99);
+        }
+    }
+
+    /**
+     * 均匀性；[0, 1) 随机值按 Redis 脚本的方式换算为 [0, 100) 的概率值
+     */
+    @Test
+    public void test_uniform_double() {
+        for (IRandomSource randomSource : randomSources) {
+            long[] observed = new long[100];
+            for (int i = 0; i < SAMPLES; i++) {
+                observed[Math.min((int) Math.floor(randomSource.nextDouble() * 100), 99)]++;
+            }
+            double[] expected = new double[100];
+            Arrays.fill(expected, SAMPLES / 100d);
+            double chiSquare = chiSquare(observed, expected);
+            log.info("测试结果：{} 浮点均匀性 chiSquare: {}", randomSource.getClass().getSimpleName(), chiSquare);
+            Assert.assertTrue(chiSquare < CHI_SQUARE_DF_99);
+        }
+    }
+
+    /**
+     * 概率查找表；随机概率值命中的奖品分布与配置概率一致
+     */
+    @Test
+    public void test_rateTable_distribution() {
+        int[] rateTable = rateTable();
+        for (IRandomSource randomSource : randomSources) {
+            long[] observed = new long[AWARD_IDS.length];
+            for (int i = 0; i < SAMPLES; i++) {
+                observed[indexOf(rateTable[randomSource.nextInt(rateTable.length)])]++;
+            }
+            double chiSquare = chiSquare(observed, expected());
+            log.info("测试结果：{} 概率查找表 chiSquare: {}", randomSource.getClass().getSimpleName(), chiSquare);
+            Assert.assertTrue(chiSquare < CHI_SQUARE_DF_8);
+        }
+    }
+
+    /**
+     * 别名表；随机列 + 列内随机值命中的奖品分布与配置概率一致
+     */
+    @Test
+    public void test_aliasTable_distribution() {
+        StrategyAwardAliasTableVO aliasTable = StrategyAwardAliasTableVO.create(strategyAwardEntities());
+        for (IRandomSource randomSource : randomSources) {
+            long[] observed = new long[AWARD_IDS.length];
+            for (int i = 0; i < SAMPLES; i++) {
+                Integer awardId = aliasTable.sample(randomSource.nextInt(aliasTable.columnCount()), randomSource.nextInt(aliasTable.getProbabilityRange()));
+                observed[indexOf(awardId)]++;
+            }
+            double chiSquare = chiSquare(observed, expected());
+            log.info("测试结果：{} 别名表 chiSquare: {}", randomSource.getClass().getSimpleName(), chiSquare);
+            Assert.assertTrue(chiSquare < CHI_SQUARE_DF_8);
+        }
+    }
+
+    /**
+     * 多线程；各线程独立生成器合并后的奖品分布与配置概率一致
+     */
+    @Test
+    public void test_concurrent_distribution() throws InterruptedException {
+        int[] rateTable = rateTable();
+        int threads = 8;
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            for (IRandomSource randomSource : randomSources) {
+                AtomicLongArray counter = new AtomicLongArray(AWARD_IDS.length);
+                CountDownLatch latch = new CountDownLatch(threads);
+                for (int t = 0; t < threads; t++) {
+                    executorService.execute(() -> {
+                        long[] local = new long[AWARD_IDS.length];
+                        for (int i = 0; i < SAMPLES / threads; i++) {
+                            local[indexOf(rateTable[randomSource.nextInt(rateTable.length)])]++;
+                        }
+                        for (int i = 0; i < local.length; i++) {
+                            counter.addAndGet(i, local[i]);
+                        }
+                        latch.countDown();
+                    });
+                }
+                latch.await();
+                long[] observed = new long[AWARD_IDS.length];
+                for (int i = 0; i < observed.length; i++) {
+                    observed[i] = counter.get(i);
+                }
+                double chiSquare = chiSquare(observed, expected());
+                log.info("测试结果：{} 多线程 chiSquare: {}", randomSource.getClass().getSimpleName(), chiSquare);
+                Assert.assertTrue(chiSquare < CHI_SQUARE_DF_8);
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * 按配置概率构建概率查找表，万分位精度下各奖品占位数即概率 * 10000
+     */
+    private int[] rateTable() {
+        List<Integer> rateTable = new ArrayList<>(10000);
+        for (int i = 0; i < AWARD_IDS.length; i++) {
+            int slots = new BigDecimal(AWARD_RATES[i]).multiply(BigDecimal.valueOf(10000)).intValueExact();
+            for (int j = 0; j < slots; j++) {
+                rateTable.add(AWARD_IDS[i]);
+            }
+        }
+        return rateTable.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private List<StrategyAwardEntity> strategyAwardEntities() {
+        List<StrategyAwardEntity> strategyAwardEntities = new ArrayList<>(AWARD_IDS.length);
+        for (int i = 0; i < AWARD_IDS.length; i++) {
+            strategyAwardEntities.add(StrategyAwardEntity.builder()
+                    .strategyId(100001L)
+                    .awardId(AWARD_IDS[i])
+                    .awardRate(new BigDecimal(AWARD_RATES[i]))
+                    .build());
+        }
+        return strategyAwardEntities;
+    }
+
+    private double[] expected() {
+        double[] expected = new double[AWARD_IDS.length];
+        for (int i = 0; i < AWARD_IDS.length; i++) {
+            expected[i] = SAMPLES * Double.parseDouble(AWARD_RATES[i]);
+        }
+        return expected;
+    }
+
+    private int indexOf(int awardId) {
+        for (int i = 0; i < AWARD_IDS.length; i++) {
+            if (AWARD_IDS[i] == awardId) return i;
+        }
+        throw new IllegalStateException("unknown awardId " + awardId);
+    }
+
+    private double chiSquare(long[] observed, double[] expected) {
+        double chiSquare = 0;
+        for (int i = 0; i < observed.length; i++) {
+            double diff = observed[i] - expected[i];
+            chiSquare += diff * diff / expected[i];
+        }
+        return chiSquare;
+    }
+
+    /**
+     * 默认随机源配置须为已注册的随机源；拼写错误在启动时失败
+     */
+    @Test
+    public void test_random_source_config() {
+        Map<String, IRandomSource> randomSourceGroup = new HashMap<>();
+        randomSourceGroup.put(DefaultRandomSourceFactory.RandomModel.THREAD_LOCAL.getCode(), new ThreadLocalRandomSource());
+        randomSourceGroup.put(DefaultRandomSourceFactory.RandomModel.SECURE.getCode(), new SecureRandomSource());
+        Assert.assertNotNull(new DefaultRandomSourceFactory(randomSourceGroup, "thread_local"));
+
+        for (String randomModel : new String[]{"thread-local", "splittable", ""}) {
+            try {
+                new DefaultRandomSourceFactory(randomSourceGroup, randomModel);
+                Assert.fail(randomModel);
+            } catch (IllegalArgumentException e) {
+                log.info("随机源配置无效 randomModel: {}", randomModel);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.lb.test.domain;
+
+import com.lb.domain.strategy.model.valobj.RuleWeightVO;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 权重规则预编译测试；积分值二分查找不大于积分值的最大阈值
+ */
+@Slf4j
+public class RuleWeightTest {
+
+    private static final String RULE_VALUE = "6000:102,103,104,105,106,107,108,109 4000:102,103,104,105 5000:102,103,104,105,106,107";
+
+    @Test
+    public void test_rateTableKey() {
+        RuleWeightVO ruleWeight = RuleWeightVO.create(100001L, RULE_VALUE);
+        log.info("测试结果：{}", ruleWeight.getRateTableKeys());
+        Assert.assertArrayEquals(new long[]{4000L, 5000L, 6000L}, ruleWeight.getThresholds());
+        Assert.assertNull(ruleWeight.rateTableKey(3999L));
+        Assert.assertEquals("100001_4000:102,103,104,105", ruleWeight.rateTableKey(4000L));
+        Assert.assertEquals("100001_4000:102,103,104,105", ruleWeight.rateTableKey(4900L));
+        Assert.assertEquals("100001_5000:102,103,104,105,106,107", ruleWeight.rateTableKey(5999L));
+        Assert.assertEquals("100001_6000:102,103,104,105,106,107,108,109", ruleWeight.rateTableKey(100000L));
+    }
+
+    @Test
+    public void test_empty() {
+        Assert.assertTrue(RuleWeightVO.create(100001L, null).isEmpty());
+        Assert.assertNull(RuleWeightVO.create(100001L, "").rateTableKey(4000L));
+    }
+
+}
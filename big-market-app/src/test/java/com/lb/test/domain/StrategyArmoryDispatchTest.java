@@ -0,0 +1,230 @@
+package com.lb.test.domain;
+
+import com.lb.domain.strategy.model.entity.StrategyAwardEntity;
+import com.lb.domain.strategy.model.entity.StrategyEntity;
+import com.lb.domain.strategy.model.entity.StrategyRuleEntity;
+import com.lb.domain.strategy.repository.IStrategyRepository;
+import com.lb.domain.strategy.service.armory.IStrategyArmory;
+import com.lb.domain.strategy.service.armory.IStrategyDispatch;
+import com.lb.types.enums.ResponseCode;
+import com.lb.types.exception.AppException;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.annotation.Resource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 策略装配测试；仓储替换为 MockBean，验证装配过程中的写入、指针切换、集群装配锁与完成标记，以及懒装配的单机合并
+ */
+@Slf4j
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"strategy.armory.parallel.timeout=1000", "strategy.warmup.enabled=false"})
+public class StrategyArmoryDispatchTest {
+
+    private static final Long STRATEGY_ID = 100001L;
+
+    @Resource
+    private IStrategyArmory strategyArmory;
+
+    @Resource
+    private IStrategyDispatch strategyDispatch;
+
+    @MockBean
+    private IStrategyRepository strategyRepository;
+
+    /**
+     * 奖品 101~105 概率各 0.2；权重 4000、5000 分别为 102~103、102~104，基础表与两个权重表内容各不相同
+     */
+    @Before
+    public void setUp() {
+        List<StrategyAwardEntity> strategyAwardEntities = new ArrayList<>();
+        for (int awardId = 101; awardId <= 105; awardId++) {
+            strategyAwardEntities.add(StrategyAwardEntity.builder()
+                    .strategyId(STRATEGY_ID)
+                    .awardId(awardId)
+                    .awardCount(100)
+                    .awardCountSurplus(100)
+                    .awardRate(new BigDecimal("0.2"))
+                    .build());
+        }
+        Mockito.when(strategyRepository.queryStrategyAwardList(STRATEGY_ID)).thenReturn(strategyAwardEntities);
+        Mockito.when(strategyRepository.queryStrategyEntityByStrategyId(STRATEGY_ID)).thenReturn(StrategyEntity.builder()
+                .strategyId(STRATEGY_ID)
+                .ruleModels("rule_weight")
+                .build());
+        Mockito.when(strategyRepository.queryStrategyRule(STRATEGY_ID, "rule_weight")).thenReturn(StrategyRuleEntity.builder()
+                .strategyId(STRATEGY_ID)
+                .ruleModel("rule_weight")
+                .ruleValue("4000:102,103 5000:102,103,104")
+                .build());
+        Mockito.when(strategyRepository.tryLockStrategyAssemble(Mockito.eq(STRATEGY_ID), Mockito.anyLong())).thenReturn(true);
+        Mockito.when(strategyRepository.linkStrategyRateTable(Mockito.anyString(), Mockito.anyString())).thenReturn(true);
+    }
+
+    /**
+     * 基础表与两个权重表并行计算，全部写入后切换指针并写入装配完成标记
+     */
+    @Test
+    public void test_assemble_parallel() {
+        Assert.assertTrue(strategyArmory.assembleLotteryStrategy(STRATEGY_ID));
+
+        Mockito.verify(strategyRepository, Mockito.times(3)).storeStrategyAwardSearchRateTable(Mockito.anyString(), Mockito.any(int[].class));
+        Mockito.verify(strategyRepository, Mockito.times(3)).linkStrategyRateTable(Mockito.anyString(), Mockito.anyString());
+        Mockito.verify(strategyRepository).storeStrategyAssembleMarker(Mockito.eq(STRATEGY_ID), Mockito.anyString());
+        Mockito.verify(strategyRepository).unlockStrategyAssemble(STRATEGY_ID);
+    }
+
+    /**
+     * 并行写入超过等待时间后装配失败；不切换指针、不写入装配完成标记，并释放装配锁
+     */
+    @Test
+    public void test_assemble_parallel_timeout() {
+        CountDownLatch blocked = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> blocked.await(10, TimeUnit.SECONDS))
+                .when(strategyRepository).storeStrategyAwardSearchRateTable(Mockito.anyString(), Mockito.any(int[].class));
+
+        long startMillis = System.currentTimeMillis();
+        try {
+            strategyArmory.assembleLotteryStrategy(STRATEGY_ID);
+            Assert.fail();
+        } catch (AppException e) {
+            Assert.assertEquals(ResponseCode.STRATEGY_ASSEMBLE_FAILED.getCode(), e.getCode());
+            log.info("并行装配超时 耗时: {}ms", System.currentTimeMillis() - startMillis);
+        } finally {
+            blocked.countDown();
+        }
+
+        Assert.assertTrue(System.currentTimeMillis() - startMillis < 10000);
+        Mockito.verify(strategyRepository, Mockito.never()).linkStrategyRateTable(Mockito.anyString(), Mockito.anyString());
+        Mockito.verify(strategyRepository, Mockito.never()).storeStrategyAssembleMarker(Mockito.anyLong(), Mockito.anyString());
+        Mockito.verify(strategyRepository).unlockStrategyAssemble(STRATEGY_ID);
+    }
+
+    /**
+     * 懒装配；多个线程同时首次抽奖，只有一个线程装配，其余线程等待同一次装配完成后抽奖
+     */
+    @Test
+    public void test_lazy_assemble_single_flight() throws Exception {
+        int threads = 8;
+        AtomicBoolean assembled = new AtomicBoolean();
+        AtomicInteger dispatches = new AtomicInteger();
+        CountDownLatch blocked = new CountDownLatch(1);
+        Mockito.when(strategyRepository.getStrategyAwardAssemble(Mockito.anyString(), Mockito.anyDouble(), Mockito.anyDouble())).thenAnswer(invocation -> {
+            dispatches.incrementAndGet();
+            return assembled.get() ? 101 : null;
+        });
+        Mockito.when(strategyRepository.existStrategyRateTable(Mockito.anyString())).thenAnswer(invocation -> assembled.get());
+        Mockito.doAnswer(invocation -> blocked.await(10, TimeUnit.SECONDS))
+                .when(strategyRepository).storeStrategyAwardSearchRateTable(Mockito.anyString(), Mockito.any(int[].class));
+        Mockito.doAnswer(invocation -> {
+            assembled.set(true);
+            return null;
+        }).when(strategyRepository).storeStrategyAssembleMarker(Mockito.eq(STRATEGY_ID), Mockito.anyString());
+
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executorService.submit(() -> strategyDispatch.getRandomAwardId(STRATEGY_ID)));
+        }
+
+        // 全部线程未命中、进入懒装配后放行写入
+        while (dispatches.get() < threads) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        blocked.countDown();
+        for (Future<Integer> future : futures) {
+            Assert.assertEquals(Integer.valueOf(101), future.get(10, TimeUnit.SECONDS));
+        }
+        executorService.shutdown();
+
+        // 只装配一次；装配锁由懒装配和装配各获取一次（可重入），等待的线程不获取装配锁
+        Mockito.verify(strategyRepository, Mockito.times(1)).queryStrategyAwardList(STRATEGY_ID);
+        Mockito.verify(strategyRepository, Mockito.times(1)).storeStrategyAssembleMarker(Mockito.eq(STRATEGY_ID), Mockito.anyString());
+        Mockito.verify(strategyRepository, Mockito.times(2)).tryLockStrategyAssemble(Mockito.eq(STRATEGY_ID), Mockito.anyLong());
+    }
+
+    /**
+     * 装配完成标记与当前配置一致时复用其他节点的装配结果，不获取装配锁
+     */
+    @Test
+    public void test_assemble_marker_reuse() {
+        String assembleMarker = assembleMarker();
+        Mockito.when(strategyRepository.queryStrategyAssembleMarker(STRATEGY_ID)).thenReturn(assembleMarker);
+        Mockito.when(strategyRepository.existStrategyRateTable(String.valueOf(STRATEGY_ID))).thenReturn(true);
+
+        Assert.assertTrue(strategyArmory.assembleLotteryStrategy(STRATEGY_ID));
+
+        Mockito.verify(strategyRepository, Mockito.never()).tryLockStrategyAssemble(Mockito.anyLong(), Mockito.anyLong());
+        Mockito.verify(strategyRepository, Mockito.never()).storeStrategyAwardSearchRateTable(Mockito.anyString(), Mockito.any(int[].class));
+        Mockito.verify(strategyRepository, Mockito.never()).storeStrategyAssembleMarker(Mockito.anyLong(), Mockito.anyString());
+    }
+
+    /**
+     * 等待装配锁期间其他节点完成装配；获取锁后复查完成标记，不再装配，并释放装配锁
+     */
+    @Test
+    public void test_assemble_lock_assembled_by_other_node() {
+        String assembleMarker = assembleMarker();
+        AtomicReference<String> storedMarker = new AtomicReference<>();
+        Mockito.when(strategyRepository.queryStrategyAssembleMarker(STRATEGY_ID)).thenAnswer(invocation -> storedMarker.get());
+        Mockito.when(strategyRepository.existStrategyRateTable(String.valueOf(STRATEGY_ID))).thenReturn(true);
+        Mockito.when(strategyRepository.tryLockStrategyAssemble(Mockito.eq(STRATEGY_ID), Mockito.anyLong())).thenAnswer(invocation -> {
+            storedMarker.set(assembleMarker);
+            return true;
+        });
+
+        Assert.assertTrue(strategyArmory.assembleLotteryStrategy(STRATEGY_ID));
+
+        Mockito.verify(strategyRepository, Mockito.never()).storeStrategyAwardSearchRateTable(Mockito.anyString(), Mockito.any(int[].class));
+        Mockito.verify(strategyRepository, Mockito.never()).storeStrategyAssembleMarker(Mockito.anyLong(), Mockito.anyString());
+        Mockito.verify(strategyRepository).unlockStrategyAssemble(STRATEGY_ID);
+    }
+
+    /**
+     * 装配锁等待超时；装配失败，不写入任何表
+     */
+    @Test
+    public void test_assemble_lock_timeout() {
+        Mockito.when(strategyRepository.tryLockStrategyAssemble(Mockito.eq(STRATEGY_ID), Mockito.anyLong())).thenReturn(false);
+        try {
+            strategyArmory.assembleLotteryStrategy(STRATEGY_ID);
+            Assert.fail();
+        } catch (AppException e) {
+            Assert.assertEquals(ResponseCode.STRATEGY_ASSEMBLE_FAILED.getCode(), e.getCode());
+        }
+        Mockito.verify(strategyRepository, Mockito.never()).storeStrategyAwardSearchRateTable(Mockito.anyString(), Mockito.any(int[].class));
+        Mockito.verify(strategyRepository, Mockito.never()).storeStrategyAssembleMarker(Mockito.anyLong(), Mockito.anyString());
+    }
+
+    /**
+     * 装配一次并取得写入的装配完成标记，之后清除调用记录
+     */
+    private String assembleMarker() {
+        strategyArmory.assembleLotteryStrategy(STRATEGY_ID);
+        ArgumentCaptor<String> assembleMarker = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(strategyRepository).storeStrategyAssembleMarker(Mockito.eq(STRATEGY_ID), assembleMarker.capture());
+        Mockito.clearInvocations(strategyRepository);
+        return assembleMarker.getValue();
+    }
+
+}
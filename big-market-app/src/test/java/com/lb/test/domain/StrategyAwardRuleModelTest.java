@@ -0,0 +1,28 @@
+package com.lb.test.domain;
+
+import com.lb.domain.strategy.model.valobj.StrategyAwardRuleModelVO;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 奖品规则预解析测试；rule_models 按抽奖中、抽奖后分组，非过滤器规则忽略
+ */
+@Slf4j
+public class StrategyAwardRuleModelTest {
+
+    @Test
+    public void test_create() {
+        StrategyAwardRuleModelVO strategyAwardRuleModelVO = StrategyAwardRuleModelVO.create("rule_random,rule_lock,rule_luck_award");
+        log.info("测试结果：{} {}", strategyAwardRuleModelVO.raffleCenterRuleModelList(), strategyAwardRuleModelVO.raffleAfterRuleModelList());
+        Assert.assertArrayEquals(new String[]{"rule_lock"}, strategyAwardRuleModelVO.raffleCenterRuleModelList());
+        Assert.assertArrayEquals(new String[]{"rule_luck_award"}, strategyAwardRuleModelVO.raffleAfterRuleModelList());
+    }
+
+    @Test
+    public void test_empty() {
+        Assert.assertSame(StrategyAwardRuleModelVO.EMPTY, StrategyAwardRuleModelVO.create(null));
+        Assert.assertEquals(0, StrategyAwardRuleModelVO.create("").raffleCenterRuleModelList().length);
+    }
+
+}
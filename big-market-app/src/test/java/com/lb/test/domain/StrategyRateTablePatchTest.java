@@ -0,0 +1,111 @@
+package com.lb.test.domain;
+
+import com.lb.domain.strategy.model.valobj.StrategyRateSlotsVO;
+import com.lb.domain.strategy.model.valobj.StrategyRateTablePatchVO;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * 策略概率查找表增量补丁测试；占位变化量、补丁后各奖品占位及变化的概率值
+ */
+@Slf4j
+public class StrategyRateTablePatchTest {
+
+    private static final int[] AWARD_IDS = {101, 102, 103, 104};
+
+    /**
+     * 占位增加；表变长，新增部分追加到表尾并与随机位置交换
+     */
+    @Test
+    public void test_patch_grow() {
+        verifyPatch(new int[]{10, 20, 30, 40}, new int[]{10, 25, 30, 47});
+    }
+
+    /**
+     * 占位减少；表变短，表尾元素补位
+     */
+    @Test
+    public void test_patch_shrink() {
+        verifyPatch(new int[]{10, 20, 30, 40}, new int[]{4, 20, 21, 40});
+    }
+
+    /**
+     * 有增有减；新增奖品优先填入移除的位置，表长不变
+     */
+    @Test
+    public void test_patch_mixed() {
+        verifyPatch(new int[]{10, 20, 30, 40}, new int[]{15, 12, 30, 43});
+    }
+
+    /**
+     * 有增有减且总数变化；填满移除的位置后剩余部分追加或补位
+     */
+    @Test
+    public void test_patch_mixed_resize() {
+        verifyPatch(new int[]{10, 20, 30, 40}, new int[]{2, 35, 30, 41});
+        verifyPatch(new int[]{10, 20, 30, 40}, new int[]{18, 5, 30, 40});
+    }
+
+    /**
+     * 占位变化量只包含有变化的奖品，新增和移除的奖品分别为正负占位
+     */
+    @Test
+    public void test_delta() {
+        StrategyRateSlotsVO current = StrategyRateSlotsVO.builder().awardIds(new int[]{101, 102, 103}).slots(new int[]{10, 20, 30}).build();
+        StrategyRateSlotsVO target = StrategyRateSlotsVO.builder().awardIds(new int[]{101, 102, 104}).slots(new int[]{10, 25, 5}).build();
+
+        Map<Integer, Integer> expected = new HashMap<>();
+        expected.put(102, 5);
+        expected.put(103, -30);
+        expected.put(104, 5);
+        Assert.assertEquals(expected, target.delta(current));
+    }
+
+    private void verifyPatch(int[] currentSlots, int[] slots) {
+        int[] current = shuffledRateTable(currentSlots);
+        Map<Integer, Integer> delta = rateSlots(slots).delta(rateSlots(currentSlots));
+        StrategyRateTablePatchVO patch = StrategyRateTablePatchVO.create(current.clone(), delta);
+        int[] rateTable = patch.getRateTable();
+
+        // 1. 补丁后的各奖品占位等于新的占位
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (int awardId : rateTable) {
+            counts.merge(awardId, 1, Integer::sum);
+        }
+        for (int i = 0; i < AWARD_IDS.length; i++) {
+            Assert.assertEquals(Integer.valueOf(slots[i]), counts.get(AWARD_IDS[i]));
+        }
+        Assert.assertEquals(Arrays.stream(slots).sum(), rateTable.length);
+
+        // 2. 变化的概率值恰为与原表不同的位置，以及追加的位置
+        List<Integer> changed = new ArrayList<>();
+        for (int i = 0; i < rateTable.length; i++) {
+            if (i >= current.length || current[i] != rateTable[i]) changed.add(i);
+        }
+        Assert.assertArrayEquals(changed.stream().mapToInt(Integer::intValue).toArray(), patch.getChangedRateKeys());
+        log.info("补丁 slots: {} -> {} delta: {} changed: {}", Arrays.toString(currentSlots), Arrays.toString(slots), delta, changed.size());
+    }
+
+    private StrategyRateSlotsVO rateSlots(int[] slots) {
+        return StrategyRateSlotsVO.builder()
+                .awardIds(AWARD_IDS)
+                .slots(slots)
+                .tableSize(Arrays.stream(slots).sum())
+                .build();
+    }
+
+    private int[] shuffledRateTable(int[] slots) {
+        List<Integer> rateTable = new ArrayList<>();
+        for (int i = 0; i < AWARD_IDS.length; i++) {
+            for (int j = 0; j < slots[i]; j++) {
+                rateTable.add(AWARD_IDS[i]);
+            }
+        }
+        Collections.shuffle(rateTable, new Random(7));
+        return rateTable.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.lb.test.domain;
 
+import com.lb.domain.strategy.model.valobj.StrategyAssembleModeVO;
 import com.lb.domain.strategy.service.armory.IStrategyArmory;
 import com.lb.domain.strategy.service.armory.IStrategyDispatch;
 import com.lb.infrastructure.persistent.redis.IRedisService;
@@ -52,6 +53,18 @@ public class StrategyTest {
         log.info("测试结果：{} - 6000 策略配置", strategyDispatch.getRandomAwardId(100001L, "6000:102,103,104,105,106,107,108,109"));
     }
 
+    /**
+     * 别名表模式装配；100002 策略，装配后按别名表随机获取奖品ID值
+     */
+    @Test
+    public void test_getRandomAwardId_alias() {
+        boolean success = strategyArmory.assembleLotteryStrategy(100002L, StrategyAssembleModeVO.ALIAS);
+        log.info("测试结果：{} - 别名表装配", success);
+        for (int i = 0; i < 10; i++) {
+            log.info("测试结果：{} - 奖品ID值", strategyDispatch.getRandomAwardId(100002L));
+        }
+    }
+
     @Resource
     private IRedisService redisService;
 
@@ -0,0 +1,93 @@
+package com.lb.test.infrastructure;
+
+import com.lb.domain.strategy.model.valobj.StrategyAwardStockResultVO;
+import com.lb.infrastructure.persistent.redis.IRedisService;
+import com.lb.infrastructure.persistent.repository.StrategyAwardStockLease;
+import com.lb.types.common.Constants;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.redisson.api.RScript;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * 奖品库存租约测试；宕机节点的租约回收、已回收租约的本地库存作废、库存耗尽时按租约记录判定售罄
+ */
+@Slf4j
+public class StrategyAwardStockLeaseTest {
+
+    private static final String CACHE_KEY = Constants.RedisKey.STRATEGY_AWARD_COUNT_KEY + "100006_107";
+
+    private IRedisService redisService;
+    private StrategyAwardStockLease strategyAwardStockLease;
+
+    @Before
+    public void setUp() {
+        redisService = Mockito.mock(IRedisService.class);
+        strategyAwardStockLease = new StrategyAwardStockLease(redisService, 3, 3, 1000L, 60000L, 50L, 30000L, 3000L);
+    }
+
+    /**
+     * 心跳过期节点的租约库存归还库存 key，心跳存在的节点不回收
+     */
+    @Test
+    public void test_reclaim() {
+        Mockito.when(redisService.evalScript(Mockito.contains("SMEMBERS"), Mockito.eq(RScript.ReturnType.MULTI), Mockito.anyList()))
+                .thenReturn(Collections.singletonList(CACHE_KEY));
+        Mockito.when(redisService.evalScript(Mockito.contains("HKEYS"), Mockito.eq(RScript.ReturnType.MULTI), Mockito.anyList()))
+                .thenReturn(Arrays.asList("node_live", "node_dead"));
+        Mockito.when(redisService.isExists(Constants.RedisKey.STRATEGY_AWARD_STOCK_LEASE_NODE_KEY + "node_live")).thenReturn(true);
+        Mockito.when(redisService.evalScript(Mockito.contains("HLEN"), Mockito.eq(RScript.ReturnType.INTEGER), Mockito.anyList(), Mockito.any()))
+                .thenReturn(5L);
+
+        Assert.assertEquals(5L, strategyAwardStockLease.reclaim());
+        Mockito.verify(redisService).evalScript(Mockito.contains("HLEN"), Mockito.eq(RScript.ReturnType.INTEGER), Mockito.anyList(), Mockito.eq("node_dead"));
+        Mockito.verify(redisService, Mockito.never()).evalScript(Mockito.contains("HLEN"), Mockito.eq(RScript.ReturnType.INTEGER), Mockito.anyList(), Mockito.eq("node_live"));
+    }
+
+    /**
+     * 同步时租约记录已被回收，本地剩余库存作废，下次扣减重新领取；同步由定时任务执行
+     */
+    @Test
+    public void test_sync_reclaimed() throws InterruptedException {
+        Mockito.when(redisService.evalScript(Mockito.contains("DECRBY"), Mockito.eq(RScript.ReturnType.INTEGER), Mockito.anyList(), Mockito.any(), Mockito.any()))
+                .thenReturn(3L);
+        Mockito.when(redisService.evalScript(Mockito.contains("HEXISTS"), Mockito.eq(RScript.ReturnType.INTEGER), Mockito.anyList(), Mockito.any(), Mockito.any()))
+                .thenReturn(0L);
+        String[] claimKeys = {CACHE_KEY};
+
+        Assert.assertEquals(StrategyAwardStockResultVO.SUCCESS, strategyAwardStockLease.subtraction(CACHE_KEY, claimKeys));
+        Assert.assertEquals(StrategyAwardStockResultVO.SUCCESS, strategyAwardStockLease.subtraction(CACHE_KEY, claimKeys));
+        strategyAwardStockLease.init();
+        try {
+            Mockito.verify(redisService, Mockito.timeout(1000)).evalScript(Mockito.contains("HEXISTS"), Mockito.eq(RScript.ReturnType.INTEGER), Mockito.anyList(), Mockito.any(), Mockito.any());
+            // 同步脚本返回后在租约锁内作废本地库存，稍等作废完成
+            Thread.sleep(100);
+
+            // 剩余 1 个库存已作废，重新领取
+            Assert.assertEquals(StrategyAwardStockResultVO.SUCCESS, strategyAwardStockLease.subtraction(CACHE_KEY, claimKeys));
+            Mockito.verify(redisService, Mockito.times(2)).evalScript(Mockito.contains("DECRBY"), Mockito.eq(RScript.ReturnType.INTEGER), Mockito.anyList(), Mockito.any(), Mockito.any());
+            Mockito.verify(redisService, Mockito.atLeastOnce()).setValue(Mockito.startsWith(Constants.RedisKey.STRATEGY_AWARD_STOCK_LEASE_NODE_KEY), Mockito.any(), Mockito.eq(30000L));
+        } finally {
+            strategyAwardStockLease.destroy();
+        }
+    }
+
+    /**
+     * 库存耗尽时，其他节点仍持有租约库存不是售罄；全部分段耗尽且无租约库存才是售罄
+     */
+    @Test
+    public void test_claim_sold_out() {
+        String[] claimKeys = {CACHE_KEY + "_0", CACHE_KEY + "_1"};
+        Mockito.when(redisService.evalScript(Mockito.contains("DECRBY"), Mockito.eq(RScript.ReturnType.INTEGER), Mockito.anyList(), Mockito.any(), Mockito.any()))
+                .thenReturn(0L, -1L, 0L, 0L);
+
+        Assert.assertEquals(StrategyAwardStockResultVO.FAILED, strategyAwardStockLease.subtraction(CACHE_KEY, claimKeys));
+        Assert.assertEquals(StrategyAwardStockResultVO.SOLD_OUT, strategyAwardStockLease.subtraction(CACHE_KEY, claimKeys));
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.lb.test.infrastructure;
+
+import com.lb.infrastructure.persistent.redis.IRedisService;
+import com.lb.infrastructure.persistent.repository.StrategyAwardStockSoldOut;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.redisson.api.RTopic;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 奖品售罄标记测试；按策略奖品ID下标记录，奖品ID不影响标记大小，各奖品的标记各自过期，奖品配置变化后标记作废
+ */
+@Slf4j
+public class StrategyAwardStockSoldOutTest {
+
+    private static final long RECHECK_INTERVAL = 200L;
+
+    private final Map<Long, int[]> strategyAwardIds = new HashMap<>();
+    private StrategyAwardStockSoldOut strategyAwardStockSoldOut;
+
+    @Before
+    public void setUp() {
+        IRedisService redisService = Mockito.mock(IRedisService.class);
+        Mockito.when(redisService.getTopic(Mockito.anyString())).thenReturn(Mockito.mock(RTopic.class));
+        strategyAwardStockSoldOut = new StrategyAwardStockSoldOut(redisService, RECHECK_INTERVAL);
+        strategyAwardStockSoldOut.init();
+        strategyAwardStockSoldOut.setStrategyAwardIds(strategyAwardIds::get);
+        strategyAwardIds.put(100006L, new int[]{101, 102, 1000000007});
+    }
+
+    @Test
+    public void test_sold_out() {
+        strategyAwardStockSoldOut.soldOut(100006L, 1000000007);
+
+        Assert.assertTrue(strategyAwardStockSoldOut.isSoldOut(100006L, 1000000007));
+        Assert.assertFalse(strategyAwardStockSoldOut.isSoldOut(100006L, 101));
+        // 不属于策略的奖品、其他策略不受影响
+        Assert.assertFalse(strategyAwardStockSoldOut.isSoldOut(100006L, 103));
+        Assert.assertFalse(strategyAwardStockSoldOut.isSoldOut(100007L, 1000000007));
+    }
+
+    /**
+     * 各奖品的标记按各自的标记时间过期；后标记的奖品不随先标记的奖品一起失效
+     */
+    @Test
+    public void test_expire_per_award() throws InterruptedException {
+        strategyAwardStockSoldOut.soldOut(100006L, 101);
+        Thread.sleep(RECHECK_INTERVAL / 2 + 20);
+        strategyAwardStockSoldOut.soldOut(100006L, 102);
+        Thread.sleep(RECHECK_INTERVAL / 2 + 20);
+
+        Assert.assertFalse(strategyAwardStockSoldOut.isSoldOut(100006L, 101));
+        Assert.assertTrue(strategyAwardStockSoldOut.isSoldOut(100006L, 102));
+
+        // 过期的奖品再次售罄后重新标记
+        strategyAwardStockSoldOut.soldOut(100006L, 101);
+        Assert.assertTrue(strategyAwardStockSoldOut.isSoldOut(100006L, 101));
+    }
+
+    /**
+     * 本节点未加载的策略不记录售罄标记
+     */
+    @Test
+    public void test_strategy_not_loaded() {
+        strategyAwardStockSoldOut.soldOut(100007L, 101);
+        strategyAwardIds.put(100007L, new int[]{101});
+        Assert.assertFalse(strategyAwardStockSoldOut.isSoldOut(100007L, 101));
+    }
+
+    /**
+     * 奖品配置变化后下标变化，标记作废；内容相同的重新加载沿用标记
+     */
+    @Test
+    public void test_award_ids_changed() {
+        strategyAwardStockSoldOut.soldOut(100006L, 102);
+
+        strategyAwardIds.put(100006L, new int[]{101, 102, 1000000007});
+        Assert.assertTrue(strategyAwardStockSoldOut.isSoldOut(100006L, 102));
+
+        strategyAwardIds.put(100006L, new int[]{101, 1000000007});
+        Assert.assertFalse(strategyAwardStockSoldOut.isSoldOut(100006L, 1000000007));
+        Assert.assertFalse(strategyAwardStockSoldOut.isSoldOut(100006L, 102));
+    }
+
+}
@@ -0,0 +1,285 @@
+package com.lb.test.infrastructure;
+
+import com.lb.infrastructure.persistent.redis.IRedisService;
+import com.lb.infrastructure.persistent.repository.StrategyRateTableChunkWriter;
+import com.lb.types.common.Constants;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.redisson.api.RBatch;
+import org.redisson.api.RBucketAsync;
+import org.redisson.api.RScriptAsync;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * 策略概率表分块写入测试；块与批次的边界、写入进度、中断后续写，以及增量写入的批次切分
+ */
+@Slf4j
+public class StrategyRateTableChunkWriterTest {
+
+    private static final String KEY = "100006";
+    private static final String TABLE_KEY = Constants.RedisKey.STRATEGY_RATE_TABLE_KEY + KEY;
+    private static final String BUILDING_KEY = Constants.RedisKey.STRATEGY_RATE_TABLE_BUILDING_KEY + KEY;
+    private static final String PROGRESS_KEY = Constants.RedisKey.STRATEGY_RATE_TABLE_PROGRESS_KEY + KEY;
+
+    private IRedisService redisService;
+    private StrategyRateTableChunkWriter chunkWriter;
+
+    /** 已执行批次的 SETRANGE 区间；每项为 {起始偏移, 长度} */
+    private final List<List<int[]>> batches = new ArrayList<>();
+    /** 已执行批次写入的进度 */
+    private final List<String> progresses = new ArrayList<>();
+    /** 已执行批次设置的过期时间 */
+    private final List<Duration> expires = new ArrayList<>();
+    /** 模拟 Redis 中的构建 key */
+    private byte[] building = new byte[0];
+    /** 模拟 Redis 中的进度 key */
+    private String progress;
+    /** 按批次序号判定执行是否失败 */
+    private IntPredicate failBatch = batchIndex -> false;
+    private int batchCount;
+
+    @Before
+    public void setUp() {
+        redisService = Mockito.mock(IRedisService.class);
+        chunkWriter = new StrategyRateTableChunkWriter();
+        ReflectionTestUtils.setField(chunkWriter, "redisService", redisService);
+        ReflectionTestUtils.setField(chunkWriter, "chunkBytes", 10);
+        ReflectionTestUtils.setField(chunkWriter, "batchChunks", 3);
+        ReflectionTestUtils.setField(chunkWriter, "retryAttempts", 3);
+        ReflectionTestUtils.setField(chunkWriter, "buildingTtl", 600000L);
+        Mockito.when(redisService.createBatch()).thenAnswer(invocation -> batch());
+        Mockito.when(redisService.<String>getValue(PROGRESS_KEY)).thenAnswer(invocation -> progress);
+        Mockito.doAnswer(invocation -> progress = null).when(redisService).remove(PROGRESS_KEY);
+        Mockito.doAnswer(invocation -> building = new byte[0]).when(redisService).remove(BUILDING_KEY);
+    }
+
+    /**
+     * 65 字节按 10 字节切块、每批 3 块；最后一块 5 字节，共 3 个批次，每批写入进度
+     */
+    @Test
+    public void test_write_chunk_boundaries() {
+        byte[] rateTable = rateTable(65, 7);
+
+        chunkWriter.write(KEY, TABLE_KEY, rateTable);
+
+        Assert.assertEquals(3, batches.size());
+        assertRanges(batches.get(0), 0, 10, 10, 10, 20, 10);
+        assertRanges(batches.get(1), 30, 10, 40, 10, 50, 10);
+        assertRanges(batches.get(2), 60, 5);
+        Assert.assertEquals(3, progresses.size());
+        Assert.assertTrue(progresses.get(0).endsWith(":30"));
+        Assert.assertTrue(progresses.get(1).endsWith(":60"));
+        Assert.assertTrue(progresses.get(2).endsWith(":65"));
+        Assert.assertArrayEquals(rateTable, building);
+
+        // 每个批次为构建 key 与进度续期
+        Assert.assertEquals(6, expires.size());
+        Assert.assertTrue(expires.stream().allMatch(Duration.ofMillis(600000L)::equals));
+
+        // 无进度时清理残留的构建 key；完成后重命名并清理进度
+        Mockito.verify(redisService).remove(BUILDING_KEY);
+        Mockito.verify(redisService).rename(BUILDING_KEY, TABLE_KEY);
+        Assert.assertNull(progress);
+    }
+
+    /**
+     * 表长恰为整批时不产生空批次
+     */
+    @Test
+    public void test_write_exact_batch() {
+        byte[] rateTable = rateTable(60, 7);
+
+        chunkWriter.write(KEY, TABLE_KEY, rateTable);
+
+        Assert.assertEquals(2, batches.size());
+        assertRanges(batches.get(1), 30, 10, 40, 10, 50, 10);
+        Assert.assertArrayEquals(rateTable, building);
+    }
+
+    /**
+     * 写入中断后，以相同的概率表再次写入时从已写入位置续写，不清理构建 key
+     */
+    @Test
+    public void test_write_resume() {
+        byte[] rateTable = rateTable(65, 7);
+        interrupt(rateTable);
+
+        chunkWriter.write(KEY, TABLE_KEY, rateTable);
+
+        Assert.assertEquals(3, batches.size());
+        assertRanges(batches.get(1), 30, 10, 40, 10, 50, 10);
+        assertRanges(batches.get(2), 60, 5);
+        Assert.assertArrayEquals(rateTable, building);
+        Mockito.verify(redisService, Mockito.times(1)).remove(BUILDING_KEY);
+    }
+
+    /**
+     * 进度属于其他概率表时从头写入，并清理残留的构建 key
+     */
+    @Test
+    public void test_write_resume_other_table() {
+        interrupt(rateTable(65, 7));
+        byte[] rateTable = rateTable(65, 11);
+
+        chunkWriter.write(KEY, TABLE_KEY, rateTable);
+
+        Assert.assertEquals(4, batches.size());
+        assertRanges(batches.get(1), 0, 10, 10, 10, 20, 10);
+        Assert.assertArrayEquals(rateTable, building);
+        Mockito.verify(redisService, Mockito.times(2)).remove(BUILDING_KEY);
+    }
+
+    /**
+     * 批次发送失败后读取进度，从最后一个成功批次的位置重试
+     */
+    @Test
+    public void test_write_retry() {
+        byte[] rateTable = rateTable(65, 7);
+        failBatch = batchIndex -> batchIndex == 1;
+
+        chunkWriter.write(KEY, TABLE_KEY, rateTable);
+
+        Assert.assertEquals(3, batches.size());
+        assertRanges(batches.get(1), 30, 10, 40, 10, 50, 10);
+        assertRanges(batches.get(2), 60, 5);
+        Assert.assertArrayEquals(rateTable, building);
+        Mockito.verify(redisService).rename(BUILDING_KEY, TABLE_KEY);
+    }
+
+    /**
+     * 重试次数用尽后抛出，不重命名
+     */
+    @Test
+    public void test_write_retry_exhausted() {
+        failBatch = batchIndex -> true;
+        try {
+            chunkWriter.write(KEY, TABLE_KEY, rateTable(65, 7));
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            log.info("重试次数用尽 batchCount: {}", batchCount);
+        }
+        Assert.assertEquals(4, batchCount);
+        Mockito.verify(redisService, Mockito.never()).rename(Mockito.anyString(), Mockito.anyString());
+    }
+
+    /**
+     * 增量写入；每批累计字节数达到 chunkBytes * batchChunks 后发送，区间不拆分
+     */
+    @Test
+    public void test_patch_batches() {
+        ReflectionTestUtils.setField(chunkWriter, "batchChunks", 2);
+        byte[] rateTable = rateTable(100, 7);
+        building = new byte[100];
+        int[] offsets = {0, 10, 20, 40, 50, 90};
+        int[] lengths = {5, 5, 15, 3, 30, 10};
+
+        chunkWriter.patch(TABLE_KEY, rateTable, offsets, lengths);
+
+        Assert.assertEquals(3, batches.size());
+        assertRanges(batches.get(0), 0, 5, 10, 5, 20, 15);
+        assertRanges(batches.get(1), 40, 3, 50, 30);
+        assertRanges(batches.get(2), 90, 10);
+        for (int i = 0; i < offsets.length; i++) {
+            Assert.assertArrayEquals(Arrays.copyOfRange(rateTable, offsets[i], offsets[i] + lengths[i]),
+                    Arrays.copyOfRange(building, offsets[i], offsets[i] + lengths[i]));
+        }
+    }
+
+    /**
+     * 写完第一个批次后中断；不重试
+     */
+    private void interrupt(byte[] rateTable) {
+        ReflectionTestUtils.setField(chunkWriter, "retryAttempts", 0);
+        failBatch = batchIndex -> batchIndex == 1;
+        try {
+            chunkWriter.write(KEY, TABLE_KEY, rateTable);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            log.info("写入中断 progress: {}", progress);
+        }
+        Assert.assertTrue(progress.endsWith(":30"));
+        ReflectionTestUtils.setField(chunkWriter, "retryAttempts", 3);
+        failBatch = batchIndex -> false;
+    }
+
+    /**
+     * 模拟流水线批次；执行时按顺序应用 SETRANGE 和进度写入，失败的批次不生效
+     */
+    private RBatch batch() {
+        List<Object[]> writes = new ArrayList<>();
+        List<String> progress = new ArrayList<>();
+        List<Duration> expire = new ArrayList<>();
+        RScriptAsync script = Mockito.mock(RScriptAsync.class, invocation -> {
+            if ("evalAsync".equals(invocation.getMethod().getName())) {
+                Object[] arguments = invocation.getRawArguments();
+                writes.add((Object[]) arguments[arguments.length - 1]);
+            }
+            return null;
+        });
+        RBucketAsync<?> bucket = Mockito.mock(RBucketAsync.class, invocation -> {
+            if ("setAsync".equals(invocation.getMethod().getName())) {
+                progress.add((String) invocation.getArgument(0));
+                expire.add(invocation.getArgument(1));
+            }
+            if ("expireAsync".equals(invocation.getMethod().getName())) expire.add(invocation.getArgument(0));
+            return null;
+        });
+        return Mockito.mock(RBatch.class, invocation -> {
+            switch (invocation.getMethod().getName()) {
+                case "getScript":
+                    return script;
+                case "getBucket":
+                    return bucket;
+                case "execute":
+                    if (failBatch.test(batchCount++)) throw new IllegalStateException("batch failed");
+                    apply(writes);
+                    expires.addAll(expire);
+                    for (String value : progress) {
+                        progresses.add(value);
+                        this.progress = value;
+                    }
+                    return null;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private void apply(List<Object[]> writes) {
+        List<int[]> ranges = new ArrayList<>();
+        for (Object[] values : writes) {
+            int offset = Integer.parseInt(new String((byte[]) values[0], StandardCharsets.US_ASCII));
+            byte[] value = (byte[]) values[1];
+            if (offset + value.length > building.length) building = Arrays.copyOf(building, offset + value.length);
+            System.arraycopy(value, 0, building, offset, value.length);
+            ranges.add(new int[]{offset, value.length});
+        }
+        batches.add(ranges);
+    }
+
+    private void assertRanges(List<int[]> ranges, int... expected) {
+        Assert.assertEquals(expected.length / 2, ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            Assert.assertArrayEquals(new int[]{expected[i * 2], expected[i * 2 + 1]}, ranges.get(i));
+        }
+    }
+
+    private byte[] rateTable(int length, int seed) {
+        byte[] rateTable = new byte[length];
+        for (int i = 0; i < length; i++) {
+            rateTable[i] = (byte) (i * 31 + seed);
+        }
+        return rateTable;
+    }
+
+}
@@ -0,0 +1,146 @@
+package com.lb.test.infrastructure;
+
+import com.lb.domain.strategy.model.valobj.StrategyAwardAliasTableVO;
+import com.lb.domain.strategy.model.valobj.StrategyRateTableVO;
+import com.lb.infrastructure.persistent.repository.StrategyRateTableCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 策略概率表二进制编码测试；概率查找表、别名表的编解码往返，下标宽度边界，以及布局一致判定
+ */
+@Slf4j
+public class StrategyRateTableCodecTest {
+
+    /**
+     * 奖品数量与下标宽度；最大下标 255、65535 为宽度边界
+     */
+    private static final int[][] DICTIONARY_WIDTHS = {{1, 1}, {255, 1}, {256, 1}, {257, 2}, {65535, 2}, {65536, 2}, {65537, 4}};
+
+    @Test
+    public void test_rate_table_round_trip() {
+        for (int[] dictionaryWidth : DICTIONARY_WIDTHS) {
+            int[] rateTable = rateTable(dictionaryWidth[0], 7);
+            byte[] bytes = StrategyRateTableCodec.encode(rateTable);
+
+            Assert.assertEquals(StrategyRateTableCodec.TYPE_RATE_TABLE, StrategyRateTableCodec.type(bytes));
+            Assert.assertEquals(dictionaryWidth[1], StrategyRateTableCodec.width(bytes));
+            Assert.assertEquals(rateTable.length, StrategyRateTableCodec.count(bytes));
+            Assert.assertEquals(StrategyRateTableCodec.HEADER_LENGTH + dictionaryWidth[0] * 4, StrategyRateTableCodec.prefixLength(bytes));
+            Assert.assertEquals(StrategyRateTableCodec.prefixLength(bytes) + rateTable.length * dictionaryWidth[1], bytes.length);
+
+            StrategyRateTableVO decoded = StrategyRateTableCodec.decode(bytes, "rate");
+            Assert.assertFalse(decoded.isAlias());
+            Assert.assertEquals("rate", decoded.getTableId());
+            Assert.assertArrayEquals(rateTable, decoded.getRateTable());
+            log.info("概率查找表编解码 奖品数量: {} 宽度: {} 字节: {}", dictionaryWidth[0], dictionaryWidth[1], bytes.length);
+        }
+    }
+
+    @Test
+    public void test_alias_table_round_trip() {
+        for (int[] dictionaryWidth : DICTIONARY_WIDTHS) {
+            StrategyAwardAliasTableVO aliasTable = aliasTable(dictionaryWidth[0]);
+            byte[] bytes = StrategyRateTableCodec.encode(aliasTable);
+
+            Assert.assertEquals(StrategyRateTableCodec.TYPE_ALIAS_TABLE, StrategyRateTableCodec.type(bytes));
+            Assert.assertEquals(dictionaryWidth[1], StrategyRateTableCodec.width(bytes));
+            Assert.assertEquals(dictionaryWidth[0], StrategyRateTableCodec.count(bytes));
+            Assert.assertEquals(StrategyRateTableCodec.prefixLength(bytes) + dictionaryWidth[0] * (4 + dictionaryWidth[1]), bytes.length);
+
+            StrategyRateTableVO decoded = StrategyRateTableCodec.decode(bytes, "alias");
+            Assert.assertTrue(decoded.isAlias());
+            Assert.assertEquals(aliasTable, decoded.getAliasTable());
+            log.info("别名表编解码 奖品数量: {} 宽度: {} 字节: {}", dictionaryWidth[0], dictionaryWidth[1], bytes.length);
+        }
+    }
+
+    /**
+     * 奖品字典相同、概率值分布不同时布局一致；字典、宽度或表类型不同时不一致
+     */
+    @Test
+    public void test_is_same_layout() {
+        byte[] current = StrategyRateTableCodec.encode(rateTable(256, 7));
+        byte[] prefix = Arrays.copyOf(current, StrategyRateTableCodec.prefixLength(current));
+
+        // 1. 同一字典，概率值重新分布、表长变化
+        Assert.assertTrue(StrategyRateTableCodec.isSameLayout(prefix, current));
+        Assert.assertTrue(StrategyRateTableCodec.isSameLayout(prefix, StrategyRateTableCodec.encode(rateTable(256, 11))));
+        int[] longer = rateTable(256, 7);
+        longer = Arrays.copyOf(longer, longer.length + 3);
+        longer[longer.length - 3] = longer[longer.length - 2] = longer[longer.length - 1] = longer[0];
+        Assert.assertTrue(StrategyRateTableCodec.isSameLayout(prefix, StrategyRateTableCodec.encode(longer)));
+
+        // 2. 字典变化；奖品ID不同、奖品数量不同、宽度不同
+        int[] replaced = rateTable(256, 7);
+        int removed = replaced[0];
+        for (int i = 0; i < replaced.length; i++) {
+            if (replaced[i] == removed) replaced[i] = 999999;
+        }
+        Assert.assertFalse(StrategyRateTableCodec.isSameLayout(prefix, StrategyRateTableCodec.encode(replaced)));
+        Assert.assertFalse(StrategyRateTableCodec.isSameLayout(prefix, StrategyRateTableCodec.encode(rateTable(255, 7))));
+        Assert.assertFalse(StrategyRateTableCodec.isSameLayout(prefix, StrategyRateTableCodec.encode(rateTable(257, 7))));
+
+        // 3. 表类型不同；别名表字典与概率查找表相同
+        Assert.assertFalse(StrategyRateTableCodec.isSameLayout(prefix, StrategyRateTableCodec.encode(aliasTable(256))));
+
+        // 4. 当前表不存在或不完整
+        Assert.assertFalse(StrategyRateTableCodec.isSameLayout(null, current));
+        Assert.assertFalse(StrategyRateTableCodec.isSameLayout(Arrays.copyOf(prefix, StrategyRateTableCodec.HEADER_LENGTH - 1), current));
+        Assert.assertFalse(StrategyRateTableCodec.isSameLayout(Arrays.copyOf(prefix, prefix.length - 4), current));
+    }
+
+    /**
+     * 概率查找表；奖品ID为 100001 起，每个奖品占 1~3 个概率值，打乱顺序
+     */
+    private int[] rateTable(int dictionarySize, long seed) {
+        Random random = new Random(seed);
+        int[] slots = new int[dictionarySize];
+        int rateRange = 0;
+        for (int i = 0; i < dictionarySize; i++) {
+            slots[i] = 1 + random.nextInt(3);
+            rateRange += slots[i];
+        }
+        int[] rateTable = new int[rateRange];
+        int rateKey = 0;
+        for (int i = 0; i < dictionarySize; i++) {
+            for (int j = 0; j < slots[i]; j++) {
+                rateTable[rateKey++] = 100001 + i;
+            }
+        }
+        for (int i = rateTable.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int awardId = rateTable[i];
+            rateTable[i] = rateTable[j];
+            rateTable[j] = awardId;
+        }
+        return rateTable;
+    }
+
+    /**
+     * 别名表；与概率查找表相同的奖品ID，别名下标覆盖最大下标
+     */
+    private StrategyAwardAliasTableVO aliasTable(int columnCount) {
+        Random random = new Random(columnCount);
+        int probabilityRange = 1000000;
+        int[] awardIds = new int[columnCount];
+        int[] probabilities = new int[columnCount];
+        int[] aliases = new int[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            awardIds[i] = 100001 + i;
+            probabilities[i] = random.nextInt(probabilityRange + 1);
+            aliases[i] = columnCount - 1 - i;
+        }
+        return StrategyAwardAliasTableVO.builder()
+                .awardIds(awardIds)
+                .probabilities(probabilities)
+                .aliases(aliases)
+                .probabilityRange(probabilityRange)
+                .build();
+    }
+
+}
@@ -0,0 +1,141 @@
+package com.lb.test.infrastructure;
+
+import com.lb.domain.strategy.model.entity.StrategyAwardEntity;
+import com.lb.domain.strategy.model.entity.StrategyEntity;
+import com.lb.domain.strategy.repository.IStrategyRepository;
+import com.lb.domain.strategy.service.armory.IStrategyArmory;
+import com.lb.infrastructure.persistent.redis.IRedisService;
+import com.lb.types.common.Constants;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.redisson.api.RScript;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.annotation.Resource;
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * 共享概率表测试；奖品概率相同的策略共用同一 tableId，指针切换后旧表不再被引用时保留 gcGracePeriod 后过期
+ * <p>
+ * 策略配置由 SpyBean 替换为测试数据，概率表写入、指针切换与引用计数使用 Redis
+ */
+@Slf4j
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"strategy.rate-table.gc-grace-period=1000", "strategy.dispatch.table-id-ttl=500", "strategy.warmup.enabled=false"})
+public class StrategyRateTableLinkTest {
+
+    private static final Long STRATEGY_ID_A = 990001L;
+    private static final Long STRATEGY_ID_B = 990002L;
+
+    @Resource
+    private IStrategyArmory strategyArmory;
+
+    @Resource
+    private IRedisService redisService;
+
+    @SpyBean
+    private IStrategyRepository strategyRepository;
+
+    /** 测试中出现过的共享概率表，结束后清理 */
+    private final Set<String> tableIds = new HashSet<>();
+
+    @Before
+    public void setUp() {
+        stubStrategy(STRATEGY_ID_A, "0.5", "0.3", "0.2");
+        stubStrategy(STRATEGY_ID_B, "0.5", "0.3", "0.2");
+    }
+
+    @After
+    public void tearDown() {
+        for (Long strategyId : new Long[]{STRATEGY_ID_A, STRATEGY_ID_B}) {
+            redisService.remove(Constants.RedisKey.STRATEGY_RATE_TABLE_ID_KEY + strategyId);
+            redisService.remove(Constants.RedisKey.STRATEGY_ASSEMBLE_MARKER_KEY + strategyId);
+        }
+        for (String tableId : tableIds) {
+            redisService.remove(Constants.RedisKey.STRATEGY_RATE_TABLE_KEY + tableId);
+            redisService.remove(Constants.RedisKey.STRATEGY_RATE_TABLE_REFERENCE_KEY + tableId);
+        }
+    }
+
+    @Test
+    public void test_link_unlink_grace() throws InterruptedException {
+        // 1. 奖品概率相同的两个策略共用同一张共享概率表，只写入一次；被引用的表不过期
+        strategyArmory.assembleLotteryStrategy(STRATEGY_ID_A);
+        strategyArmory.assembleLotteryStrategy(STRATEGY_ID_B);
+        String tableId = tableId(STRATEGY_ID_A);
+        Assert.assertEquals(tableId, tableId(STRATEGY_ID_B));
+        Mockito.verify(strategyRepository, Mockito.times(1)).storeStrategyAwardSearchRateTable(Mockito.eq(tableId), Mockito.any(int[].class));
+        Assert.assertEquals(2L, references(tableId));
+        Assert.assertEquals(-1L, ttl(tableId));
+
+        // 2. B 的奖品概率变化后指向新表；旧表仍被 A 引用，不过期
+        stubStrategy(STRATEGY_ID_B, "0.6", "0.2", "0.2");
+        strategyArmory.assembleLotteryStrategy(STRATEGY_ID_B);
+        String changedTableId = tableId(STRATEGY_ID_B);
+        Assert.assertNotEquals(tableId, changedTableId);
+        Assert.assertEquals(1L, references(tableId));
+        Assert.assertEquals(-1L, ttl(tableId));
+
+        // 3. A 同样变化后两者再次共用新表；旧表不再被引用，保留 gcGracePeriod 后过期
+        stubStrategy(STRATEGY_ID_A, "0.6", "0.2", "0.2");
+        strategyArmory.assembleLotteryStrategy(STRATEGY_ID_A);
+        Assert.assertEquals(changedTableId, tableId(STRATEGY_ID_A));
+        Assert.assertEquals(2L, references(changedTableId));
+        Assert.assertEquals(0L, references(tableId));
+        long ttl = ttl(tableId);
+        Assert.assertTrue(ttl > 0 && ttl <= 1000);
+        log.info("旧共享概率表延迟过期 tableId: {} ttl: {}ms", tableId, ttl);
+
+        Thread.sleep(1500);
+        Assert.assertFalse(redisService.isExists(Constants.RedisKey.STRATEGY_RATE_TABLE_KEY + tableId));
+        Assert.assertTrue(redisService.isExists(Constants.RedisKey.STRATEGY_RATE_TABLE_KEY + changedTableId));
+    }
+
+    /**
+     * 策略奖品 990101 起，按给定概率配置；无规则模型，库存 1 段
+     */
+    private void stubStrategy(Long strategyId, String... awardRates) {
+        List<StrategyAwardEntity> strategyAwardEntities = new ArrayList<>();
+        for (int i = 0; i < awardRates.length; i++) {
+            strategyAwardEntities.add(StrategyAwardEntity.builder()
+                    .strategyId(strategyId)
+                    .awardId(990101 + i)
+                    .awardCount(100)
+                    .awardCountSurplus(100)
+                    .awardRate(new BigDecimal(awardRates[i]))
+                    .build());
+        }
+        Mockito.doReturn(strategyAwardEntities).when(strategyRepository).queryStrategyAwardList(strategyId);
+        Mockito.doReturn(StrategyEntity.builder().strategyId(strategyId).build()).when(strategyRepository).queryStrategyEntityByStrategyId(strategyId);
+        Mockito.doReturn(1).when(strategyRepository).queryStrategyAwardStockSegments(Mockito.eq(strategyId), Mockito.anyInt());
+        Mockito.doNothing().when(strategyRepository).cacheStrategyAwardCount(Mockito.anyString(), Mockito.anyInt(), Mockito.anyInt());
+    }
+
+    private String tableId(Long strategyId) {
+        String tableId = redisService.getString(Constants.RedisKey.STRATEGY_RATE_TABLE_ID_KEY + strategyId);
+        Assert.assertNotNull(tableId);
+        tableIds.add(tableId);
+        return tableId;
+    }
+
+    private long references(String tableId) {
+        Long references = redisService.evalScript("return redis.call('SCARD', KEYS[1])", RScript.ReturnType.INTEGER,
+                Collections.singletonList(Constants.RedisKey.STRATEGY_RATE_TABLE_REFERENCE_KEY + tableId));
+        return references;
+    }
+
+    private long ttl(String tableId) {
+        Long ttl = redisService.evalScript("return redis.call('PTTL', KEYS[1])", RScript.ReturnType.INTEGER,
+                Collections.singletonList(Constants.RedisKey.STRATEGY_RATE_TABLE_KEY + tableId));
+        return ttl;
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.lb.test.infrastructure;
+
+import com.google.common.cache.Cache;
+import com.lb.domain.strategy.model.valobj.StrategyAwardAliasTableVO;
+import com.lb.domain.strategy.model.valobj.StrategyRateTableVO;
+import com.lb.infrastructure.persistent.repository.StrategyRateTableLocalCache;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 策略概率表本地缓存测试；按快照占用字节数（weight）淘汰，以及快照淘汰后 Redis 已清理时重新读取指针
+ */
+@Slf4j
+public class StrategyRateTableLocalCacheTest {
+
+    /** 概率查找表 100 个概率值；weight 64 + 100 * 4 */
+    private static final int RATE_RANGE = 100;
+    private static final int TABLE_WEIGHT = 464;
+    private static final long MAXIMUM_BYTES = TABLE_WEIGHT * 10;
+
+    private StrategyRateTableLocalCache localCache;
+
+    private final Map<String, StrategyRateTableVO> redisTables = new HashMap<>();
+    private final AtomicInteger pointerLoads = new AtomicInteger();
+    private final AtomicInteger tableLoads = new AtomicInteger();
+
+    private final Function<String, String> pointerLoader = key -> {
+        pointerLoads.incrementAndGet();
+        return "table_" + key;
+    };
+    private final Function<String, StrategyRateTableVO> tableLoader = tableId -> {
+        tableLoads.incrementAndGet();
+        return redisTables.get(tableId);
+    };
+
+    @Before
+    public void setUp() {
+        localCache = new StrategyRateTableLocalCache();
+        ReflectionTestUtils.setField(localCache, "enabled", true);
+        ReflectionTestUtils.setField(localCache, "maximumBytes", MAXIMUM_BYTES);
+        ReflectionTestUtils.setField(localCache, "checkInterval", 60000L);
+        ReflectionTestUtils.setField(localCache, "maximumKeys", 100000L);
+        localCache.init();
+    }
+
+    @Test
+    public void test_weight() {
+        Assert.assertEquals(TABLE_WEIGHT, rateTable("rate", RATE_RANGE).weight());
+        // 别名表只与奖品数量相关；1000 个奖品 64 + 1000 * 12
+        Assert.assertEquals(12064, aliasTable("alias", 1000).weight());
+    }
+
+    /**
+     * 快照总 weight 超出上限后淘汰，保留的快照总 weight 不超过上限；被淘汰的快照再次访问时从 Redis 加载
+     */
+    @Test
+    public void test_weight_eviction() {
+        int count = 40;
+        for (int i = 0; i < count; i++) {
+            redisTables.put("table_" + i, rateTable("table_" + i, RATE_RANGE));
+            Assert.assertNotNull(localCache.get(String.valueOf(i), pointerLoader, tableLoader));
+        }
+        Assert.assertEquals(count, tableLoads.get());
+
+        // 1. 保留的快照总 weight 不超过上限
+        Map<String, StrategyRateTableVO> cached = tables().asMap();
+        long weight = cached.values().stream().mapToLong(StrategyRateTableVO::weight).sum();
+        Assert.assertTrue(weight <= MAXIMUM_BYTES);
+        Assert.assertTrue(cached.size() < count);
+        log.info("本地缓存保留快照 count: {} weight: {}/{}", cached.size(), weight, MAXIMUM_BYTES);
+
+        // 2. 再次访问全部 key，只有被淘汰的快照重新加载；指针仍在校验间隔内，不读取指针
+        for (int i = 0; i < count; i++) {
+            Assert.assertNotNull(localCache.get(String.valueOf(i), pointerLoader, tableLoader));
+        }
+        Assert.assertTrue(tableLoads.get() - count >= count - cached.size());
+        Assert.assertEquals(count, pointerLoads.get());
+    }
+
+    /**
+     * 单个快照超出上限时不保留，但仍返回给本次抽奖
+     */
+    @Test
+    public void test_weight_over_maximum() {
+        redisTables.put("table_large", rateTable("table_large", (int) MAXIMUM_BYTES));
+
+        Assert.assertNotNull(localCache.get("large", pointerLoader, tableLoader));
+        Assert.assertNotNull(localCache.get("large", pointerLoader, tableLoader));
+
+        Assert.assertEquals(2, tableLoads.get());
+        Assert.assertEquals(0, tables().size());
+    }
+
+    /**
+     * 快照被淘汰且 Redis 中已清理时返回 null 并丢弃指针，下次访问重新读取指针
+     */
+    @Test
+    public void test_evicted_and_removed() {
+        redisTables.put("table_large", rateTable("table_large", (int) MAXIMUM_BYTES));
+        Assert.assertNotNull(localCache.get("large", pointerLoader, tableLoader));
+
+        redisTables.remove("table_large");
+        Assert.assertNull(localCache.get("large", pointerLoader, tableLoader));
+        Assert.assertEquals(1, pointerLoads.get());
+
+        redisTables.put("table_large", rateTable("table_large", RATE_RANGE));
+        Assert.assertNotNull(localCache.get("large", pointerLoader, tableLoader));
+        Assert.assertEquals(2, pointerLoads.get());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Cache<String, StrategyRateTableVO> tables() {
+        Cache<String, StrategyRateTableVO> tables = (Cache<String, StrategyRateTableVO>) ReflectionTestUtils.getField(localCache, "tables");
+        tables.cleanUp();
+        return tables;
+    }
+
+    private StrategyRateTableVO rateTable(String tableId, int rateRange) {
+        int[] rateTable = new int[rateRange];
+        for (int i = 0; i < rateRange; i++) {
+            rateTable[i] = 101 + i % 5;
+        }
+        return StrategyRateTableVO.builder().tableId(tableId).rateTable(rateTable).build();
+    }
+
+    private StrategyRateTableVO aliasTable(String tableId, int columnCount) {
+        int[] awardIds = new int[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            awardIds[i] = 101 + i;
+        }
+        return StrategyRateTableVO.builder()
+                .tableId(tableId)
+                .aliasTable(StrategyAwardAliasTableVO.builder()
+                        .awardIds(awardIds)
+                        .probabilities(new int[columnCount])
+                        .aliases(new int[columnCount])
+                        .probabilityRange(1)
+                        .build())
+                .build();
+    }
+
+}
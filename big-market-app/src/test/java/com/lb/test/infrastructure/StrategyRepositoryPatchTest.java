@@ -0,0 +1,95 @@
+package com.lb.test.infrastructure;
+
+import com.lb.domain.strategy.model.valobj.StrategyRateSlotsVO;
+import com.lb.domain.strategy.model.valobj.StrategyRateTablePatchVO;
+import com.lb.domain.strategy.repository.IStrategyRepository;
+import com.lb.infrastructure.persistent.redis.IRedisService;
+import com.lb.infrastructure.persistent.repository.StrategyRateTableChunkWriter;
+import com.lb.infrastructure.persistent.repository.StrategyRateTableCodec;
+import com.lb.types.common.Constants;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.annotation.Resource;
+import java.util.*;
+
+/**
+ * 策略概率查找表增量写入测试；复制当前表后只写入头部和变化的概率值，结果与补丁后的表一致
+ */
+@Slf4j
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class StrategyRepositoryPatchTest {
+
+    private static final int[] AWARD_IDS = {101, 102, 103, 104};
+    private static final int[] CURRENT_SLOTS = {10, 20, 30, 40};
+
+    @Resource
+    private IStrategyRepository strategyRepository;
+
+    @Resource
+    private IRedisService redisService;
+
+    @SpyBean
+    private StrategyRateTableChunkWriter strategyRateTableChunkWriter;
+
+    /**
+     * 占位增加、减少、有增有减；补丁表不全量写入，解码结果与补丁后的表一致
+     */
+    @Test
+    public void test_patch_write() {
+        int[][] cases = {{10, 25, 30, 47}, {4, 20, 21, 40}, {15, 12, 30, 43}};
+        for (int[] slots : cases) {
+            String currentTableId = "patch_test_current_" + UUID.randomUUID();
+            String tableId = "patch_test_" + UUID.randomUUID();
+            try {
+                int[] rateTable = shuffledRateTable(CURRENT_SLOTS);
+                strategyRepository.storeStrategyAwardSearchRateTable(currentTableId, rateTable);
+                StrategyRateTablePatchVO patch = StrategyRateTablePatchVO.create(rateTable.clone(), rateSlots(slots).delta(rateSlots(CURRENT_SLOTS)));
+
+                strategyRepository.patchStrategyAwardSearchRateTable(currentTableId, tableId, patch.getRateTable(), patch.getChangedRateKeys());
+
+                // 1. 补丁表只按区间写入，未全量写入
+                Mockito.verify(strategyRateTableChunkWriter, Mockito.never()).write(Mockito.eq(tableId), Mockito.anyString(), Mockito.any());
+                Mockito.verify(strategyRateTableChunkWriter).patch(Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.any());
+
+                // 2. 缩短的表以头部条目数为准，解码结果与补丁后的表一致；当前表不变
+                byte[] bytes = redisService.getBytes(Constants.RedisKey.STRATEGY_RATE_TABLE_KEY + tableId);
+                Assert.assertArrayEquals(patch.getRateTable(), StrategyRateTableCodec.decode(bytes, tableId).getRateTable());
+                byte[] current = redisService.getBytes(Constants.RedisKey.STRATEGY_RATE_TABLE_KEY + currentTableId);
+                Assert.assertArrayEquals(rateTable, StrategyRateTableCodec.decode(current, currentTableId).getRateTable());
+                log.info("增量写入 slots: {} changed: {}", Arrays.toString(slots), patch.getChangedRateKeys().length);
+            } finally {
+                redisService.remove(Constants.RedisKey.STRATEGY_RATE_TABLE_KEY + currentTableId);
+                redisService.remove(Constants.RedisKey.STRATEGY_RATE_TABLE_KEY + tableId);
+                Mockito.clearInvocations(strategyRateTableChunkWriter);
+            }
+        }
+    }
+
+    private StrategyRateSlotsVO rateSlots(int[] slots) {
+        return StrategyRateSlotsVO.builder()
+                .awardIds(AWARD_IDS)
+                .slots(slots)
+                .tableSize(Arrays.stream(slots).sum())
+                .build();
+    }
+
+    private int[] shuffledRateTable(int[] slots) {
+        List<Integer> rateTable = new ArrayList<>();
+        for (int i = 0; i < AWARD_IDS.length; i++) {
+            for (int j = 0; j < slots[i]; j++) {
+                rateTable.add(AWARD_IDS[i]);
+            }
+        }
+        Collections.shuffle(rateTable, new Random(7));
+        return rateTable.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+}
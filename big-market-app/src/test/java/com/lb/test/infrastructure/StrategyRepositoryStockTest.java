@@ -0,0 +1,141 @@
+package com.lb.test.infrastructure;
+
+import com.lb.domain.strategy.model.valobj.StrategyAwardStockResultVO;
+import com.lb.domain.strategy.repository.IStrategyRepository;
+import com.lb.infrastructure.persistent.redis.IRedisService;
+import com.lb.types.common.Constants;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 奖品库存扣减测试；并发扣减只成功库存数次，库存耗尽后不扣减，计数始终不为负数；分段库存同样适用
+ */
+@Slf4j
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class StrategyRepositoryStockTest {
+
+    private static final int AWARD_COUNT = 100;
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS = 20;
+
+    @Resource
+    private IStrategyRepository strategyRepository;
+
+    @Resource
+    private IRedisService redisService;
+
+    /** 测试中写入的库存 key，结束后清理库存计数与库存值锁 */
+    private final List<String> stockKeys = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for (String stockKey : stockKeys) {
+            redisService.remove(stockKey);
+            for (int surplus = 0; surplus < AWARD_COUNT; surplus++) {
+                redisService.remove(stockKey + Constants.UNDERLINE + surplus);
+            }
+        }
+    }
+
+    @Test
+    public void test_subtraction_not_negative() throws Exception {
+        String cacheKey = Constants.RedisKey.STRATEGY_AWARD_COUNT_KEY + "stock_test_" + UUID.randomUUID();
+        stockKeys.add(cacheKey);
+        strategyRepository.cacheStrategyAwardCount(cacheKey, AWARD_COUNT, 1);
+
+        long[] counts = subtraction(cacheKey, 1, new String[]{cacheKey});
+
+        Assert.assertEquals(AWARD_COUNT, counts[0]);
+        Assert.assertEquals(THREADS * ATTEMPTS - AWARD_COUNT, counts[1]);
+        Assert.assertEquals(0L, redisService.getAtomicLong(cacheKey));
+    }
+
+    /**
+     * 分段库存；各分段耗尽后依次尝试其余分段，全部耗尽才售罄，成功次数与总库存一致
+     */
+    @Test
+    public void test_segment_subtraction_not_negative() throws Exception {
+        int segments = 4;
+        String cacheKey = Constants.RedisKey.STRATEGY_AWARD_COUNT_KEY + "stock_test_" + UUID.randomUUID();
+        String[] segmentKeys = new String[segments];
+        for (int i = 0; i < segments; i++) {
+            segmentKeys[i] = cacheKey + "_segment_" + i;
+            stockKeys.add(segmentKeys[i]);
+        }
+        strategyRepository.cacheStrategyAwardCount(cacheKey, AWARD_COUNT, segments);
+
+        long[] counts = subtraction(cacheKey, segments, segmentKeys);
+
+        Assert.assertEquals(AWARD_COUNT, counts[0]);
+        Assert.assertEquals(THREADS * ATTEMPTS - AWARD_COUNT, counts[1]);
+        for (String segmentKey : segmentKeys) {
+            Assert.assertEquals(0L, redisService.getAtomicLong(segmentKey));
+        }
+        Assert.assertEquals(0L, strategyRepository.queryAwardStockSurplus(cacheKey, segments));
+    }
+
+    /**
+     * 并发扣减，同时持续读取库存计数
+     *
+     * @return 成功次数、售罄次数
+     */
+    private long[] subtraction(String cacheKey, int segments, String[] stockKeys) throws Exception {
+        AtomicLong success = new AtomicLong();
+        AtomicLong soldOut = new AtomicLong();
+        AtomicLong minSurplus = new AtomicLong(Long.MAX_VALUE);
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS + 1);
+        Future<?> reader = executorService.submit(() -> {
+            while (running.get()) {
+                for (String stockKey : stockKeys) {
+                    minSurplus.accumulateAndGet(redisService.getAtomicLong(stockKey), Math::min);
+                }
+            }
+        });
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            String userId = "user" + i;
+            futures.add(executorService.submit(() -> {
+                start.await();
+                for (int j = 0; j < ATTEMPTS; j++) {
+                    StrategyAwardStockResultVO result = strategyRepository.subtractionAwardStock(cacheKey, segments, userId);
+                    if (StrategyAwardStockResultVO.SUCCESS.equals(result)) success.incrementAndGet();
+                    if (StrategyAwardStockResultVO.SOLD_OUT.equals(result)) soldOut.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        running.set(false);
+        reader.get(30, TimeUnit.SECONDS);
+        executorService.shutdown();
+
+        log.info("库存扣减 segments: {} success: {} soldOut: {} minSurplus: {}", segments, success.get(), soldOut.get(), minSurplus.get());
+        Assert.assertTrue(minSurplus.get() >= 0);
+        return new long[]{success.get(), soldOut.get()};
+    }
+
+}
@@ -0,0 +1,175 @@
+package com.lb.test.infrastructure;
+
+import com.lb.infrastructure.persistent.dao.IStrategyRuleDao;
+import com.lb.infrastructure.persistent.redis.IRedisService;
+import com.lb.infrastructure.persistent.repository.StrategyRuleBlacklistIndex;
+import com.lb.types.common.Constants;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.redisson.api.RLock;
+import org.redisson.api.RSet;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 黑名单索引测试；小名单使用本地索引，并删除此前大名单遗留的 Redis Set；刷新异步执行，同步锁获取超时时保留当前索引
+ */
+@Slf4j
+public class StrategyRuleBlacklistIndexTest {
+
+    private static final Long STRATEGY_ID = 100001L;
+    private static final long REFRESH_INTERVAL = 100L;
+
+    private IRedisService redisService;
+    private IStrategyRuleDao strategyRuleDao;
+    private RLock lock;
+    private ThreadPoolExecutor threadPoolExecutor;
+
+    /** 库中的规则值；摘要查询按当前规则值计算 */
+    private final AtomicReference<String> ruleValue = new AtomicReference<>();
+
+    @Before
+    public void setUp() throws InterruptedException {
+        redisService = Mockito.mock(IRedisService.class);
+        strategyRuleDao = Mockito.mock(IStrategyRuleDao.class);
+        lock = Mockito.mock(RLock.class);
+        Mockito.when(redisService.getLock(Mockito.anyString())).thenReturn(lock);
+        Mockito.when(lock.tryLock(Mockito.anyLong(), Mockito.anyLong(), Mockito.any(TimeUnit.class))).thenReturn(true);
+        Mockito.when(lock.isHeldByCurrentThread()).thenReturn(true);
+        Mockito.when(strategyRuleDao.queryStrategyRuleValue(Mockito.any())).thenAnswer(invocation -> ruleValue.get());
+        Mockito.when(strategyRuleDao.queryStrategyRuleValueDigest(Mockito.any())).thenAnswer(invocation -> null == ruleValue.get() ? null : DigestUtils.md5Hex(ruleValue.get()));
+        threadPoolExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+    }
+
+    @After
+    public void tearDown() {
+        threadPoolExecutor.shutdownNow();
+    }
+
+    @Test
+    public void test_local_index() {
+        ruleValue.set("100:user001,user002");
+        StrategyRuleBlacklistIndex strategyRuleBlacklistIndex = blacklistIndex(10000);
+
+        Assert.assertEquals(Integer.valueOf(100), strategyRuleBlacklistIndex.queryAwardId(STRATEGY_ID, "user001"));
+        Assert.assertNull(strategyRuleBlacklistIndex.queryAwardId(STRATEGY_ID, "user003"));
+
+        // 未同步过大名单，不删除
+        Mockito.verify(redisService, Mockito.never()).isSetMember(Mockito.anyString(), Mockito.anyString());
+        Mockito.verify(redisService, Mockito.never()).remove(Mockito.anyString());
+    }
+
+    /**
+     * 名单由大名单缩小为本地索引时，删除遗留的 Redis Set 和摘要
+     */
+    @Test
+    public void test_remove_redis_index() {
+        ruleValue.set("100:user001");
+        Mockito.when(redisService.isExists(Constants.RedisKey.STRATEGY_RULE_BLACKLIST_DIGEST_KEY + STRATEGY_ID)).thenReturn(true);
+        StrategyRuleBlacklistIndex strategyRuleBlacklistIndex = blacklistIndex(10000);
+
+        Assert.assertEquals(Integer.valueOf(100), strategyRuleBlacklistIndex.queryAwardId(STRATEGY_ID, "user001"));
+
+        Mockito.verify(redisService).remove(Constants.RedisKey.STRATEGY_RULE_BLACKLIST_KEY + STRATEGY_ID);
+        Mockito.verify(redisService).remove(Constants.RedisKey.STRATEGY_RULE_BLACKLIST_DIGEST_KEY + STRATEGY_ID);
+    }
+
+    /**
+     * 规则移除后同样删除遗留的 Redis Set
+     */
+    @Test
+    public void test_rule_removed() {
+        Mockito.when(redisService.isExists(Constants.RedisKey.STRATEGY_RULE_BLACKLIST_DIGEST_KEY + STRATEGY_ID)).thenReturn(true);
+        StrategyRuleBlacklistIndex strategyRuleBlacklistIndex = blacklistIndex(10000);
+
+        Assert.assertNull(strategyRuleBlacklistIndex.queryAwardId(STRATEGY_ID, "user001"));
+
+        Mockito.verify(redisService).remove(Constants.RedisKey.STRATEGY_RULE_BLACKLIST_KEY + STRATEGY_ID);
+    }
+
+    /**
+     * 刷新在线程池中执行；刷新未完成时查询不等待，继续使用当前索引
+     */
+    @Test
+    public void test_async_reload() throws Exception {
+        ruleValue.set("100:user001");
+        StrategyRuleBlacklistIndex strategyRuleBlacklistIndex = blacklistIndex(10000);
+        Assert.assertEquals(Integer.valueOf(100), strategyRuleBlacklistIndex.queryAwardId(STRATEGY_ID, "user001"));
+
+        CountDownLatch blocked = new CountDownLatch(1);
+        Mockito.when(strategyRuleDao.queryStrategyRuleValueDigest(Mockito.any())).thenAnswer(invocation -> {
+            blocked.await(10, TimeUnit.SECONDS);
+            return DigestUtils.md5Hex(ruleValue.get());
+        });
+        ruleValue.set("101:user001");
+        Thread.sleep(REFRESH_INTERVAL * 2);
+
+        // 触发刷新，刷新阻塞期间仍返回当前索引
+        long startMillis = System.currentTimeMillis();
+        Assert.assertEquals(Integer.valueOf(100), strategyRuleBlacklistIndex.queryAwardId(STRATEGY_ID, "user001"));
+        Assert.assertTrue(System.currentTimeMillis() - startMillis < 1000);
+
+        blocked.countDown();
+        Assert.assertEquals(Integer.valueOf(101), awaitAwardId(strategyRuleBlacklistIndex, "user001", 101));
+    }
+
+    /**
+     * 大名单同步锁获取超时；保留当前索引，获取到锁后的刷新切换为新索引
+     */
+    @Test
+    public void test_lock_timeout_keep_previous() throws Exception {
+        RSet<String> set = Mockito.mock(RSet.class);
+        Mockito.when(set.iterator(Mockito.anyInt())).thenReturn(Collections.emptyIterator());
+        Mockito.when(redisService.<String>getSet(Constants.RedisKey.STRATEGY_RULE_BLACKLIST_KEY + STRATEGY_ID)).thenReturn(set);
+        Mockito.when(redisService.isSetMember(Constants.RedisKey.STRATEGY_RULE_BLACKLIST_KEY + STRATEGY_ID, "user001")).thenReturn(true);
+
+        ruleValue.set("100:user001,user002");
+        StrategyRuleBlacklistIndex strategyRuleBlacklistIndex = blacklistIndex(1);
+        Assert.assertEquals(Integer.valueOf(100), strategyRuleBlacklistIndex.queryAwardId(STRATEGY_ID, "user001"));
+
+        // 1. 规则值变化，其他节点持有同步锁；刷新保留当前索引，不同步
+        Mockito.when(lock.tryLock(Mockito.anyLong(), Mockito.anyLong(), Mockito.any(TimeUnit.class))).thenReturn(false);
+        ruleValue.set("101:user001,user002,user003");
+        Thread.sleep(REFRESH_INTERVAL * 2);
+        strategyRuleBlacklistIndex.queryAwardId(STRATEGY_ID, "user001");
+        Mockito.verify(lock, Mockito.timeout(1000).times(2)).tryLock(Mockito.anyLong(), Mockito.anyLong(), Mockito.any(TimeUnit.class));
+        Thread.sleep(50);
+        Assert.assertEquals(Integer.valueOf(100), strategyRuleBlacklistIndex.queryAwardId(STRATEGY_ID, "user001"));
+        Mockito.verify(set, Mockito.times(1)).addAll(Mockito.anyCollection());
+
+        // 2. 锁释放后的刷新同步新名单
+        Mockito.when(lock.tryLock(Mockito.anyLong(), Mockito.anyLong(), Mockito.any(TimeUnit.class))).thenReturn(true);
+        Thread.sleep(REFRESH_INTERVAL * 2);
+        Assert.assertEquals(Integer.valueOf(101), awaitAwardId(strategyRuleBlacklistIndex, "user001", 101));
+        Mockito.verify(set, Mockito.times(2)).addAll(Mockito.anyCollection());
+    }
+
+    private StrategyRuleBlacklistIndex blacklistIndex(int localMaxSize) {
+        return new StrategyRuleBlacklistIndex(strategyRuleDao, redisService, threadPoolExecutor,
+                localMaxSize, REFRESH_INTERVAL, 1000, 100L, 60000L);
+    }
+
+    /**
+     * 查询直到返回期望的奖品ID；刷新异步完成
+     */
+    private Integer awaitAwardId(StrategyRuleBlacklistIndex strategyRuleBlacklistIndex, String userId, Integer expected) throws InterruptedException {
+        Integer awardId = null;
+        for (int i = 0; i < 100; i++) {
+            awardId = strategyRuleBlacklistIndex.queryAwardId(STRATEGY_ID, userId);
+            if (expected.equals(awardId)) break;
+            Thread.sleep(20);
+        }
+        return awardId;
+    }
+
+}
@@ -0,0 +1,153 @@
+package com.lb.test.infrastructure;
+
+import com.lb.domain.strategy.model.entity.RuleActionEntity;
+import com.lb.domain.strategy.model.entity.RuleMatterEntity;
+import com.lb.domain.strategy.model.valobj.RuleLogicCheckTypeVO;
+import com.lb.domain.strategy.repository.IStrategyRepository;
+import com.lb.domain.strategy.service.IRaffleUserCount;
+import com.lb.domain.strategy.service.rule.filter.impl.RuleLockLogicFilter;
+import com.lb.infrastructure.persistent.dao.IUserRaffleCountDao;
+import com.lb.infrastructure.persistent.po.UserRaffleCount;
+import com.lb.infrastructure.persistent.redis.IRedisService;
+import com.lb.infrastructure.persistent.repository.UserRaffleCounter;
+import com.lb.trigger.job.UpdateUserRaffleCountJob;
+import com.lb.types.common.Constants;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.redisson.api.RScript;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 用户抽奖次数测试；Redis 计数累加、变更批量写入库表、次数锁过滤
+ */
+@Slf4j
+public class UserRaffleCountTest {
+
+    private static final String COUNT_KEY = Constants.RedisKey.USER_RAFFLE_COUNT_KEY;
+
+    private IRedisService redisService;
+    private IUserRaffleCountDao userRaffleCountDao;
+    private UserRaffleCounter userRaffleCounter;
+
+    @Before
+    public void setUp() {
+        redisService = Mockito.mock(IRedisService.class);
+        userRaffleCountDao = Mockito.mock(IUserRaffleCountDao.class);
+        userRaffleCounter = new UserRaffleCounter(redisService, userRaffleCountDao, 60000L, 2592000000L);
+    }
+
+    /**
+     * 计数不存在时从库表加载后重试；累加后的次数写入本地缓存，查询不再访问 Redis
+     */
+    @Test
+    public void test_increment_load_from_db() {
+        Mockito.when(redisService.evalScript(Mockito.anyString(), Mockito.eq(RScript.ReturnType.INTEGER), Mockito.anyList(), Mockito.any(), Mockito.any()))
+                .thenReturn(-1L, 6L);
+        Mockito.when(userRaffleCountDao.queryRaffleCount(Mockito.any(UserRaffleCount.class))).thenReturn(5L);
+
+        Assert.assertEquals(6L, userRaffleCounter.increment("user_001", 100003L));
+        Mockito.verify(redisService).setAtomicLongIfAbsent(COUNT_KEY + "100003_user_001", 5L);
+
+        Assert.assertEquals(6L, userRaffleCounter.query("user_001", 100003L));
+        Mockito.verify(redisService, Mockito.never()).getString(Mockito.anyString());
+    }
+
+    /**
+     * 变更成员一次取出，多 key 一次读取，按最新值写入库表；用户ID可包含下划线
+     */
+    @Test
+    public void test_flush() {
+        Mockito.when(redisService.evalScript(Mockito.anyString(), Mockito.eq(RScript.ReturnType.MULTI), Mockito.anyList(), Mockito.any()))
+                .thenReturn(Arrays.asList("100003_user_001", "100003_user002", "100004_user003"));
+        Map<String, String> values = new HashMap<>();
+        values.put(COUNT_KEY + "100003_user_001", "3");
+        values.put(COUNT_KEY + "100003_user002", "10");
+        Mockito.when(redisService.getStrings(Mockito.anyList())).thenReturn(values);
+
+        // 计数已过期的成员不写入，但计入取出条数
+        Assert.assertEquals(3, userRaffleCounter.flush(100));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<UserRaffleCount>> captor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(redisService, Mockito.times(1)).getStrings(Mockito.anyList());
+        Mockito.verify(userRaffleCountDao).upsertUserRaffleCountList(captor.capture());
+        List<UserRaffleCount> userRaffleCounts = captor.getValue();
+        Assert.assertEquals(2, userRaffleCounts.size());
+        Assert.assertEquals("user_001", userRaffleCounts.get(0).getUserId());
+        Assert.assertEquals(Long.valueOf(100003L), userRaffleCounts.get(0).getStrategyId());
+        Assert.assertEquals(Long.valueOf(3L), userRaffleCounts.get(0).getRaffleCount());
+        Assert.assertEquals(Long.valueOf(10L), userRaffleCounts.get(1).getRaffleCount());
+    }
+
+    /**
+     * 库表写入失败时变更成员写回，下次重试
+     */
+    @Test
+    public void test_flush_failed() {
+        Mockito.when(redisService.evalScript(Mockito.anyString(), Mockito.eq(RScript.ReturnType.MULTI), Mockito.anyList(), Mockito.any()))
+                .thenReturn(Arrays.asList("100003_user001", "100003_user002"));
+        Map<String, String> values = new HashMap<>();
+        values.put(COUNT_KEY + "100003_user001", "1");
+        values.put(COUNT_KEY + "100003_user002", "2");
+        Mockito.when(redisService.getStrings(Mockito.anyList())).thenReturn(values);
+        Mockito.doThrow(new RuntimeException("db down")).when(userRaffleCountDao).upsertUserRaffleCountList(Mockito.anyList());
+
+        try {
+            userRaffleCounter.flush(100);
+            Assert.fail();
+        } catch (RuntimeException e) {
+            Mockito.verify(redisService).evalScript(Mockito.anyString(), Mockito.eq(RScript.ReturnType.INTEGER), Mockito.anyList(),
+                    Mockito.eq("100003_user001"), Mockito.eq("100003_user002"));
+        }
+    }
+
+    /**
+     * 任务按批取出，取满一批时继续，不足一批时结束
+     */
+    @Test
+    public void test_job() {
+        IRaffleUserCount raffleUserCount = Mockito.mock(IRaffleUserCount.class);
+        Mockito.when(raffleUserCount.updateUserRaffleCount(2)).thenReturn(2, 2, 1, 2);
+        UpdateUserRaffleCountJob job = new UpdateUserRaffleCountJob(raffleUserCount, 2, 100);
+
+        job.exec();
+        Mockito.verify(raffleUserCount, Mockito.times(3)).updateUserRaffleCount(2);
+    }
+
+    /**
+     * rule_lock 1；本次抽奖前已完成 0 次接管，已完成 1 次放行；规则值来自索引，不查询库表
+     */
+    @Test
+    public void test_rule_lock() {
+        IStrategyRepository strategyRepository = Mockito.mock(IStrategyRepository.class);
+        Mockito.when(strategyRepository.queryStrategyAwardRuleLockCount(100003L, 107)).thenReturn(1L);
+        RuleLockLogicFilter ruleLockLogicFilter = new RuleLockLogicFilter(strategyRepository);
+
+        RuleActionEntity<RuleActionEntity.RaffleCenterEntity> first = ruleLockLogicFilter.filter(ruleMatter(0L));
+        Assert.assertEquals(RuleLogicCheckTypeVO.TAKE_OVER.getCode(), first.getCode());
+        RuleActionEntity<RuleActionEntity.RaffleCenterEntity> second = ruleLockLogicFilter.filter(ruleMatter(1L));
+        Assert.assertEquals(RuleLogicCheckTypeVO.ALLOW.getCode(), second.getCode());
+
+        Mockito.verify(strategyRepository, Mockito.never()).queryStrategyRuleValue(Mockito.anyLong(), Mockito.anyInt(), Mockito.anyString());
+        Mockito.verify(strategyRepository, Mockito.never()).queryUserRaffleCount(Mockito.anyString(), Mockito.anyLong());
+    }
+
+    private RuleMatterEntity ruleMatter(Long userRaffleCount) {
+        RuleMatterEntity ruleMatterEntity = new RuleMatterEntity();
+        ruleMatterEntity.setUserId("user001");
+        ruleMatterEntity.setStrategyId(100003L);
+        ruleMatterEntity.setAwardId(107);
+        ruleMatterEntity.setRuleModel("rule_lock");
+        ruleMatterEntity.setUserRaffleCount(userRaffleCount);
+        return ruleMatterEntity;
+    }
+
+}
@@ -20,5 +20,9 @@ public class RaffleFactorEntity {
     private Long strategyId;
     /** 奖品ID */
     private Integer awardId;
+    /** 用户已完成的抽奖次数；不含本次抽奖，由抽奖流程填充，供抽奖中规则过滤 */
+    private Long userRaffleCount;
+    /** 用户积分值；权重规则按积分值选择抽奖范围，未填写时按 0 处理 */
+    private Long userScore;
 
 }
@@ -16,5 +16,7 @@ public class RuleMatterEntity {
     private Integer awardId;
     /** 抽奖规则类型【rule_random - 随机值计算、rule_lock - 抽奖几次后解锁、rule_luck_award - 幸运奖(兜底奖品)】 */
     private String ruleModel;
+    /** 用户已完成的抽奖次数；不含本次抽奖，为空时由规则自行查询 */
+    private Long userRaffleCount;
 
 }
@@ -0,0 +1,72 @@
+package com.lb.domain.strategy.model.valobj;
+
+import com.lb.types.common.Constants;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 权重规则值对象；rule_weight 规则值预编译为升序阈值和对应的装配 key，抽奖时二分查找，不再解析字符串
+ * 规则值格式；4000:102,103,104,105 5000:102,103,104,105,106,107 6000:102,103,104,105,106,107,108,109
+ */
+@Getter
+@Builder
+@AllArgsConstructor
+public class RuleWeightVO {
+
+    /** 原始规则值 */
+    private final String ruleValue;
+    /** 权重阈值；升序 */
+    private final long[] thresholds;
+    /** 权重阈值对应的装配 key；strategyId_权重值，与装配时的 key 一致 */
+    private final String[] rateTableKeys;
+
+    public static RuleWeightVO create(Long strategyId, String ruleValue) {
+        // 按阈值排序；相同阈值以后配置的为准
+        Map<Long, String> ruleWeightValues = new TreeMap<>();
+        if (StringUtils.isNotBlank(ruleValue)) {
+            for (String ruleWeightValue : ruleValue.split(Constants.SPACE)) {
+                if (ruleWeightValue.isEmpty()) break;
+                String[] parts = ruleWeightValue.split(Constants.COLON);
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("rule_weight rule_rule invalid input format" + ruleWeightValue);
+                }
+                ruleWeightValues.put(Long.parseLong(parts[0]), ruleWeightValue);
+            }
+        }
+
+        long[] thresholds = new long[ruleWeightValues.size()];
+        String[] rateTableKeys = new String[ruleWeightValues.size()];
+        int i = 0;
+        for (Map.Entry<Long, String> entry : ruleWeightValues.entrySet()) {
+            thresholds[i] = entry.getKey();
+            rateTableKeys[i] = String.valueOf(strategyId).concat(Constants.UNDERLINE).concat(entry.getValue());
+            i++;
+        }
+        return new RuleWeightVO(ruleValue, thresholds, rateTableKeys);
+    }
+
+    public boolean isEmpty() {
+        return 0 == thresholds.length;
+    }
+
+    /**
+     * 不大于积分值的最大阈值对应的装配 key【4500 积分，找到 4000:102,103,104,105】
+     *
+     * @param score 用户积分值
+     * @return 装配 key；积分值小于最小阈值时返回 null
+     */
+    public String rateTableKey(long score) {
+        int index = Arrays.binarySearch(thresholds, score);
+        if (index >= 0) return rateTableKeys[index];
+        // 未命中时为插入点 - 1，即最后一个小于积分值的阈值
+        index = -index - 2;
+        return index < 0 ? null : rateTableKeys[index];
+    }
+
+}
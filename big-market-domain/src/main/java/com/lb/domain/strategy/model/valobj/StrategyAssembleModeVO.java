@@ -0,0 +1,20 @@
+package com.lb.domain.strategy.model.valobj;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 策略装配模式值对象
+ */
+@Getter
+@AllArgsConstructor
+public enum StrategyAssembleModeVO {
+
+    RATE_TABLE("rate_table", "概率查找表；按最小概率值展开占位，空间 O(rateRange)"),
+    ALIAS("alias", "别名表；Walker/Vose 别名法，空间 O(awards)，抽奖 O(1)"),
+    ;
+
+    private final String code;
+    private final String info;
+
+}
@@ -0,0 +1,126 @@
+package com.lb.domain.strategy.model.valobj;
+
+import com.lb.domain.strategy.model.entity.StrategyAwardEntity;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 策略奖品别名表值对象「Walker/Vose Alias Method」
+ * <p>
+ * 每个奖品占一列，每列容量为 probabilityRange。列内 [0, probabilities[i]) 命中本列奖品，[probabilities[i], probabilityRange) 命中别名奖品。
+ * 抽奖时随机一列 + 随机一个列内值，O(1) 完成；存储只与奖品数量相关，不受最小概率值影响。
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StrategyAwardAliasTableVO {
+
+    /** 奖品ID；下标即列号 */
+    private int[] awardIds;
+    /** 列内命中本列奖品的阈值 */
+    private int[] probabilities;
+    /** 列内未命中时的别名列 */
+    private int[] aliases;
+    /** 列容量；即所有奖品概率值的定点总和 */
+    private int probabilityRange;
+
+    /**
+     * 根据随机列号和列内随机值获取奖品ID
+     *
+     * @param column 列号 [0, awardIds.length)
+     * @param coin   列内随机值 [0, probabilityRange)
+     * @return 奖品ID
+     */
+    public Integer sample(int column, int coin) {
+        return coin < probabilities[column] ? awardIds[column] : awardIds[aliases[column]];
+    }
+
+    public int columnCount() {
+        return awardIds.length;
+    }
+
+    /**
+     * 构建别名表；概率值转为定点整数计算，不存在浮点误差。
+     * 每个奖品的质量为 rate * n，每列容量为 sum(rate)，总质量恰好为 n 列容量之和。
+     *
+     * @param strategyAwardEntities 策略奖品列表
+     * @return 别名表
+     */
+    public static StrategyAwardAliasTableVO create(List<StrategyAwardEntity> strategyAwardEntities) {
+        int n = strategyAwardEntities.size();
+
+        // 1. 概率值转为统一精度的定点整数
+        int scale = 0;
+        for (StrategyAwardEntity strategyAward : strategyAwardEntities) {
+            scale = Math.max(scale, strategyAward.getAwardRate().stripTrailingZeros().scale());
+        }
+        int[] awardIds = new int[n];
+        long[] mass = new long[n];
+        long probabilityRange = 0;
+        for (int i = 0; i < n; i++) {
+            StrategyAwardEntity strategyAward = strategyAwardEntities.get(i);
+            BigDecimal awardRate = strategyAward.getAwardRate().setScale(Math.max(scale, 0));
+            long rate = awardRate.unscaledValue().longValueExact();
+            awardIds[i] = strategyAward.getAwardId();
+            mass[i] = rate * n;
+            probabilityRange += rate;
+        }
+        if (probabilityRange <= 0 || probabilityRange > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("alias table invalid probability range " + probabilityRange);
+        }
+
+        // 2. 按列容量分为 small、large 两组
+        int[] probabilities = new int[n];
+        int[] aliases = new int[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallSize = 0, largeSize = 0;
+        for (int i = 0; i < n; i++) {
+            if (mass[i] < probabilityRange) {
+                small[smallSize++] = i;
+            } else {
+                large[largeSize++] = i;
+            }
+        }
+
+        // 3. 用 large 填满 small 的剩余容量
+        while (smallSize > 0 && largeSize > 0) {
+            int less = small[--smallSize];
+            int more = large[--largeSize];
+            probabilities[less] = (int) mass[less];
+            aliases[less] = more;
+            mass[more] = mass[more] - (probabilityRange - mass[less]);
+            if (mass[more] < probabilityRange) {
+                small[smallSize++] = more;
+            } else {
+                large[largeSize++] = more;
+            }
+        }
+
+        // 4. 剩余列独占整列
+        while (largeSize > 0) {
+            int more = large[--largeSize];
+            probabilities[more] = (int) probabilityRange;
+            aliases[more] = more;
+        }
+        while (smallSize > 0) {
+            int less = small[--smallSize];
+            probabilities[less] = (int) probabilityRange;
+            aliases[less] = less;
+        }
+
+        return StrategyAwardAliasTableVO.builder()
+                .awardIds(awardIds)
+                .probabilities(probabilities)
+                .aliases(aliases)
+                .probabilityRange((int) probabilityRange)
+                .build();
+    }
+
+}
@@ -5,52 +5,65 @@ import com.lb.types.common.Constants;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
-import lombok.NoArgsConstructor;
+import org.apache.commons.lang3.StringUtils;
 
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * @description 抽奖策略规则规则值对象；值对象，没有唯一ID，仅限于从数据库查询对象
+ * rule_models 在创建时按抽奖中、抽奖后分组解析一次，抽奖时直接返回解析结果
  */
 @Getter
 @Builder
 @AllArgsConstructor
-@NoArgsConstructor
 public class StrategyAwardRuleModelVO {
 
-    private String ruleModels;
+    private static final String[] EMPTY_RULE_MODELS = new String[0];
 
-    /**
-     * 获取抽奖中规则；或者使用 lambda 表达式
-     * <p>
-     * List<String> ruleModelList = Arrays.stream(ruleModels.split(Constants.SPLIT))
-     * .filter(DefaultLogicFactory.LogicModel::isCenter)
-     * .collect(Collectors.toList());
-     * return ruleModelList;
-     * <p>
-     * List<String> collect = Arrays.stream(ruleModelValues).filter(DefaultLogicFactory.LogicModel::isCenter).collect(Collectors.toList());
-     */
-    public String[] raffleCenterRuleModelList() {
-        List<String> ruleModelList = new ArrayList<>();
-        String[] ruleModelValues = ruleModels.split(Constants.SPLIT);
-        for (String ruleModelValue : ruleModelValues) {
+    /** 未配置规则的奖品 */
+    public static final StrategyAwardRuleModelVO EMPTY = new StrategyAwardRuleModelVO(null, EMPTY_RULE_MODELS, EMPTY_RULE_MODELS, null);
+
+    /** 原始规则模型 */
+    private final String ruleModels;
+    /** 抽奖中规则；按配置顺序 */
+    private final String[] centerRuleModels;
+    /** 抽奖后规则；按配置顺序 */
+    private final String[] afterRuleModels;
+    /** 抽奖后规则树ID；未配置时为 null */
+    private final Integer treeId;
+
+    public static StrategyAwardRuleModelVO create(String ruleModels) {
+        return create(ruleModels, null);
+    }
+
+    public static StrategyAwardRuleModelVO create(String ruleModels, Integer treeId) {
+        if (StringUtils.isBlank(ruleModels) && null == treeId) return EMPTY;
+        if (StringUtils.isBlank(ruleModels)) return new StrategyAwardRuleModelVO(ruleModels, EMPTY_RULE_MODELS, EMPTY_RULE_MODELS, treeId);
+        List<String> centerRuleModels = new ArrayList<>();
+        List<String> afterRuleModels = new ArrayList<>();
+        for (String ruleModelValue : ruleModels.split(Constants.SPLIT)) {
             if (DefaultLogicFactory.LogicModel.isCenter(ruleModelValue)) {
-                ruleModelList.add(ruleModelValue);
+                centerRuleModels.add(ruleModelValue);
+            } else if (DefaultLogicFactory.LogicModel.isAfter(ruleModelValue)) {
+                afterRuleModels.add(ruleModelValue);
             }
         }
-        return ruleModelList.toArray(new String[0]);
+        return new StrategyAwardRuleModelVO(ruleModels, centerRuleModels.toArray(EMPTY_RULE_MODELS), afterRuleModels.toArray(EMPTY_RULE_MODELS), treeId);
+    }
+
+    /**
+     * 获取抽奖中规则；调用方不可修改返回的数组
+     */
+    public String[] raffleCenterRuleModelList() {
+        return centerRuleModels;
     }
 
+    /**
+     * 获取抽奖后规则；调用方不可修改返回的数组
+     */
     public String[] raffleAfterRuleModelList() {
-        List<String> ruleModelList = new ArrayList<>();
-        String[] ruleModelValues = ruleModels.split(Constants.SPLIT);
-        for (String ruleModelValue : ruleModelValues) {
-            if (DefaultLogicFactory.LogicModel.isAfter(ruleModelValue)) {
-                ruleModelList.add(ruleModelValue);
-            }
-        }
-        return ruleModelList.toArray(new String[0]);
+        return afterRuleModels;
     }
 
 }
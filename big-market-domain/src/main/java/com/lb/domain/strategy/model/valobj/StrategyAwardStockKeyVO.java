@@ -0,0 +1,24 @@
+package com.lb.domain.strategy.model.valobj;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 策略奖品库存扣减记录；Redis 扣减成功后写入队列，由任务异步同步到库表
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StrategyAwardStockKeyVO {
+
+    /** 抽奖策略ID */
+    private Long strategyId;
+    /** 抽奖奖品ID */
+    private Integer awardId;
+    /** 扣减数量；租约库存本地合并后的数量，为空时为 1 */
+    private Integer count;
+
+}
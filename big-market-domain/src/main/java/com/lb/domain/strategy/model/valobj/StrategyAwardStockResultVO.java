@@ -0,0 +1,21 @@
+package com.lb.domain.strategy.model.valobj;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 奖品库存扣减结果值对象；由扣减本身判定是否售罄，不再单独查询剩余库存
+ */
+@Getter
+@AllArgsConstructor
+public enum StrategyAwardStockResultVO {
+
+    SUCCESS("success", "扣减成功"),
+    FAILED("failed", "扣减失败；库存值加锁失败，或其他节点仍持有租约库存，不是售罄"),
+    SOLD_OUT("sold_out", "库存耗尽；全部分段的库存均已扣减到 0"),
+    ;
+
+    private final String code;
+    private final String info;
+
+}
@@ -0,0 +1,112 @@
+package com.lb.domain.strategy.model.valobj;
+
+import com.google.common.math.LongMath;
+import com.lb.domain.strategy.model.entity.StrategyAwardEntity;
+import com.lb.types.enums.ResponseCode;
+import com.lb.types.exception.AppException;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 策略奖品占位值对象；概率查找表中每个奖品的占位数量，占位越多等于概率越高
+ */
+@Getter
+@Builder
+@AllArgsConstructor
+public class StrategyRateSlotsVO {
+
+    /** 概率值定点精度上限；10^18 仍在 long 范围内 */
+    private static final int MAX_RATE_SCALE = 18;
+
+    /** 概率范围；ceil(概率总和 / 最小概率) */
+    private final long rateRange;
+    /** 奖品ID */
+    private final int[] awardIds;
+    /** 奖品占位数量；ceil(rateRange * 概率) */
+    private final int[] slots;
+    /** 查找表大小；占位数量之和 */
+    private final long tableSize;
+
+    /**
+     * 相对当前占位的变化量
+     *
+     * @param current 当前占位
+     * @return key 为奖品ID，value 为占位变化量；不含无变化的奖品
+     */
+    public Map<Integer, Integer> delta(StrategyRateSlotsVO current) {
+        Map<Integer, Integer> delta = new HashMap<>();
+        for (int i = 0; i < current.awardIds.length; i++) {
+            delta.merge(current.awardIds[i], -current.slots[i], Integer::sum);
+        }
+        for (int i = 0; i < awardIds.length; i++) {
+            delta.merge(awardIds[i], slots[i], Integer::sum);
+        }
+        delta.values().removeIf(value -> 0 == value);
+        return delta;
+    }
+
+    /**
+     * 计算奖品占位；概率值转为统一精度的定点整数计算，不存在浮点误差
+     *
+     * @param key                   策略装配 key
+     * @param strategyAwardEntities 策略奖品列表
+     * @param maxTableSize          查找表大小上限
+     * @return 奖品占位
+     */
+    public static StrategyRateSlotsVO create(String key, List<StrategyAwardEntity> strategyAwardEntities, long maxTableSize) {
+        int n = strategyAwardEntities.size();
+
+        // 1. 概率值转为统一精度的定点整数，如 0.0001 精度下 0.3 -> 3000
+        int scale = 0;
+        for (StrategyAwardEntity strategyAward : strategyAwardEntities) {
+            scale = Math.max(scale, strategyAward.getAwardRate().stripTrailingZeros().scale());
+        }
+        if (scale > MAX_RATE_SCALE) {
+            throw new AppException(ResponseCode.ILLEGAL_PARAMETER.getCode(), "策略奖品概率精度超出范围 key: " + key + " scale: " + scale);
+        }
+        long unit = LongMath.pow(10, scale);
+        int[] awardIds = new int[n];
+        long[] rates = new long[n];
+        long minAwardRate = Long.MAX_VALUE;
+        long totalAwardRate = 0;
+        for (int i = 0; i < n; i++) {
+            StrategyAwardEntity strategyAward = strategyAwardEntities.get(i);
+            awardIds[i] = strategyAward.getAwardId();
+            rates[i] = strategyAward.getAwardRate().setScale(scale).unscaledValue().longValueExact();
+            if (rates[i] <= 0) {
+                throw new AppException(ResponseCode.ILLEGAL_PARAMETER.getCode(), "策略奖品概率必须大于0 key: " + key);
+            }
+            minAwardRate = Math.min(minAwardRate, rates[i]);
+            totalAwardRate = LongMath.checkedAdd(totalAwardRate, rates[i]);
+        }
+
+        // 2. 用 1 % 0.0001 获得概率范围，百分位、千分位、万分位；ceil(总和 / 最小值)
+        long rateRange = LongMath.divide(totalAwardRate, minAwardRate, RoundingMode.CEILING);
+
+        // 3. 计算每个奖品在查找表中的占位数量 ceil(rateRange * rate)，并在分配前校验查找表大小
+        int[] slots = new int[n];
+        long tableSize = 0;
+        for (int i = 0; i < n; i++) {
+            long slot = LongMath.divide(LongMath.checkedMultiply(rateRange, rates[i]), unit, RoundingMode.CEILING);
+            tableSize += slot;
+            if (tableSize > Math.min(maxTableSize, Integer.MAX_VALUE)) {
+                throw new AppException(ResponseCode.STRATEGY_RATE_TABLE_TOO_LARGE.getCode(), ResponseCode.STRATEGY_RATE_TABLE_TOO_LARGE.getInfo() + " key: " + key + " maxSize: " + maxTableSize);
+            }
+            slots[i] = (int) slot;
+        }
+
+        return StrategyRateSlotsVO.builder()
+                .rateRange(rateRange)
+                .awardIds(awardIds)
+                .slots(slots)
+                .tableSize(tableSize)
+                .build();
+    }
+
+}
@@ -0,0 +1,139 @@
+package com.lb.domain.strategy.model.valobj;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 策略概率查找表增量补丁值对象；按奖品占位变化量修改已乱序的查找表，只改动必要的概率值
+ * 1. 占位减少的奖品，从其所在位置中随机选出待移除的位置
+ * 2. 占位增加的奖品优先填入待移除的位置
+ * 3. 仍有新增时追加到表尾，并与随机位置交换，等同 Fisher–Yates 的一步
+ * 4. 仍有待移除的位置时，由表尾元素补位后缩短表
+ */
+@Getter
+@Builder
+@AllArgsConstructor
+public class StrategyRateTablePatchVO {
+
+    /** 补丁后的概率查找表 */
+    private final int[] rateTable;
+    /** 发生变化的概率值；升序 */
+    private final int[] changedRateKeys;
+
+    /**
+     * 生成补丁
+     *
+     * @param rateTable 当前概率查找表；会被原地修改
+     * @param delta     奖品占位变化量；key 为奖品ID
+     * @return 补丁
+     */
+    public static StrategyRateTablePatchVO create(int[] rateTable, Map<Integer, Integer> delta) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        // 1. 蓄水池抽样，为每个占位减少的奖品随机选出待移除的位置
+        Map<Integer, int[]> removeReservoirs = new HashMap<>();
+        Map<Integer, Integer> seenCounts = new HashMap<>();
+        for (Map.Entry<Integer, Integer> entry : delta.entrySet()) {
+            if (entry.getValue() < 0) {
+                removeReservoirs.put(entry.getKey(), new int[-entry.getValue()]);
+                seenCounts.put(entry.getKey(), 0);
+            }
+        }
+        if (!removeReservoirs.isEmpty()) {
+            for (int i = 0; i < rateTable.length; i++) {
+                int[] reservoir = removeReservoirs.get(rateTable[i]);
+                if (null == reservoir) continue;
+                int seen = seenCounts.merge(rateTable[i], 1, Integer::sum);
+                if (seen <= reservoir.length) {
+                    reservoir[seen - 1] = i;
+                } else {
+                    int j = random.nextInt(seen);
+                    if (j < reservoir.length) reservoir[j] = i;
+                }
+            }
+        }
+        int holeCount = 0;
+        for (Map.Entry<Integer, int[]> entry : removeReservoirs.entrySet()) {
+            if (seenCounts.get(entry.getKey()) < entry.getValue().length) {
+                throw new IllegalArgumentException("rate table patch award " + entry.getKey() + " slots not enough");
+            }
+            holeCount += entry.getValue().length;
+        }
+        int[] holes = new int[holeCount];
+        int h = 0;
+        for (int[] reservoir : removeReservoirs.values()) {
+            System.arraycopy(reservoir, 0, holes, h, reservoir.length);
+            h += reservoir.length;
+        }
+
+        // 2. 待新增的奖品
+        int addCount = 0;
+        for (int value : delta.values()) {
+            if (value > 0) addCount += value;
+        }
+        int[] additions = new int[addCount];
+        int a = 0;
+        for (Map.Entry<Integer, Integer> entry : delta.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                additions[a++] = entry.getKey();
+            }
+        }
+
+        // 3. 新增奖品填入随机选出的待移除位置
+        int originalLength = rateTable.length;
+        Map<Integer, Integer> originals = new HashMap<>();
+        int filled = Math.min(holeCount, addCount);
+        for (int i = 0; i < filled; i++) {
+            set(rateTable, holes[i], additions[i], originalLength, originals);
+        }
+
+        int size = rateTable.length;
+        if (addCount > holeCount) {
+            // 4. 追加到表尾，并与 [0, size] 内的随机位置交换
+            rateTable = Arrays.copyOf(rateTable, rateTable.length + addCount - holeCount);
+            for (int i = filled; i < addCount; i++) {
+                int j = random.nextInt(size + 1);
+                rateTable[size] = rateTable[j];
+                set(rateTable, j, additions[i], originalLength, originals);
+                size++;
+            }
+        } else if (holeCount > addCount) {
+            // 5. 按位置降序移除，表尾元素补位
+            int[] remains = Arrays.copyOfRange(holes, filled, holeCount);
+            Arrays.sort(remains);
+            for (int i = remains.length - 1; i >= 0; i--) {
+                int last = --size;
+                if (remains[i] != last) {
+                    set(rateTable, remains[i], rateTable[last], originalLength, originals);
+                }
+            }
+            rateTable = Arrays.copyOf(rateTable, size);
+        }
+
+        // 6. 变化的概率值；与原值不同的位置，以及追加的位置；交换后恢复原值、或被截断的位置不计入
+        BitSet changed = new BitSet();
+        for (Map.Entry<Integer, Integer> entry : originals.entrySet()) {
+            int rateKey = entry.getKey();
+            if (rateKey < size && rateTable[rateKey] != entry.getValue()) changed.set(rateKey);
+        }
+        if (size > originalLength) changed.set(originalLength, size);
+
+        return StrategyRateTablePatchVO.builder()
+                .rateTable(rateTable)
+                .changedRateKeys(changed.stream().toArray())
+                .build();
+    }
+
+    /**
+     * 修改概率值；原表范围内的位置首次修改时记录原值
+     */
+    private static void set(int[] rateTable, int rateKey, int awardId, int originalLength, Map<Integer, Integer> originals) {
+        if (rateKey < originalLength) originals.putIfAbsent(rateKey, rateTable[rateKey]);
+        rateTable[rateKey] = awardId;
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.lb.domain.strategy.model.valobj;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * 策略概率表本地快照值对象；Redis 中共享概率表的只读副本。
+ * 概率表按奖品概率配置的内容摘要寻址，相同 tableId 的内容不可变，奖品概率相同的装配 key 共用同一快照
+ */
+@Getter
+@Builder
+@AllArgsConstructor
+public class StrategyRateTableVO {
+
+    /** 共享概率表ID；装配模式与奖品概率配置的内容摘要 */
+    private final String tableId;
+    /** 概率查找表；下标为概率值，值为奖品ID【概率查找表模式】 */
+    private final int[] rateTable;
+    /** 别名表【别名表模式】 */
+    private final StrategyAwardAliasTableVO aliasTable;
+
+    public boolean isAlias() {
+        return null != aliasTable;
+    }
+
+    public int rateRange() {
+        return rateTable.length;
+    }
+
+    public Integer getAwardId(int rateKey) {
+        return rateTable[rateKey];
+    }
+
+    /**
+     * 本地快照占用的内存估算（字节），用于本地缓存容量控制
+     */
+    public int weight() {
+        if (isAlias()) return 64 + aliasTable.columnCount() * 12;
+        return 64 + rateTable.length * 4;
+    }
+
+}
@@ -3,10 +3,15 @@ package com.lb.domain.strategy.repository;
 import com.lb.domain.strategy.model.entity.StrategyAwardEntity;
 import com.lb.domain.strategy.model.entity.StrategyEntity;
 import com.lb.domain.strategy.model.entity.StrategyRuleEntity;
+import com.lb.domain.strategy.model.valobj.RuleTreeVO;
+import com.lb.domain.strategy.model.valobj.RuleWeightVO;
+import com.lb.domain.strategy.model.valobj.StrategyAwardAliasTableVO;
 import com.lb.domain.strategy.model.valobj.StrategyAwardRuleModelVO;
+import com.lb.domain.strategy.model.valobj.StrategyAwardStockKeyVO;
+import com.lb.domain.strategy.model.valobj.StrategyAwardStockResultVO;
+import com.lb.domain.strategy.model.valobj.StrategyRateTableVO;
 
 import java.util.List;
-import java.util.Map;
 
 /**
  * 策略仓储接口
@@ -15,13 +20,115 @@ public interface IStrategyRepository {
 
     List<StrategyAwardEntity> queryStrategyAwardList(Long strategyId);
 
-    void storeStrategyAwardSearchRateTable(String key, Integer rateRange, Map<Integer, Integer> strategyAwardSearchRateTable);
+    /**
+     * 清除奖品缓存并从库中重新加载
+     *
+     * @param strategyId 策略ID
+     * @return 策略奖品列表
+     */
+    List<StrategyAwardEntity> refreshStrategyAwardList(Long strategyId);
+
+    List<Long> queryActiveStrategyIdList();
+
+    /**
+     * 共享概率表是否存在
+     *
+     * @param tableId 共享概率表ID；装配模式与奖品概率配置的内容摘要
+     * @return 存在返回 true
+     */
+    boolean existStrategyRateTableById(String tableId);
+
+    /**
+     * 存储共享概率查找表；相同 tableId 已存在时不重复写入
+     *
+     * @param tableId                      共享概率表ID
+     * @param strategyAwardSearchRateTable 下标为概率值，值为奖品ID；长度即为概率范围
+     */
+    void storeStrategyAwardSearchRateTable(String tableId, int[] strategyAwardSearchRateTable);
+
+    void storeStrategyAwardAliasTable(String tableId, StrategyAwardAliasTableVO strategyAwardAliasTable);
+
+    /**
+     * 基于当前共享概率表增量写入新的共享概率表；只写入变化的概率值，奖品字典变化时全量写入
+     *
+     * @param currentTableId               补丁基于的共享概率表ID
+     * @param tableId                      补丁后的共享概率表ID
+     * @param strategyAwardSearchRateTable 补丁后的概率查找表
+     * @param changedRateKeys              发生变化的概率值；升序
+     */
+    void patchStrategyAwardSearchRateTable(String currentTableId, String tableId, int[] strategyAwardSearchRateTable, int[] changedRateKeys);
+
+    /**
+     * 装配 key 指向共享概率表；维护共享概率表的引用，不再被引用的旧表延迟清理
+     *
+     * @param key     策略装配 key
+     * @param tableId 共享概率表ID
+     * @return 共享概率表已被清理时返回 false
+     */
+    boolean linkStrategyRateTable(String key, String tableId);
 
     Integer getStrategyAwardAssemble(String key, Integer rateKey);
 
+    /**
+     * 单次往返抽奖；指针在本地短时缓存，由 Redis 脚本读取指向的概率表，并按概率范围换算随机值
+     *
+     * @param key         策略装配 key
+     * @param random      随机值 [0, 1)
+     * @param aliasRandom 别名表列内随机值 [0, 1)；概率查找表模式不使用
+     * @return 奖品ID；未装配时返回 null
+     */
+    Integer getStrategyAwardAssemble(String key, double random, double aliasRandom);
+
     int getRateRange(Long strategyId);
 
-    int getRateRange(String key);
+    Integer getRateRange(String key);
+
+    StrategyAwardAliasTableVO getStrategyAwardAliasTable(String key);
+
+    /**
+     * 查询策略概率表本地快照
+     *
+     * @param key 策略装配 key
+     * @return 本地快照；未开启本地缓存或未装配时返回 null
+     */
+    StrategyRateTableVO queryStrategyRateTable(String key);
+
+    /**
+     * 从 Redis 加载装配 key 当前指向的共享概率表
+     *
+     * @param key 策略装配 key
+     * @return 概率表；未装配时返回 null
+     */
+    StrategyRateTableVO loadStrategyRateTable(String key);
+
+    /**
+     * 策略装配 key 是否已装配
+     *
+     * @param key 策略装配 key
+     * @return 已装配返回 true
+     */
+    boolean existStrategyRateTable(String key);
+
+    /**
+     * 获取策略装配锁；集群内同一策略同时只有一个节点装配
+     *
+     * @param strategyId 策略ID
+     * @param waitTime   等待时间（毫秒）
+     * @return 获取成功返回 true
+     */
+    boolean tryLockStrategyAssemble(Long strategyId, long waitTime);
+
+    void unlockStrategyAssemble(Long strategyId);
+
+    /**
+     * 查询策略装配完成标记；装配配置的摘要，用于判断其他节点是否已按相同配置完成装配
+     *
+     * @param strategyId 策略ID
+     * @return 装配完成标记；未装配时返回 null
+     */
+    String queryStrategyAssembleMarker(Long strategyId);
+
+    void storeStrategyAssembleMarker(Long strategyId, String assembleMarker);
 
     StrategyEntity queryStrategyEntityByStrategyId(Long strategyId);
 
@@ -31,5 +138,183 @@ public interface IStrategyRepository {
 
     String queryStrategyRuleValue(Long strategyId, Integer awardId, String ruleModel);
 
+    /**
+     * 查询预编译的权重规则；按策略缓存，规则值变化后在刷新间隔内生效
+     *
+     * @param strategyId 策略ID
+     * @return 权重规则；未配置时阈值为空
+     */
+    RuleWeightVO queryRuleWeight(Long strategyId);
+
+    /**
+     * 查询黑名单用户对应的奖品ID；黑名单按策略建立索引，不访问数据库
+     *
+     * @param strategyId 策略ID
+     * @param userId     用户ID
+     * @return 奖品ID；用户不在黑名单中返回 null
+     */
+    Integer queryRuleBlacklistAwardId(Long strategyId, String userId);
+
+    /**
+     * 查询奖品配置的规则；按策略建立奖品规则索引，不访问数据库
+     *
+     * @param strategyId 策略ID
+     * @param awardId    奖品ID
+     * @return 规则值对象；奖品未配置规则时返回 {@link StrategyAwardRuleModelVO#EMPTY}
+     */
     StrategyAwardRuleModelVO queryStrategyAwardRuleModelVO(Long strategyId, Integer awardId);
+
+    /**
+     * 查询规则树；本地缓存 -> Redis -> 库表，奖品的规则树ID通过 {@link StrategyAwardRuleModelVO#getTreeId()} 获取
+     *
+     * @param treeId 规则树ID
+     * @return 规则树；未配置时返回 null
+     */
+    RuleTreeVO queryRuleTreeVOByTreeId(Integer treeId);
+
+    /**
+     * 预加载奖品库存；库存计数已存在时不覆盖，重复装配不会恢复已扣减的库存
+     * 分段库存均分到各分段计数，分段数变更后需清理原有库存计数
+     *
+     * @param cacheKey   库存 key
+     * @param awardCount 库存剩余
+     * @param segments   库存分段数；不大于 1 时不分段
+     */
+    void cacheStrategyAwardCount(String cacheKey, Integer awardCount, int segments);
+
+    /**
+     * 扣减奖品库存；原子自减后对扣减后的库存值加锁，库存计数被重置时同一库存值不会重复发放
+     * 分段库存按用户散列选择分段，分段耗尽时依次尝试其余分段
+     *
+     * @param cacheKey 库存 key
+     * @param segments 库存分段数
+     * @param userId   用户ID；为空时随机选择分段
+     * @return 扣减结果；全部分段均已耗尽时为售罄
+     */
+    StrategyAwardStockResultVO subtractionAwardStock(String cacheKey, int segments, String userId);
+
+    /**
+     * 扣减租约库存；本节点从 Redis 一次领取一段库存，本地扣减，用完后再领取
+     *
+     * @param cacheKey 库存 key
+     * @param segments 库存分段数
+     * @return 扣减结果；库存耗尽且其他节点未持有租约库存时为售罄
+     */
+    StrategyAwardStockResultVO subtractionLeasedAwardStock(String cacheKey, int segments);
+
+    /**
+     * 查询奖品库存剩余；分段库存为各分段之和
+     *
+     * @param cacheKey 库存 key
+     * @param segments 库存分段数
+     * @return 库存剩余
+     */
+    long queryAwardStockSurplus(String cacheKey, int segments);
+
+    /**
+     * 回收心跳过期节点的租约库存；节点宕机时其租约库存归还 Redis
+     *
+     * @return 回收的库存数量
+     */
+    long reclaimAwardStockLease();
+
+    /**
+     * 查询奖品库存分段数；从奖品规则索引获取，不访问数据库
+     *
+     * @param strategyId 策略ID
+     * @param awardId    奖品ID
+     * @return 库存分段数；未配置时为 1
+     */
+    int queryStrategyAwardStockSegments(Long strategyId, Integer awardId);
+
+    /**
+     * 查询奖品是否使用库存租约；从奖品规则索引获取，不访问数据库
+     *
+     * @param strategyId 策略ID
+     * @param awardId    奖品ID
+     * @return 是否使用库存租约
+     */
+    boolean queryStrategyAwardStockLease(Long strategyId, Integer awardId);
+
+    /**
+     * 查询奖品是否已售罄；本节点的售罄标记，不访问 Redis
+     *
+     * @param strategyId 策略ID
+     * @param awardId    奖品ID
+     * @return 是否已售罄
+     */
+    boolean queryAwardStockSoldOut(Long strategyId, Integer awardId);
+
+    /**
+     * 标记奖品售罄；并通知集群内其他节点
+     *
+     * @param strategyId 策略ID
+     * @param awardId    奖品ID
+     */
+    void awardStockSoldOut(Long strategyId, Integer awardId);
+
+    /**
+     * 库存扣减记录写入延迟队列；租约库存在本地合并后定时写入
+     *
+     * @param strategyAwardStockKeyVO 扣减记录
+     */
+    void awardStockConsumeSendQueue(StrategyAwardStockKeyVO strategyAwardStockKeyVO);
+
+    /**
+     * 批量获取库存扣减记录
+     *
+     * @param batchSize 最大条数
+     * @return 扣减记录；队列为空时返回空集合
+     */
+    List<StrategyAwardStockKeyVO> takeQueueValue(int batchSize);
+
+    /**
+     * 批量更新库表库存；相同奖品的扣减记录合并为一次更新
+     *
+     * @param strategyAwardStockKeyVOS 扣减记录
+     */
+    void updateStrategyAwardStock(List<StrategyAwardStockKeyVO> strategyAwardStockKeyVOS);
+
+    /**
+     * 查询策略是否配置了次数锁；从奖品规则索引获取，未配置的策略不累加用户抽奖次数
+     *
+     * @param strategyId 策略ID
+     * @return 是否配置了次数锁
+     */
+    boolean queryStrategyRuleLock(Long strategyId);
+
+    /**
+     * 查询奖品的次数锁；从奖品规则索引获取，不访问数据库
+     *
+     * @param strategyId 策略ID
+     * @param awardId    奖品ID
+     * @return 解锁所需的抽奖次数；未配置时为 null
+     */
+    Long queryStrategyAwardRuleLockCount(Long strategyId, Integer awardId);
+
+    /**
+     * 累加用户抽奖次数；一次 Redis 调用，累加后的次数写入本地缓存
+     *
+     * @param userId     用户ID
+     * @param strategyId 策略ID
+     * @return 累加后的抽奖次数
+     */
+    long addUserRaffleCount(String userId, Long strategyId);
+
+    /**
+     * 查询用户已完成的抽奖次数；优先本地缓存，其次 Redis，最后库表
+     *
+     * @param userId     用户ID
+     * @param strategyId 策略ID
+     * @return 抽奖次数
+     */
+    long queryUserRaffleCount(String userId, Long strategyId);
+
+    /**
+     * 批量写入变更的用户抽奖次数到库表
+     *
+     * @param batchSize 单批最大条数
+     * @return 取出的变更条数
+     */
+    int updateUserRaffleCount(int batchSize);
 }
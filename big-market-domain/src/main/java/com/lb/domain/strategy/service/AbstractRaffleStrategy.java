@@ -9,6 +9,7 @@ import com.lb.domain.strategy.repository.IStrategyRepository;
 import com.lb.domain.strategy.service.armory.IStrategyDispatch;
 import com.lb.domain.strategy.service.rule.chain.ILogicChain;
 import com.lb.domain.strategy.service.rule.chain.factory.DefaultChainFactory;
+import com.lb.domain.strategy.service.rule.tree.factory.DefaultTreeFactory;
 import com.lb.types.enums.ResponseCode;
 import com.lb.types.exception.AppException;
 import lombok.extern.slf4j.Slf4j;
@@ -60,23 +61,45 @@ public abstract class AbstractRaffleStrategy implements IRaffleStrategy {
         ILogicChain iLogicChain = defaultChainFactory.openLogicChain(strategyId);
 
         // 3. 通过责任链获得，奖品ID
-        Integer awardId = iLogicChain.logic(userId, strategyId);
+        long userScore = null == raffleFactorEntity.getUserScore() ? 0L : raffleFactorEntity.getUserScore();
+        Integer awardId = iLogicChain.logic(userId, strategyId, userScore);
 
         // 4. 查询奖品规则「抽奖中（拿到奖品ID时，过滤规则）、抽奖后（扣减完奖品库存后过滤，抽奖中拦截和无库存则走兜底）」
         StrategyAwardRuleModelVO strategyAwardRuleModelVO = strategyRepository.queryStrategyAwardRuleModelVO(strategyId, awardId);
 
-        // 5. 抽奖中 - 规则过滤
-        RuleActionEntity<RuleActionEntity.RaffleCenterEntity> ruleActionCenterEntity = this.doCheckRaffleCenterLogic(RaffleFactorEntity.builder()
-                .userId(userId)
-                .strategyId(strategyId)
-                .awardId(awardId)
-                .build(), strategyAwardRuleModelVO.raffleCenterRuleModelList());
-
-        if (RuleLogicCheckTypeVO.TAKE_OVER.getCode().equals(ruleActionCenterEntity.getCode())) {
-            log.info("【临时日志】中奖中规则拦截，通过抽奖后规则 rule_luck_award 走兜底奖励。");
-            return RaffleAwardEntity.builder()
-                    .awardDesc("中奖中规则拦截，通过抽奖后规则 rule_luck_award 走兜底奖励。")
-                    .build();
+        // 5. 累加用户抽奖次数；仅配置了次数锁的策略累加，一次 Redis 调用，累加前的次数供本次抽奖的次数锁规则共用
+        Long userRaffleCount = strategyRepository.queryStrategyRuleLock(strategyId)
+                ? strategyRepository.addUserRaffleCount(userId, strategyId) - 1
+                : null;
+
+        // 6. 售罄快速失败；本节点已标记售罄的奖品跳过抽奖中规则，直接进入规则树，由库存节点按售罄标记转入兜底奖励，不访问 Redis
+        Integer treeId = strategyAwardRuleModelVO.getTreeId();
+        if (null == treeId || !strategyRepository.queryAwardStockSoldOut(strategyId, awardId)) {
+            // 7. 抽奖中 - 规则过滤
+            RuleActionEntity<RuleActionEntity.RaffleCenterEntity> ruleActionCenterEntity = this.doCheckRaffleCenterLogic(RaffleFactorEntity.builder()
+                    .userId(userId)
+                    .strategyId(strategyId)
+                    .awardId(awardId)
+                    .userRaffleCount(userRaffleCount)
+                    .build(), strategyAwardRuleModelVO.raffleCenterRuleModelList());
+
+            if (RuleLogicCheckTypeVO.TAKE_OVER.getCode().equals(ruleActionCenterEntity.getCode())) {
+                log.info("【临时日志】中奖中规则拦截，通过抽奖后规则 rule_luck_award 走兜底奖励。");
+                return RaffleAwardEntity.builder()
+                        .awardDesc("中奖中规则拦截，通过抽奖后规则 rule_luck_award 走兜底奖励。")
+                        .build();
+            }
+        }
+
+        // 8. 抽奖后 - 规则树「库存扣减、库存不足走兜底奖励」；未配置规则树的奖品直接返回
+        if (null != treeId) {
+            DefaultTreeFactory.StrategyAwardData strategyAwardData = this.raffleLogicTree(userId, strategyId, awardId, treeId);
+            if (null != strategyAwardData) {
+                return RaffleAwardEntity.builder()
+                        .awardId(strategyAwardData.getAwardId())
+                        .awardConfig(strategyAwardData.getAwardRuleValue())
+                        .build();
+            }
         }
 
         return RaffleAwardEntity.builder()
@@ -86,4 +109,6 @@ public abstract class AbstractRaffleStrategy implements IRaffleStrategy {
 
     protected abstract RuleActionEntity<RuleActionEntity.RaffleCenterEntity> doCheckRaffleCenterLogic(RaffleFactorEntity raffleFactorEntity, String... logics);
 
+    protected abstract DefaultTreeFactory.StrategyAwardData raffleLogicTree(String userId, Long strategyId, Integer awardId, Integer treeId);
+
 }
@@ -0,0 +1,34 @@
+package com.lb.domain.strategy.service;
+
+import com.lb.domain.strategy.model.valobj.StrategyAwardStockKeyVO;
+
+import java.util.List;
+
+/**
+ * 抽奖库存相关服务，获取库存消耗队列
+ */
+public interface IRaffleStock {
+
+    /**
+     * 批量获取奖品库存消耗队列
+     *
+     * @param batchSize 最大条数
+     * @return 奖品库存 Key 信息
+     */
+    List<StrategyAwardStockKeyVO> takeQueueValue(int batchSize);
+
+    /**
+     * 批量更新奖品库存消耗记录
+     *
+     * @param strategyAwardStockKeyVOS 奖品库存 Key 信息
+     */
+    void updateStrategyAwardStock(List<StrategyAwardStockKeyVO> strategyAwardStockKeyVOS);
+
+    /**
+     * 回收宕机节点持有的奖品库存租约
+     *
+     * @return 回收的库存数量
+     */
+    long reclaimAwardStockLease();
+
+}
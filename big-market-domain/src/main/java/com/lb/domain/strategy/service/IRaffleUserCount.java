@@ -0,0 +1,16 @@
+package com.lb.domain.strategy.service;
+
+/**
+ * 用户抽奖次数相关服务，同步抽奖次数到库表
+ */
+public interface IRaffleUserCount {
+
+    /**
+     * 批量写入变更的用户抽奖次数
+     *
+     * @param batchSize 单批最大条数
+     * @return 取出的变更条数；小于单批最大条数时已无积压
+     */
+    int updateUserRaffleCount(int batchSize);
+
+}
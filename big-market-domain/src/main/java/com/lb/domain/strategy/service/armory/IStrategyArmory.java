@@ -1,5 +1,9 @@
 package com.lb.domain.strategy.service.armory;
 
+import com.lb.domain.strategy.model.valobj.StrategyAssembleModeVO;
+
+import java.util.List;
+
 public interface IStrategyArmory {
 
     /**
@@ -10,4 +14,36 @@ public interface IStrategyArmory {
      */
     boolean assembleLotteryStrategy(Long strategyId);
 
+    /**
+     * 按指定模式装配抽奖策略配置；长尾小概率奖品的策略建议使用 ALIAS 别名表模式，避免生成超大概率查找表
+     *
+     * @param strategyId   策略ID
+     * @param assembleMode 装配模式
+     * @return 装配结果
+     */
+    boolean assembleLotteryStrategy(Long strategyId, StrategyAssembleModeVO assembleMode);
+
+    /**
+     * 增量装配；奖品概率或奖品变更后，只改动受影响的概率值，概率范围变化或无法增量时全量装配
+     *
+     * @param strategyId 策略ID
+     * @return 装配结果
+     */
+    boolean reassembleLotteryStrategy(Long strategyId);
+
+    /**
+     * 查询需要预热的策略ID；已配置奖品的策略
+     *
+     * @return 策略ID
+     */
+    List<Long> queryActiveStrategyIdList();
+
+    /**
+     * 预热抽奖策略；未装配时装配，并预加载策略、奖品缓存和概率表本地快照
+     *
+     * @param strategyId 策略ID
+     * @return 预热结果
+     */
+    boolean warmupLotteryStrategy(Long strategyId);
+
 }
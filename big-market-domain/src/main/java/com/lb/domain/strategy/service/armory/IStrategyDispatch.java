@@ -1,5 +1,8 @@
 package com.lb.domain.strategy.service.armory;
 
+/**
+ * 策略抽奖调度；按策略装配时选择的模式（概率查找表 / 别名表）获取随机奖品
+ */
 public interface IStrategyDispatch {
     /**
      * 获取抽奖策略装配的随机结果
@@ -24,4 +27,23 @@ public interface IStrategyDispatch {
      * @return 抽奖结果
      */
     Integer getRandomAwardId(String key);
+
+    /**
+     * 扣减奖品库存；分段库存按用户选择分段
+     *
+     * @param userId     用户ID
+     * @param strategyId 策略ID
+     * @param awardId    奖品ID
+     * @return 扣减结果
+     */
+    Boolean subtractionAwardStock(String userId, Long strategyId, Integer awardId);
+
+    /**
+     * 查询奖品库存剩余；分段库存为各分段之和
+     *
+     * @param strategyId 策略ID
+     * @param awardId    奖品ID
+     * @return 库存剩余
+     */
+    long queryAwardStockSurplus(Long strategyId, Integer awardId);
 }
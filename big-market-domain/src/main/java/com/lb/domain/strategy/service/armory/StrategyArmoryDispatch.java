@@ -3,18 +3,27 @@ package com.lb.domain.strategy.service.armory;
 import com.lb.domain.strategy.model.entity.StrategyAwardEntity;
 import com.lb.domain.strategy.model.entity.StrategyEntity;
 import com.lb.domain.strategy.model.entity.StrategyRuleEntity;
+import com.lb.domain.strategy.model.valobj.StrategyAssembleModeVO;
+import com.lb.domain.strategy.model.valobj.StrategyAwardAliasTableVO;
+import com.lb.domain.strategy.model.valobj.StrategyAwardStockResultVO;
+import com.lb.domain.strategy.model.valobj.StrategyRateSlotsVO;
+import com.lb.domain.strategy.model.valobj.StrategyRateTablePatchVO;
+import com.lb.domain.strategy.model.valobj.StrategyRateTableVO;
 import com.lb.domain.strategy.repository.IStrategyRepository;
+import com.lb.domain.strategy.service.armory.random.IRandomSource;
+import com.lb.domain.strategy.service.armory.random.factory.DefaultRandomSourceFactory;
 import com.lb.types.common.Constants;
 import com.lb.types.enums.ResponseCode;
 import com.lb.types.exception.AppException;
+import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.security.SecureRandom;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * 策略装配库，负责初始化策略计算
@@ -26,16 +35,178 @@ public class StrategyArmoryDispatch implements IStrategyArmory, IStrategyDispatc
     @Resource
     private IStrategyRepository strategyRepository;
 
+    @Resource
+    private ThreadPoolExecutor threadPoolExecutor;
+
+    @Resource
+    private DefaultRandomSourceFactory randomSourceFactory;
+
+    /** 懒装配中的策略；key 为策略ID */
+    private final Map<Long, CompletableFuture<Boolean>> lazyAssembleFutures = new ConcurrentHashMap<>();
+
+    /** 是否并行装配基础表和各权重表 */
+    @Value("${strategy.armory.parallel.enabled:true}")
+    private boolean assembleParallelEnabled;
+    /** 并行装配等待超时（毫秒） */
+    @Value("${strategy.armory.parallel.timeout:60000}")
+    private long assembleParallelTimeout;
+    /** 概率查找表最大条目数；每条目 4 字节，默认 16M 条目约 64M 内存 */
+    @Value("${strategy.armory.max-rate-table-size:16777216}")
+    private long maxRateTableSize;
+    /** 集群装配锁等待时间（毫秒）；应大于单个策略的装配耗时 */
+    @Value("${strategy.armory.lock-wait-time:60000}")
+    private long assembleLockWaitTime;
+    /** 是否在首次抽奖时装配未装配的策略 */
+    @Value("${strategy.armory.lazy.enabled:true}")
+    private boolean lazyAssembleEnabled;
+    /** 懒装配等待超时（毫秒）；包括等待本机进行中的装配和集群装配锁 */
+    @Value("${strategy.armory.lazy.timeout:30000}")
+    private long lazyAssembleTimeout;
+    /** 未命中本地快照时，是否以单个 Redis 脚本完成抽奖；关闭时先读取概率范围再读取概率值 */
+    @Value("${strategy.dispatch.single-round-trip:true}")
+    private boolean singleRoundTripEnabled;
+
     @Override
     public boolean assembleLotteryStrategy(Long strategyId) {
+        return assembleLotteryStrategy(strategyId, StrategyAssembleModeVO.RATE_TABLE);
+    }
+
+    @Override
+    public boolean assembleLotteryStrategy(Long strategyId, StrategyAssembleModeVO assembleMode) {
         // 1. 查询策略配置
         List<StrategyAwardEntity> strategyAwardEntities = strategyRepository.queryStrategyAwardList(strategyId);
-        assembleLotteryStrategy(String.valueOf(strategyId), strategyAwardEntities);
+        if (null == strategyAwardEntities || strategyAwardEntities.isEmpty()) {
+            throw new AppException(ResponseCode.ILLEGAL_PARAMETER.getCode(), "策略未配置奖品 strategyId: " + strategyId);
+        }
+
+        // 预加载奖品库存；已存在时不覆盖。分段数与扣减、查询库存同取自奖品规则索引
+        for (StrategyAwardEntity strategyAwardEntity : strategyAwardEntities) {
+            int segments = strategyRepository.queryStrategyAwardStockSegments(strategyId, strategyAwardEntity.getAwardId());
+            strategyRepository.cacheStrategyAwardCount(awardCountKey(strategyId, strategyAwardEntity.getAwardId()), strategyAwardEntity.getAwardCountSurplus(), segments);
+        }
+
+        // 2. 按基础表和 rule_weight 权重分组
+        Map<String, List<StrategyAwardEntity>> assembleAwardEntitiesMap = groupStrategyAwardEntities(strategyId, strategyAwardEntities);
+
+        // 3. 装配完成标记与当前配置一致时，其他节点已完成装配，直接复用
+        String assembleMarker = assembleMarker(assembleAwardEntitiesMap, assembleMode);
+        if (isAssembled(strategyId, assembleMarker)) {
+            log.info("策略已由其他节点装配完成 strategyId: {}", strategyId);
+            return true;
+        }
+
+        // 4. 集群内同一策略只有一个节点装配；锁由看门狗续期，装配节点宕机后锁自动过期，由等待的节点接手装配
+        if (!strategyRepository.tryLockStrategyAssemble(strategyId, assembleLockWaitTime)) {
+            throw new AppException(ResponseCode.STRATEGY_ASSEMBLE_FAILED.getCode(), ResponseCode.STRATEGY_ASSEMBLE_FAILED.getInfo() + " strategyId: " + strategyId);
+        }
+        try {
+            // 等锁期间其他节点可能已完成装配
+            if (isAssembled(strategyId, assembleMarker)) {
+                log.info("策略已由其他节点装配完成 strategyId: {}", strategyId);
+                return true;
+            }
+            assembleLotteryStrategy(strategyId, assembleAwardEntitiesMap, assembleMode);
+            strategyRepository.storeStrategyAssembleMarker(strategyId, assembleMarker);
+            return true;
+        } finally {
+            strategyRepository.unlockStrategyAssemble(strategyId);
+        }
+    }
+
+    private void assembleLotteryStrategy(Long strategyId, Map<String, List<StrategyAwardEntity>> assembleAwardEntitiesMap, StrategyAssembleModeVO assembleMode) {
+        // 1. 按内容摘要去重；奖品概率相同的装配 key 共用一张共享概率表，已存在的共享概率表不再计算
+        Map<String, String> tableIds = new LinkedHashMap<>();
+        Map<String, String> rateTableKeys = new LinkedHashMap<>();
+        for (Map.Entry<String, List<StrategyAwardEntity>> entry : assembleAwardEntitiesMap.entrySet()) {
+            String tableId = rateTableId(entry.getValue(), assembleMode);
+            tableIds.put(entry.getKey(), tableId);
+            if (!rateTableKeys.containsKey(tableId) && !strategyRepository.existStrategyRateTableById(tableId)) {
+                rateTableKeys.put(tableId, entry.getKey());
+            }
+        }
+
+        // 2. 计算并写入共享概率表；全部计算成功后再统一写入
+        if (assembleParallelEnabled && rateTableKeys.size() > 1) {
+            assembleLotteryStrategyParallel(strategyId, rateTableKeys, assembleAwardEntitiesMap, assembleMode);
+        } else {
+            List<AssembledTable> assembledTables = new ArrayList<>(rateTableKeys.size());
+            for (Map.Entry<String, String> entry : rateTableKeys.entrySet()) {
+                assembledTables.add(assembleLotteryStrategy(entry.getKey(), entry.getValue(), assembleAwardEntitiesMap.get(entry.getValue()), assembleMode));
+            }
+            for (AssembledTable assembledTable : assembledTables) {
+                storeAssembledTable(assembledTable);
+            }
+        }
+
+        // 3. 全部写入后切换各装配 key 的指针
+        for (Map.Entry<String, String> entry : tableIds.entrySet()) {
+            linkStrategyRateTable(entry.getKey(), entry.getValue(), assembleAwardEntitiesMap.get(entry.getKey()), assembleMode);
+        }
+        log.info("策略装配完成 strategyId: {} keys: {} tables: {}", strategyId, tableIds.size(), rateTableKeys.size());
+    }
+
+    /**
+     * 装配 key 指向共享概率表；共享概率表在去重检查之后被清理时重新写入
+     */
+    private void linkStrategyRateTable(String key, String tableId, List<StrategyAwardEntity> strategyAwardEntities, StrategyAssembleModeVO assembleMode) {
+        if (strategyRepository.linkStrategyRateTable(key, tableId)) return;
+        storeAssembledTable(assembleLotteryStrategy(tableId, key, strategyAwardEntities, assembleMode));
+        if (!strategyRepository.linkStrategyRateTable(key, tableId)) {
+            throw new AppException(ResponseCode.STRATEGY_ASSEMBLE_FAILED.getCode(), ResponseCode.STRATEGY_ASSEMBLE_FAILED.getInfo() + " key: " + key);
+        }
+    }
 
-        // 2. 权重策略配置 - 适用于 rule_weight 权重规则配置
+    /**
+     * 共享概率表ID；装配模式与按奖品ID排序后的奖品概率的摘要，奖品概率相同的装配 key 得到相同的 tableId
+     */
+    private String rateTableId(List<StrategyAwardEntity> strategyAwardEntities, StrategyAssembleModeVO assembleMode) {
+        List<StrategyAwardEntity> sortedAwardEntities = new ArrayList<>(strategyAwardEntities);
+        sortedAwardEntities.sort(Comparator.comparing(StrategyAwardEntity::getAwardId));
+        StringBuilder content = new StringBuilder(assembleMode.getCode());
+        for (StrategyAwardEntity strategyAward : sortedAwardEntities) {
+            content.append(',').append(strategyAward.getAwardId()).append(':').append(strategyAward.getAwardRate().stripTrailingZeros().toPlainString());
+        }
+        return DigestUtils.md5Hex(content.toString());
+    }
+
+    private boolean isAssembled(Long strategyId, String assembleMarker) {
+        return assembleMarker.equals(strategyRepository.queryStrategyAssembleMarker(strategyId))
+                && strategyRepository.existStrategyRateTable(String.valueOf(strategyId));
+    }
+
+    private String assembleMarker(Map<String, List<StrategyAwardEntity>> assembleAwardEntitiesMap, StrategyAssembleModeVO assembleMode) {
+        Map<String, StrategyAssembleModeVO> assembleModes = new HashMap<>();
+        for (String key : assembleAwardEntitiesMap.keySet()) {
+            assembleModes.put(key, assembleMode);
+        }
+        return assembleMarker(assembleAwardEntitiesMap, assembleModes);
+    }
+
+    /**
+     * 装配完成标记；各装配 key 的装配模式及其奖品概率的摘要，配置或任一 key 的装配模式变化后标记随之变化
+     */
+    private String assembleMarker(Map<String, List<StrategyAwardEntity>> assembleAwardEntitiesMap, Map<String, StrategyAssembleModeVO> assembleModes) {
+        StringBuilder content = new StringBuilder();
+        for (Map.Entry<String, List<StrategyAwardEntity>> entry : assembleAwardEntitiesMap.entrySet()) {
+            content.append('|').append(entry.getKey()).append('@').append(assembleModes.get(entry.getKey()).getCode());
+            for (StrategyAwardEntity strategyAward : entry.getValue()) {
+                content.append(',').append(strategyAward.getAwardId()).append(':').append(strategyAward.getAwardRate().stripTrailingZeros().toPlainString());
+            }
+        }
+        return DigestUtils.md5Hex(content.toString());
+    }
+
+    /**
+     * 按装配 key 分组；基础表为全部奖品，权重表为 rule_weight 各权重值配置的奖品
+     */
+    private Map<String, List<StrategyAwardEntity>> groupStrategyAwardEntities(Long strategyId, List<StrategyAwardEntity> strategyAwardEntities) {
+        Map<String, List<StrategyAwardEntity>> assembleAwardEntitiesMap = new LinkedHashMap<>();
+        assembleAwardEntitiesMap.put(String.valueOf(strategyId), strategyAwardEntities);
+
+        // 权重策略配置 - 适用于 rule_weight 权重规则配置
         StrategyEntity strategyEntity = strategyRepository.queryStrategyEntityByStrategyId(strategyId);
         String ruleWeight = strategyEntity.getRuleWeight();
-        if (null == ruleWeight) return true;
+        if (null == ruleWeight) return assembleAwardEntitiesMap;
 
         StrategyRuleEntity strategyRuleEntity = strategyRepository.queryStrategyRule(strategyId, ruleWeight);
         if (null == strategyRuleEntity) {
@@ -47,56 +218,201 @@ public class StrategyArmoryDispatch implements IStrategyArmory, IStrategyDispatc
             List<Integer> ruleWeightValues = ruleWeightValueMap.get(key);
             ArrayList<StrategyAwardEntity> strategyAwardEntitiesClone = new ArrayList<>(strategyAwardEntities);
             strategyAwardEntitiesClone.removeIf(entity -> !ruleWeightValues.contains(entity.getAwardId()));
-            assembleLotteryStrategy(String.valueOf(strategyId).concat(Constants.UNDERLINE).concat(key), strategyAwardEntitiesClone);
+            assembleAwardEntitiesMap.put(String.valueOf(strategyId).concat(Constants.UNDERLINE).concat(key), strategyAwardEntitiesClone);
         }
-        return true;
+        return assembleAwardEntitiesMap;
     }
 
-    private void assembleLotteryStrategy(String key, List<StrategyAwardEntity> strategyAwardEntities) {
-        // 1. 获取最小概率值
-        BigDecimal minAwardRate = strategyAwardEntities.stream()
-                .map(StrategyAwardEntity::getAwardRate)
-                .min(BigDecimal::compareTo)
-                .orElse(BigDecimal.ZERO);
-
-        // 2. 获取概率值总和
-        BigDecimal totalAwardRate = strategyAwardEntities.stream()
-                .map(StrategyAwardEntity::getAwardRate)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        // 3. 用 1 % 0.0001 获得概率范围，百分位、千分位、万分位
-        BigDecimal rateRange = totalAwardRate.divide(minAwardRate, 0, RoundingMode.CEILING);
-
-        // 4. 生成策略奖品概率查找表「这里指需要在list集合中，存放上对应的奖品占位即可，占位越多等于概率越高」
-        List<Integer> strategyAwardSearchRateTables = new ArrayList<>(rateRange.intValue());
-        for (StrategyAwardEntity strategyAward : strategyAwardEntities) {
-            Integer awardId = strategyAward.getAwardId();
-            BigDecimal awardRate = strategyAward.getAwardRate();
-            // 计算出每个概率值需要存放到查找表的数量，循环填充
-            for (int i = 0; i < rateRange.multiply(awardRate).setScale(0, RoundingMode.CEILING).intValue(); i++) {
-                strategyAwardSearchRateTables.add(awardId);
+    @Override
+    public boolean reassembleLotteryStrategy(Long strategyId) {
+        if (!strategyRepository.tryLockStrategyAssemble(strategyId, assembleLockWaitTime)) {
+            throw new AppException(ResponseCode.STRATEGY_ASSEMBLE_FAILED.getCode(), ResponseCode.STRATEGY_ASSEMBLE_FAILED.getInfo() + " strategyId: " + strategyId);
+        }
+        try {
+            // 1. 变更前的奖品配置取自缓存，变更后的奖品配置从库中重新加载
+            List<StrategyAwardEntity> currentAwardEntities = strategyRepository.queryStrategyAwardList(strategyId);
+            List<StrategyAwardEntity> strategyAwardEntities = strategyRepository.refreshStrategyAwardList(strategyId);
+            if (null == strategyAwardEntities || strategyAwardEntities.isEmpty()) {
+                throw new AppException(ResponseCode.ILLEGAL_PARAMETER.getCode(), "策略未配置奖品 strategyId: " + strategyId);
             }
+            Map<String, List<StrategyAwardEntity>> currentAwardEntitiesMap = groupStrategyAwardEntities(strategyId, currentAwardEntities);
+            Map<String, List<StrategyAwardEntity>> assembleAwardEntitiesMap = groupStrategyAwardEntities(strategyId, strategyAwardEntities);
+
+            // 2. 逐个装配 key 增量更新；无法增量时对该 key 全量装配，装配模式按 key 记录
+            Map<String, StrategyAssembleModeVO> assembleModes = new HashMap<>();
+            for (Map.Entry<String, List<StrategyAwardEntity>> entry : assembleAwardEntitiesMap.entrySet()) {
+                assembleModes.put(entry.getKey(), reassembleLotteryStrategy(entry.getKey(), currentAwardEntitiesMap.get(entry.getKey()), entry.getValue()));
+            }
+            strategyRepository.storeStrategyAssembleMarker(strategyId, assembleMarker(assembleAwardEntitiesMap, assembleModes));
+            return true;
+        } finally {
+            strategyRepository.unlockStrategyAssemble(strategyId);
+        }
+    }
+
+    /**
+     * @return 该装配 key 的装配模式
+     */
+    private StrategyAssembleModeVO reassembleLotteryStrategy(String key, List<StrategyAwardEntity> currentAwardEntities, List<StrategyAwardEntity> strategyAwardEntities) {
+        // 1. 当前表不存在、或为别名表时全量装配；别名表只与奖品数量相关，全量重建即为 O(awards)
+        StrategyRateTableVO strategyRateTable = strategyRepository.loadStrategyRateTable(key);
+        if (null == strategyRateTable || null == currentAwardEntities || currentAwardEntities.isEmpty()) {
+            assembleLotteryStrategy(key, strategyAwardEntities, StrategyAssembleModeVO.RATE_TABLE);
+            return StrategyAssembleModeVO.RATE_TABLE;
+        }
+        if (strategyRateTable.isAlias()) {
+            assembleLotteryStrategy(key, strategyAwardEntities, StrategyAssembleModeVO.ALIAS);
+            return StrategyAssembleModeVO.ALIAS;
+        }
+
+        // 2. 奖品概率未变化，或已有相同奖品概率的共享概率表时，直接指向
+        String tableId = rateTableId(strategyAwardEntities, StrategyAssembleModeVO.RATE_TABLE);
+        if (tableId.equals(strategyRateTable.getTableId())) return StrategyAssembleModeVO.RATE_TABLE;
+        if (strategyRepository.existStrategyRateTableById(tableId) && strategyRepository.linkStrategyRateTable(key, tableId)) return StrategyAssembleModeVO.RATE_TABLE;
+
+        // 3. 概率范围变化时，所有奖品的占位都会变化，全量装配
+        StrategyRateSlotsVO currentRateSlots = StrategyRateSlotsVO.create(key, currentAwardEntities, Long.MAX_VALUE);
+        StrategyRateSlotsVO rateSlots = StrategyRateSlotsVO.create(key, strategyAwardEntities, maxRateTableSize);
+        if (currentRateSlots.getRateRange() != rateSlots.getRateRange() || currentRateSlots.getTableSize() != strategyRateTable.rateRange()) {
+            log.info("策略概率范围变化，全量装配 key: {} rateRange: {} -> {}", key, currentRateSlots.getRateRange(), rateSlots.getRateRange());
+            assembleLotteryStrategy(key, strategyAwardEntities, StrategyAssembleModeVO.RATE_TABLE);
+            return StrategyAssembleModeVO.RATE_TABLE;
         }
 
-        // 5. 对存储的奖品进行乱序操作
-        Collections.shuffle(strategyAwardSearchRateTables);
+        // 4. 按占位变化量生成补丁，基于当前共享概率表只写入变化的概率值；当前表可能被其他装配 key 引用，补丁写入新的共享概率表
+        Map<Integer, Integer> delta = rateSlots.delta(currentRateSlots);
+        if (delta.isEmpty()) return StrategyAssembleModeVO.RATE_TABLE;
+        StrategyRateTablePatchVO patch = StrategyRateTablePatchVO.create(strategyRateTable.getRateTable(), delta);
+        strategyRepository.patchStrategyAwardSearchRateTable(strategyRateTable.getTableId(), tableId, patch.getRateTable(), patch.getChangedRateKeys());
+        linkStrategyRateTable(key, tableId, strategyAwardEntities, StrategyAssembleModeVO.RATE_TABLE);
+        log.info("策略增量装配完成 key: {} delta: {} changed: {}", key, delta, patch.getChangedRateKeys().length);
+        return StrategyAssembleModeVO.RATE_TABLE;
+    }
 
-        // 6. 生成出Map集合，key值，对应的就是后续的概率值。通过概率来获得对应的奖品ID
-        Map<Integer, Integer> shuffleStrategyAwardSearchRateTable = new LinkedHashMap<>();
-        for (int i = 0; i < strategyAwardSearchRateTables.size(); i++) {
-            shuffleStrategyAwardSearchRateTable.put(i, strategyAwardSearchRateTables.get(i));
+    /**
+     * 单个装配 key 全量装配；相同奖品概率的共享概率表已存在时直接指向
+     */
+    private void assembleLotteryStrategy(String key, List<StrategyAwardEntity> strategyAwardEntities, StrategyAssembleModeVO assembleMode) {
+        String tableId = rateTableId(strategyAwardEntities, assembleMode);
+        if (!strategyRepository.existStrategyRateTableById(tableId)) {
+            storeAssembledTable(assembleLotteryStrategy(tableId, key, strategyAwardEntities, assembleMode));
         }
+        linkStrategyRateTable(key, tableId, strategyAwardEntities, assembleMode);
+    }
 
-        // 7. 存放到 Redis
-        strategyRepository.storeStrategyAwardSearchRateTable(key, shuffleStrategyAwardSearchRateTable.size(), shuffleStrategyAwardSearchRateTable);
+    @Override
+    public List<Long> queryActiveStrategyIdList() {
+        return strategyRepository.queryActiveStrategyIdList();
+    }
+
+    @Override
+    public boolean warmupLotteryStrategy(Long strategyId) {
+        // 1. 未装配时装配；与懒装配共用单机合并和集群装配锁，多节点同时预热只装配一次
+        String key = String.valueOf(strategyId);
+        if (!strategyRepository.existStrategyRateTable(key)) {
+            lazyAssembleLotteryStrategy(key);
+        }
+
+        // 2. 预加载策略和奖品缓存
+        strategyRepository.queryStrategyAwardList(strategyId);
+        StrategyEntity strategyEntity = strategyRepository.queryStrategyEntityByStrategyId(strategyId);
+
+        // 3. 预加载基础表和各权重表的本地快照
+        List<String> keys = new ArrayList<>();
+        keys.add(key);
+        String ruleWeight = strategyEntity.getRuleWeight();
+        if (null != ruleWeight) {
+            StrategyRuleEntity strategyRuleEntity = strategyRepository.queryStrategyRule(strategyId, ruleWeight);
+            for (String ruleWeightValue : strategyRuleEntity.getRuleWeightValues().keySet()) {
+                keys.add(key.concat(Constants.UNDERLINE).concat(ruleWeightValue));
+            }
+        }
+        for (String rateTableKey : keys) {
+            strategyRepository.queryStrategyRateTable(rateTableKey);
+        }
+        return true;
+    }
+
+    /**
+     * 并行装配；各表在线程池中并行计算，全部成功后再并行写入，任一失败则不写入任何表
+     */
+    private void assembleLotteryStrategyParallel(Long strategyId, Map<String, String> rateTableKeys, Map<String, List<StrategyAwardEntity>> assembleAwardEntitiesMap, StrategyAssembleModeVO assembleMode) {
+        // 1. 并行计算
+        List<CompletableFuture<AssembledTable>> assembleFutures = new ArrayList<>(rateTableKeys.size());
+        for (Map.Entry<String, String> entry : rateTableKeys.entrySet()) {
+            List<StrategyAwardEntity> strategyAwardEntities = assembleAwardEntitiesMap.get(entry.getValue());
+            assembleFutures.add(CompletableFuture.supplyAsync(() -> assembleLotteryStrategy(entry.getKey(), entry.getValue(), strategyAwardEntities, assembleMode), threadPoolExecutor));
+        }
+        awaitAssemble(strategyId, assembleFutures);
+
+        // 2. 并行写入
+        List<CompletableFuture<Void>> storeFutures = new ArrayList<>(assembleFutures.size());
+        for (CompletableFuture<AssembledTable> assembleFuture : assembleFutures) {
+            AssembledTable assembledTable = assembleFuture.join();
+            storeFutures.add(CompletableFuture.runAsync(() -> storeAssembledTable(assembledTable), threadPoolExecutor));
+        }
+        awaitAssemble(strategyId, storeFutures);
+        log.info("策略并行装配完成 strategyId: {} tables: {}", strategyId, rateTableKeys.size());
+    }
+
+    private void awaitAssemble(Long strategyId, List<? extends CompletableFuture<?>> futures) {
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(assembleParallelTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AppException(ResponseCode.UN_ERROR.getCode(), ResponseCode.UN_ERROR.getInfo(), e);
+        } catch (ExecutionException | TimeoutException e) {
+            futures.forEach(future -> future.cancel(true));
+            log.error("策略并行装配失败 strategyId: {}", strategyId, e);
+            throw new AppException(ResponseCode.STRATEGY_ASSEMBLE_FAILED.getCode(), ResponseCode.STRATEGY_ASSEMBLE_FAILED.getInfo(), e);
+        }
+    }
+
+    private void storeAssembledTable(AssembledTable assembledTable) {
+        if (null != assembledTable.aliasTable) {
+            strategyRepository.storeStrategyAwardAliasTable(assembledTable.tableId, assembledTable.aliasTable);
+            return;
+        }
+        strategyRepository.storeStrategyAwardSearchRateTable(assembledTable.tableId, assembledTable.rateTable);
+    }
+
+    private AssembledTable assembleLotteryStrategy(String tableId, String key, List<StrategyAwardEntity> strategyAwardEntities, StrategyAssembleModeVO assembleMode) {
+        if (StrategyAssembleModeVO.ALIAS.equals(assembleMode)) {
+            // 别名表只与奖品数量相关，存储 O(awards)
+            return new AssembledTable(tableId, null, StrategyAwardAliasTableVO.create(strategyAwardEntities));
+        }
+        return new AssembledTable(tableId, assembleLotteryStrategy(key, strategyAwardEntities), null);
+    }
+
+    private int[] assembleLotteryStrategy(String key, List<StrategyAwardEntity> strategyAwardEntities) {
+        // 1. 计算概率范围和每个奖品的占位数量，并在分配前校验查找表大小
+        StrategyRateSlotsVO rateSlots = StrategyRateSlotsVO.create(key, strategyAwardEntities, maxRateTableSize);
+        int[] awardIds = rateSlots.getAwardIds();
+        int[] slots = rateSlots.getSlots();
+
+        // 2. 生成策略奖品概率查找表「占位越多等于概率越高」
+        int[] strategyAwardSearchRateTable = new int[(int) rateSlots.getTableSize()];
+        int position = 0;
+        for (int i = 0; i < awardIds.length; i++) {
+            Arrays.fill(strategyAwardSearchRateTable, position, position + slots[i], awardIds[i]);
+            position += slots[i];
+        }
+
+        // 3. Fisher–Yates 原地乱序；下标即为后续的概率值
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = strategyAwardSearchRateTable.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int awardId = strategyAwardSearchRateTable[i];
+            strategyAwardSearchRateTable[i] = strategyAwardSearchRateTable[j];
+            strategyAwardSearchRateTable[j] = awardId;
+        }
+
+        return strategyAwardSearchRateTable;
     }
 
     @Override
     public Integer getRandomAwardId(Long strategyId) {
-        // 分布式部署下，不一定为当前应用做的策略装配。也就是值不一定会保存到本应用，而是分布式应用，所以需要从 Redis 中获取。
-        int rateRange = strategyRepository.getRateRange(strategyId);
-        // 通过生成的随机值，获取概率值奖品查找表的结果
-        return strategyRepository.getStrategyAwardAssemble(String.valueOf(strategyId), new SecureRandom().nextInt(rateRange));
+        return getRandomAwardId(String.valueOf(strategyId));
     }
 
     @Override
@@ -107,9 +423,137 @@ public class StrategyArmoryDispatch implements IStrategyArmory, IStrategyDispatc
 
     @Override
     public Integer getRandomAwardId(String key) {
+        Integer awardId = dispatchRandomAwardId(key);
+        if (null != awardId || !lazyAssembleEnabled) return awardId;
+
+        // 懒装配；首次抽奖时装配策略，并发请求等待同一次装配完成
+        lazyAssembleLotteryStrategy(key);
+        return dispatchRandomAwardId(key);
+    }
+
+    @Override
+    public Boolean subtractionAwardStock(String userId, Long strategyId, Integer awardId) {
+        // 1. 已售罄的奖品直接返回，不访问 Redis
+        if (strategyRepository.queryAwardStockSoldOut(strategyId, awardId)) return false;
+
+        // 2. 扣减库存；租约库存为大库存奖品本地扣减，Redis 每段库存只访问一次
+        String cacheKey = awardCountKey(strategyId, awardId);
+        int segments = strategyRepository.queryStrategyAwardStockSegments(strategyId, awardId);
+        StrategyAwardStockResultVO result = strategyRepository.queryStrategyAwardStockLease(strategyId, awardId)
+                ? strategyRepository.subtractionLeasedAwardStock(cacheKey, segments)
+                : strategyRepository.subtractionAwardStock(cacheKey, segments, userId);
+        if (StrategyAwardStockResultVO.SUCCESS == result) return true;
+
+        // 3. 由扣减结果判定售罄并标记；库存值加锁失败、其他节点仍持有租约库存时不是售罄
+        if (StrategyAwardStockResultVO.SOLD_OUT == result) {
+            strategyRepository.awardStockSoldOut(strategyId, awardId);
+        }
+        return false;
+    }
+
+    @Override
+    public long queryAwardStockSurplus(Long strategyId, Integer awardId) {
+        int segments = strategyRepository.queryStrategyAwardStockSegments(strategyId, awardId);
+        return strategyRepository.queryAwardStockSurplus(awardCountKey(strategyId, awardId), segments);
+    }
+
+    private String awardCountKey(Long strategyId, Integer awardId) {
+        return Constants.RedisKey.STRATEGY_AWARD_COUNT_KEY + strategyId + Constants.UNDERLINE + awardId;
+    }
+
+    /**
+     * 懒装配；JVM 内同一策略只有一个线程装配，其余线程等待其结果；集群内通过装配锁保证只有一个节点装配
+     */
+    private void lazyAssembleLotteryStrategy(String key) {
+        int index = key.indexOf(Constants.UNDERLINE);
+        Long strategyId = Long.valueOf(index < 0 ? key : key.substring(0, index));
+
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        CompletableFuture<Boolean> inFlight = lazyAssembleFutures.putIfAbsent(strategyId, future);
+        if (null != inFlight) {
+            awaitLazyAssemble(strategyId, inFlight);
+            return;
+        }
+
+        try {
+            if (!strategyRepository.tryLockStrategyAssemble(strategyId, lazyAssembleTimeout)) {
+                throw new AppException(ResponseCode.STRATEGY_ASSEMBLE_FAILED.getCode(), ResponseCode.STRATEGY_ASSEMBLE_FAILED.getInfo() + " strategyId: " + strategyId);
+            }
+            try {
+                // 等锁期间其他节点可能已完成装配
+                if (!strategyRepository.existStrategyRateTable(key)) {
+                    log.info("策略懒装配开始 strategyId: {}", strategyId);
+                    assembleLotteryStrategy(strategyId);
+                }
+            } finally {
+                strategyRepository.unlockStrategyAssemble(strategyId);
+            }
+            future.complete(true);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            lazyAssembleFutures.remove(strategyId, future);
+        }
+    }
+
+    private void awaitLazyAssemble(Long strategyId, CompletableFuture<Boolean> inFlight) {
+        try {
+            inFlight.get(lazyAssembleTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AppException(ResponseCode.UN_ERROR.getCode(), ResponseCode.UN_ERROR.getInfo(), e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new AppException(ResponseCode.STRATEGY_ASSEMBLE_FAILED.getCode(), ResponseCode.STRATEGY_ASSEMBLE_FAILED.getInfo() + " strategyId: " + strategyId, e);
+        }
+    }
+
+    private Integer dispatchRandomAwardId(String key) {
+        // 优先使用本地快照抽奖，不访问 Redis
+        StrategyRateTableVO strategyRateTable = strategyRepository.queryStrategyRateTable(key);
+        if (null != strategyRateTable) {
+            if (strategyRateTable.isAlias()) return getRandomAwardId(key, strategyRateTable.getAliasTable());
+            return strategyRateTable.getAwardId(randomSourceFactory.openRandomSource(key).nextInt(strategyRateTable.rateRange()));
+        }
+
         // 分布式部署下，不一定为当前应用做的策略装配。也就是值不一定会保存到本应用，而是分布式应用，所以需要从 Redis 中获取。
-        int rateRange = strategyRepository.getRateRange(key);
+        if (singleRoundTripEnabled) {
+            // 随机值在本地生成，概率范围与概率值在同一次脚本调用内读取，无需重试
+            IRandomSource random = randomSourceFactory.openRandomSource(key);
+            return strategyRepository.getStrategyAwardAssemble(key, random.nextDouble(), random.nextDouble());
+        }
+        Integer awardId = getRandomAwardIdFromRedis(key);
+        if (null != awardId) return awardId;
+        // 两次读取之间恰逢重新装配切换版本时，随机值可能超出新版本的概率范围，按新版本重试一次
+        return getRandomAwardIdFromRedis(key);
+    }
+
+    private Integer getRandomAwardIdFromRedis(String key) {
+        Integer rateRange = strategyRepository.getRateRange(key);
+        if (null == rateRange) {
+            // 别名表模式装配的策略不存储概率范围
+            StrategyAwardAliasTableVO aliasTable = strategyRepository.getStrategyAwardAliasTable(key);
+            return null == aliasTable ? null : getRandomAwardId(key, aliasTable);
+        }
         // 通过生成的随机值，获取概率值奖品查找表的结果
-        return strategyRepository.getStrategyAwardAssemble(key, new SecureRandom().nextInt(rateRange));
+        return strategyRepository.getStrategyAwardAssemble(key, randomSourceFactory.openRandomSource(key).nextInt(rateRange));
+    }
+
+    /**
+     * 别名表抽奖；随机一列 + 列内随机值获取奖品
+     */
+    private Integer getRandomAwardId(String key, StrategyAwardAliasTableVO aliasTable) {
+        IRandomSource random = randomSourceFactory.openRandomSource(key);
+        return aliasTable.sample(random.nextInt(aliasTable.columnCount()), random.nextInt(aliasTable.getProbabilityRange()));
+    }
+
+    /**
+     * 已计算、待写入的装配结果；概率查找表与别名表二选一
+     */
+    @AllArgsConstructor
+    private static class AssembledTable {
+        private final String tableId;
+        private final int[] rateTable;
+        private final StrategyAwardAliasTableVO aliasTable;
     }
 }
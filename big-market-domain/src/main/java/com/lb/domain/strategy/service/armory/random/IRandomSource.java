@@ -0,0 +1,23 @@
+package com.lb.domain.strategy.service.armory.random;
+
+/**
+ * 抽奖随机源；实现需线程安全，且不应在每次调用时创建新的生成器
+ */
+public interface IRandomSource {
+
+    /**
+     * 获取 [0, bound) 内均匀分布的随机值
+     *
+     * @param bound 上界（不包含），必须大于 0
+     * @return 随机值
+     */
+    int nextInt(int bound);
+
+    /**
+     * 获取 [0, 1) 内均匀分布的随机值；用于概率范围未知时，由 Redis 脚本按概率范围换算为概率值
+     *
+     * @return 随机值
+     */
+    double nextDouble();
+
+}
@@ -0,0 +1,72 @@
+package com.lb.domain.strategy.service.armory.random.factory;
+
+import com.lb.domain.strategy.service.armory.random.IRandomSource;
+import com.lb.types.common.Constants;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 随机源工厂；默认使用配置的随机源，审计策略使用安全随机源
+ */
+@Service
+public class DefaultRandomSourceFactory {
+
+    private final Map<String, IRandomSource> randomSourceGroup;
+
+    /** 默认随机源；thread_local、splittable、secure */
+    private final String randomModel;
+    /** 使用安全随机源的策略ID */
+    @Value("#{'${strategy.dispatch.secure-strategy-ids:}'.split(',')}")
+    private Set<String> secureStrategyIds;
+
+    /**
+     * 默认随机源须为 {@link RandomModel} 之一且已注册，否则启动失败，避免抽奖时才取到空随机源
+     */
+    public DefaultRandomSourceFactory(Map<String, IRandomSource> randomSourceGroup, @Value("${strategy.dispatch.random-source:thread_local}") String randomModel) {
+        if (null == RandomModel.valueOfCode(randomModel) || !randomSourceGroup.containsKey(randomModel)) {
+            throw new IllegalArgumentException("strategy.dispatch.random-source invalid " + randomModel);
+        }
+        this.randomSourceGroup = randomSourceGroup;
+        this.randomModel = randomModel;
+    }
+
+    /**
+     * 获取策略装配 key 对应的随机源
+     *
+     * @param key 策略装配 key；策略ID 或 策略ID_权重值
+     * @return 随机源
+     */
+    public IRandomSource openRandomSource(String key) {
+        int index = key.indexOf(Constants.UNDERLINE);
+        String strategyId = index < 0 ? key : key.substring(0, index);
+        if (secureStrategyIds.contains(strategyId)) return randomSourceGroup.get(RandomModel.SECURE.getCode());
+        return randomSourceGroup.get(randomModel);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public enum RandomModel {
+
+        THREAD_LOCAL("thread_local", "线程本地随机源"),
+        SPLITTABLE("splittable", "可拆分随机源"),
+        SECURE("secure", "安全随机源"),
+        ;
+
+        private final String code;
+        private final String info;
+
+        public static RandomModel valueOfCode(String code) {
+            for (RandomModel randomModel : values()) {
+                if (randomModel.code.equals(code)) return randomModel;
+            }
+            return null;
+        }
+
+    }
+
+}
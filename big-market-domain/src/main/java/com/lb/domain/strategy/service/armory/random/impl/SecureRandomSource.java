@@ -0,0 +1,27 @@
+package com.lb.domain.strategy.service.armory.random.impl;
+
+import com.lb.domain.strategy.service.armory.random.IRandomSource;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+
+/**
+ * 安全随机源；用于对随机性有审计要求的策略。每个线程持有一个 SecureRandom，仅在首次使用时播种，
+ * 避免每次抽奖创建实例以及高并发下等待熵源。
+ */
+@Component("secure")
+public class SecureRandomSource implements IRandomSource {
+
+    private final ThreadLocal<SecureRandom> random = ThreadLocal.withInitial(SecureRandom::new);
+
+    @Override
+    public int nextInt(int bound) {
+        return random.get().nextInt(bound);
+    }
+
+    @Override
+    public double nextDouble() {
+        return random.get().nextDouble();
+    }
+
+}
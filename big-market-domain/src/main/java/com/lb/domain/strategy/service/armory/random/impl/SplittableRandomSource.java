@@ -0,0 +1,36 @@
+package com.lb.domain.strategy.service.armory.random.impl;
+
+import com.lb.domain.strategy.service.armory.random.IRandomSource;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.SplittableRandom;
+
+/**
+ * 可拆分随机源；根生成器以安全随机数播种，每个线程首次使用时从根生成器拆分出独立的子生成器
+ */
+@Component("splittable")
+public class SplittableRandomSource implements IRandomSource {
+
+    private final SplittableRandom root = new SplittableRandom(new SecureRandom().nextLong());
+
+    private final ThreadLocal<SplittableRandom> random = ThreadLocal.withInitial(this::split);
+
+    @Override
+    public int nextInt(int bound) {
+        return random.get().nextInt(bound);
+    }
+
+    @Override
+    public double nextDouble() {
+        return random.get().nextDouble();
+    }
+
+    private SplittableRandom split() {
+        // SplittableRandom 非线程安全，拆分时加锁；每个线程仅拆分一次
+        synchronized (root) {
+            return root.split();
+        }
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.lb.domain.strategy.service.armory.random.impl;
+
+import com.lb.domain.strategy.service.armory.random.IRandomSource;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 线程本地随机源；每个线程独立的生成器，无竞争、无分配，默认使用
+ */
+@Component("thread_local")
+public class ThreadLocalRandomSource implements IRandomSource {
+
+    @Override
+    public int nextInt(int bound) {
+        return ThreadLocalRandom.current().nextInt(bound);
+    }
+
+    @Override
+    public double nextDouble() {
+        return ThreadLocalRandom.current().nextDouble();
+    }
+
+}
@@ -4,24 +4,34 @@ import com.lb.domain.strategy.model.entity.RaffleFactorEntity;
 import com.lb.domain.strategy.model.entity.RuleActionEntity;
 import com.lb.domain.strategy.model.entity.RuleMatterEntity;
 import com.lb.domain.strategy.model.valobj.RuleLogicCheckTypeVO;
+import com.lb.domain.strategy.model.valobj.RuleTreeVO;
+import com.lb.domain.strategy.model.valobj.StrategyAwardStockKeyVO;
 import com.lb.domain.strategy.repository.IStrategyRepository;
 import com.lb.domain.strategy.service.AbstractRaffleStrategy;
+import com.lb.domain.strategy.service.IRaffleStock;
+import com.lb.domain.strategy.service.IRaffleUserCount;
 import com.lb.domain.strategy.service.armory.IStrategyDispatch;
 import com.lb.domain.strategy.service.rule.chain.factory.DefaultChainFactory;
 import com.lb.domain.strategy.service.rule.filter.ILogicFilter;
 import com.lb.domain.strategy.service.rule.filter.factory.DefaultLogicFactory;
+import com.lb.domain.strategy.service.rule.tree.factory.DefaultTreeFactory;
+import com.lb.domain.strategy.service.rule.tree.factory.engine.IDecisionTreeEngine;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
+import java.util.List;
 import java.util.Map;
 
 @Slf4j  // 日志记录
 @Service  // Spring的Service组件注解
-public class DefaultRaffleStrategy extends AbstractRaffleStrategy {
+public class DefaultRaffleStrategy extends AbstractRaffleStrategy implements IRaffleStock, IRaffleUserCount {
     @Resource
     private DefaultLogicFactory logicFactory;
 
+    @Resource
+    private DefaultTreeFactory treeFactory;
+
     public DefaultRaffleStrategy(IStrategyRepository repository, IStrategyDispatch strategyDispatch, DefaultChainFactory defaultChainFactory) {
         super(repository, strategyDispatch, defaultChainFactory);
     }
@@ -43,6 +53,7 @@ public class DefaultRaffleStrategy extends AbstractRaffleStrategy {
             ruleMatterEntity.setAwardId(raffleFactorEntity.getAwardId());
             ruleMatterEntity.setStrategyId(raffleFactorEntity.getStrategyId());
             ruleMatterEntity.setRuleModel(ruleModel);
+            ruleMatterEntity.setUserRaffleCount(raffleFactorEntity.getUserRaffleCount());
             ruleActionEntity = logicFilter.filter(ruleMatterEntity);
             // 非放行结果则顺序过滤
             log.info("抽奖中规则过滤 userId: {} ruleModel: {} code: {} info: {}", raffleFactorEntity.getUserId(), ruleModel, ruleActionEntity.getCode(), ruleActionEntity.getInfo());
@@ -51,4 +62,35 @@ public class DefaultRaffleStrategy extends AbstractRaffleStrategy {
         return ruleActionEntity;
     }
 
+    @Override
+    protected DefaultTreeFactory.StrategyAwardData raffleLogicTree(String userId, Long strategyId, Integer awardId, Integer treeId) {
+        RuleTreeVO ruleTreeVO = strategyRepository.queryRuleTreeVOByTreeId(treeId);
+        if (null == ruleTreeVO) {
+            log.warn("规则树未配置 strategyId: {} awardId: {} treeId: {}", strategyId, awardId, treeId);
+            return null;
+        }
+        IDecisionTreeEngine treeEngine = treeFactory.openLogicTree(ruleTreeVO);
+        return treeEngine.process(userId, strategyId, awardId);
+    }
+
+    @Override
+    public List<StrategyAwardStockKeyVO> takeQueueValue(int batchSize) {
+        return strategyRepository.takeQueueValue(batchSize);
+    }
+
+    @Override
+    public void updateStrategyAwardStock(List<StrategyAwardStockKeyVO> strategyAwardStockKeyVOS) {
+        strategyRepository.updateStrategyAwardStock(strategyAwardStockKeyVOS);
+    }
+
+    @Override
+    public long reclaimAwardStockLease() {
+        return strategyRepository.reclaimAwardStockLease();
+    }
+
+    @Override
+    public int updateUserRaffleCount(int batchSize) {
+        return strategyRepository.updateUserRaffleCount(batchSize);
+    }
+
 }
@@ -1,5 +1,8 @@
 package com.lb.domain.strategy.service.rule.chain;
 
+/**
+ * 责任链节点；原型 Bean，仅在工厂装配时调用 appendNext，装配完成后不再修改
+ */
 public abstract class AbstractLogicChain implements ILogicChain {
 
     private ILogicChain next;
@@ -10,8 +10,9 @@ public interface ILogicChain extends ILogicChainArmory{
      *
      * @param userId 用户ID
      * @param strategyId 策略ID
+     * @param userScore 用户积分值；权重规则按积分值选择抽奖范围
      * @return 奖品ID
      */
-    Integer logic(String userId, Long strategyId);
+    Integer logic(String userId, Long strategyId, long userScore);
 
 }
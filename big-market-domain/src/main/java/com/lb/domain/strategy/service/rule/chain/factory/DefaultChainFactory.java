@@ -1,51 +1,119 @@
 package com.lb.domain.strategy.service.rule.chain.factory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.lb.domain.strategy.model.entity.StrategyEntity;
 import com.lb.domain.strategy.repository.IStrategyRepository;
 import com.lb.domain.strategy.service.rule.chain.ILogicChain;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Service;
 
-import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 默认工厂
+ * 1. 责任链节点为原型 Bean，每个策略的责任链持有独立的节点实例，装配完成后不再修改，并发抽奖之间互不影响
+ * 2. 责任链按策略ID缓存，长时间未使用的策略淘汰；超过校验间隔后，仅由一个线程比对 rule_models，变化时重新装配
  */
+@Slf4j
 @Service
 public class DefaultChainFactory {
 
-    private final Map<String, ILogicChain> logicChainGroup;
+    private final ApplicationContext applicationContext;
     protected IStrategyRepository strategyRepository;
 
-    public DefaultChainFactory(Map<String, ILogicChain> logicChainGroup, IStrategyRepository repository) {
-        this.logicChainGroup = logicChainGroup;
+    /** 已装配的责任链；key 为策略ID */
+    private final Cache<Long, LogicChainHolder> logicChainCache = CacheBuilder.newBuilder()
+            .maximumSize(10000)
+            .expireAfterAccess(1, TimeUnit.HOURS)
+            .build();
+
+    /** rule_models 校验间隔（毫秒） */
+    @Value("${strategy.chain.check-interval:60000}")
+    private long checkInterval;
+
+    public DefaultChainFactory(ApplicationContext applicationContext, IStrategyRepository repository) {
+        this.applicationContext = applicationContext;
         this.strategyRepository = repository;
     }
 
     /**
-     * 通过策略ID，构建责任链
+     * 通过策略ID，获取责任链；首次获取时装配并缓存
      *
      * @param strategyId 策略ID
      * @return LogicChain
      */
     public ILogicChain openLogicChain(Long strategyId) {
-        StrategyEntity strategy = strategyRepository.queryStrategyEntityByStrategyId(strategyId);
+        LogicChainHolder holder = logicChainCache.getIfPresent(strategyId);
+        if (null == holder) {
+            // 首次获取；查询策略配置不占用缓存锁，并发首次获取各自装配，以先写入的为准
+            LogicChainHolder built = buildLogicChain(queryStrategyEntity(strategyId));
+            holder = logicChainCache.asMap().putIfAbsent(strategyId, built);
+            return null == holder ? built.logicChain : holder.logicChain;
+        }
+
+        long now = System.currentTimeMillis();
+        long checkTime = holder.checkTime.get();
+        if (now - checkTime < checkInterval || !holder.checkTime.compareAndSet(checkTime, now)) {
+            return holder.logicChain;
+        }
+
+        // 仅获得校验权的线程查询策略配置
+        StrategyEntity strategy = queryStrategyEntity(strategyId);
+        if (Objects.equals(strategy.getRuleModels(), holder.ruleModels)) return holder.logicChain;
+        LogicChainHolder rebuilt = buildLogicChain(strategy);
+        logicChainCache.put(strategyId, rebuilt);
+        log.info("抽奖责任链重新装配 strategyId: {} ruleModels: {} -> {}", strategyId, holder.ruleModels, rebuilt.ruleModels);
+        return rebuilt.logicChain;
+    }
+
+    private StrategyEntity queryStrategyEntity(Long strategyId) {
+        return strategyRepository.queryStrategyEntityByStrategyId(strategyId);
+    }
+
+    private LogicChainHolder buildLogicChain(StrategyEntity strategy) {
         String[] ruleModels = strategy.ruleModels();
 
         // 如果未配置策略规则，则只装填一个默认责任链
-        if (null == ruleModels || 0 == ruleModels.length) return logicChainGroup.get("default");
+        if (null == ruleModels || 0 == ruleModels.length) return new LogicChainHolder(strategy.getRuleModels(), openLogicChainNode("default"));
 
         // 按照配置顺序装填用户配置的责任链；rule_blacklist、rule_weight 「注意此数据从Redis缓存中获取，如果更新库表，记得在测试阶段手动处理缓存」
-        ILogicChain logicChain = logicChainGroup.get(ruleModels[0]);
+        ILogicChain logicChain = openLogicChainNode(ruleModels[0]);
         ILogicChain current = logicChain;
         for (int i = 1; i < ruleModels.length; i++) {
-            ILogicChain nextChain = logicChainGroup.get(ruleModels[i]);
+            ILogicChain nextChain = openLogicChainNode(ruleModels[i]);
             current = current.appendNext(nextChain);
         }
 
         // 责任链的最后装填默认责任链
-        current.appendNext(logicChainGroup.get("default"));
+        current.appendNext(openLogicChainNode("default"));
+
+        return new LogicChainHolder(strategy.getRuleModels(), logicChain);
+    }
+
+    /**
+     * 每次获取新的节点实例；节点为原型 Bean
+     */
+    private ILogicChain openLogicChainNode(String ruleModel) {
+        return applicationContext.getBean(ruleModel, ILogicChain.class);
+    }
+
+    private static class LogicChainHolder {
+
+        private final String ruleModels;
+        private final ILogicChain logicChain;
+        private final AtomicLong checkTime;
+
+        private LogicChainHolder(String ruleModels, ILogicChain logicChain) {
+            this.ruleModels = ruleModels;
+            this.logicChain = logicChain;
+            this.checkTime = new AtomicLong(System.currentTimeMillis());
+        }
 
-        return logicChain;
     }
 
 }
@@ -2,8 +2,9 @@ package com.lb.domain.strategy.service.rule.chain.impl;
 
 import com.lb.domain.strategy.repository.IStrategyRepository;
 import com.lb.domain.strategy.service.rule.chain.AbstractLogicChain;
-import com.lb.types.common.Constants;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
@@ -13,32 +14,26 @@ import javax.annotation.Resource;
  */
 @Slf4j
 @Component("rule_blacklist")
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 public class BlackListLogicChain extends AbstractLogicChain {
 
     @Resource
     private IStrategyRepository repository;
 
     @Override
-    public Integer logic(String userId, Long strategyId) {
+    public Integer logic(String userId, Long strategyId, long userScore) {
         log.info("抽奖责任链-黑名单开始 userId: {} strategyId: {} ruleModel: {}", userId, strategyId, ruleModel());
 
-        // 查询规则值配置
-        String ruleValue = repository.queryStrategyRuleValue(strategyId, ruleModel());
-        String[] splitRuleValue = ruleValue.split(Constants.COLON);
-        Integer awardId = Integer.parseInt(splitRuleValue[0]);
-
-        // 黑名单抽奖判断
-        String[] userBlackIds = splitRuleValue[1].split(Constants.SPLIT);
-        for (String userBlackId : userBlackIds) {
-            if (userId.equals(userBlackId)) {
-                log.info("抽奖责任链-黑名单接管 userId: {} strategyId: {} ruleModel: {} awardId: {}", userId, strategyId, ruleModel(), awardId);
-                return awardId;
-            }
+        // 黑名单抽奖判断；按策略建立的黑名单索引 O(1) 查询
+        Integer awardId = repository.queryRuleBlacklistAwardId(strategyId, userId);
+        if (null != awardId) {
+            log.info("抽奖责任链-黑名单接管 userId: {} strategyId: {} ruleModel: {} awardId: {}", userId, strategyId, ruleModel(), awardId);
+            return awardId;
         }
 
         // 过滤其他责任链
         log.info("抽奖责任链-黑名单放行 userId: {} strategyId: {} ruleModel: {}", userId, strategyId, ruleModel());
-        return next().logic(userId, strategyId);
+        return next().logic(userId, strategyId, userScore);
     }
 
     @Override
@@ -3,6 +3,8 @@ package com.lb.domain.strategy.service.rule.chain.impl;
 import com.lb.domain.strategy.service.armory.IStrategyDispatch;
 import com.lb.domain.strategy.service.rule.chain.AbstractLogicChain;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
@@ -12,13 +14,14 @@ import javax.annotation.Resource;
  */
 @Slf4j
 @Component("default")
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 public class DefaultLogicChain extends AbstractLogicChain {
 
     @Resource
     protected IStrategyDispatch strategyDispatch;
 
     @Override
-    public Integer logic(String userId, Long strategyId) {
+    public Integer logic(String userId, Long strategyId, long userScore) {
         Integer awardId = strategyDispatch.getRandomAwardId(strategyId);
         log.info("抽奖责任链-默认处理 userId: {} strategyId: {} ruleModel: {} awardId: {}", userId, strategyId, ruleModel(), awardId);
         return awardId;
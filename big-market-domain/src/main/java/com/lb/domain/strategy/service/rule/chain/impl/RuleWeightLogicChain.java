@@ -1,14 +1,15 @@
 package com.lb.domain.strategy.service.rule.chain.impl;
 
+import com.lb.domain.strategy.model.valobj.RuleWeightVO;
 import com.lb.domain.strategy.repository.IStrategyRepository;
 import com.lb.domain.strategy.service.armory.IStrategyDispatch;
 import com.lb.domain.strategy.service.rule.chain.AbstractLogicChain;
-import com.lb.types.common.Constants;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
-import java.util.*;
 
 /**
  * @author Fuzhengwei bugstack.cn @小傅哥
@@ -17,6 +18,7 @@ import java.util.*;
  */
 @Slf4j
 @Component("rule_weight")
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 public class RuleWeightLogicChain extends AbstractLogicChain {
 
     @Resource
@@ -25,58 +27,32 @@ public class RuleWeightLogicChain extends AbstractLogicChain {
     @Resource
     protected IStrategyDispatch strategyDispatch;
 
-    // 根据用户ID查询用户抽奖消耗的积分值，本章节我们先写死为固定的值。后续需要从数据库中查询。
-    public Long userScore = 0L;
-
     /**
      * 权重责任链过滤；
      * 1. 权重规则格式；4000:102,103,104,105 5000:102,103,104,105,106,107 6000:102,103,104,105,106,107,108,109
-     * 2. 解析数据格式；判断哪个范围符合用户的特定抽奖范围
+     * 2. 权重规则按策略预编译为升序阈值，二分查找用户积分值所在的权重范围
      */
     @Override
-    public Integer logic(String userId, Long strategyId) {
+    public Integer logic(String userId, Long strategyId, long userScore) {
         log.info("抽奖责任链-权重开始 userId: {} strategyId: {} ruleModel: {}", userId, strategyId, ruleModel());
 
-        String ruleValue = repository.queryStrategyRuleValue(strategyId, ruleModel());
-
-        // 1. 根据用户ID查询用户抽奖消耗的积分值，本章节我们先写死为固定的值。后续需要从数据库中查询。
-        Map<Long, String> analyticalValueGroup = getAnalyticalValue(ruleValue);
-        if (null == analyticalValueGroup || analyticalValueGroup.isEmpty()) return null;
-
-        // 2. 转换Keys值，并默认排序
-        List<Long> analyticalSortedKeys = new ArrayList<>(analyticalValueGroup.keySet());
-        Collections.sort(analyticalSortedKeys);
+        // 1. 查询预编译的权重规则
+        RuleWeightVO ruleWeight = repository.queryRuleWeight(strategyId);
+        if (ruleWeight.isEmpty()) return null;
 
-        // 3. 找出最小符合的值，也就是【4500 积分，能找到 4000:102,103,104,105】、【5000 积分，能找到 5000:102,103,104,105,106,107】
-        /* 找到最后一个符合的值[如用户传了一个 5900 应该返回正确结果为 5000]，如果使用 Lambda findFirst 需要注意使用 sorted 反转结果
-         *   Long nextValue = null;
-         *         for (Long analyticalSortedKeyValue : analyticalSortedKeys) {
-         *             if (userScore >= analyticalSortedKeyValue){
-         *                 nextValue = analyticalSortedKeyValue;
-         *             }
-         *         }
-         * 星球伙伴 @慢慢来 ID 6267 提供
-         * Long nextValue = analyticalSortedKeys.stream()
-         *      .filter(key -> userScore >= key)
-         *      .max(Comparator.naturalOrder())
-         *      .orElse(null);
-         */
-        Long nextValue = analyticalSortedKeys.stream()
-                .sorted(Comparator.reverseOrder())
-                .filter(analyticalSortedKeyValue -> userScore >= analyticalSortedKeyValue)
-                .findFirst()
-                .orElse(null);
+        // 2. 找出不大于用户积分值的最大阈值【4500 积分，能找到 4000:102,103,104,105】、【5000 积分，能找到 5000:102,103,104,105,106,107】
+        String rateTableKey = ruleWeight.rateTableKey(userScore);
 
-        // 4. 权重抽奖
-        if (null != nextValue) {
-            Integer awardId = strategyDispatch.getRandomAwardId(strategyId, analyticalValueGroup.get(nextValue));
+        // 3. 权重抽奖
+        if (null != rateTableKey) {
+            Integer awardId = strategyDispatch.getRandomAwardId(rateTableKey);
             log.info("抽奖责任链-权重接管 userId: {} strategyId: {} ruleModel: {} awardId: {}", userId, strategyId, ruleModel(), awardId);
             return awardId;
         }
 
-        // 5. 过滤其他责任链
+        // 4. 过滤其他责任链
         log.info("抽奖责任链-权重放行 userId: {} strategyId: {} ruleModel: {}", userId, strategyId, ruleModel());
-        return next().logic(userId, strategyId);
+        return next().logic(userId, strategyId, userScore);
     }
 
     @Override
@@ -84,22 +60,4 @@ public class RuleWeightLogicChain extends AbstractLogicChain {
         return "rule_weight";
     }
 
-    private Map<Long, String> getAnalyticalValue(String ruleValue) {
-        String[] ruleValueGroups = ruleValue.split(Constants.SPACE);
-        Map<Long, String> ruleValueMap = new HashMap<>();
-        for (String ruleValueKey : ruleValueGroups) {
-            // 检查输入是否为空
-            if (ruleValueKey == null || ruleValueKey.isEmpty()) {
-                return ruleValueMap;
-            }
-            // 分割字符串以获取键和值
-            String[] parts = ruleValueKey.split(Constants.COLON);
-            if (parts.length != 2) {
-                throw new IllegalArgumentException("rule_weight rule_rule invalid input format" + ruleValueKey);
-            }
-            ruleValueMap.put(Long.parseLong(parts[0]), ruleValueKey);
-        }
-        return ruleValueMap;
-    }
-
 }
@@ -8,6 +8,7 @@ import lombok.Getter;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -45,12 +46,29 @@ public class DefaultLogicFactory {
         private final String info;
         private final String type;
 
+        private static final Map<String, LogicModel> CODE_MAP = new HashMap<>();
+
+        static {
+            for (LogicModel logicModel : values()) {
+                CODE_MAP.put(logicModel.code, logicModel);
+            }
+        }
+
+        /**
+         * 按规则编码查找；非过滤器规则（如 rule_random）返回 null
+         */
+        public static LogicModel of(String code) {
+            return CODE_MAP.get(code);
+        }
+
         public static boolean isCenter(String code){
-            return "center".equals(LogicModel.valueOf(code.toUpperCase()).type);
+            LogicModel logicModel = of(code);
+            return null != logicModel && "center".equals(logicModel.type);
         }
 
         public static boolean isAfter(String code){
-            return "after".equals(LogicModel.valueOf(code.toUpperCase()).type);
+            LogicModel logicModel = of(code);
+            return null != logicModel && "after".equals(logicModel.type);
         }
 
     }
@@ -10,29 +10,32 @@ import com.lb.domain.strategy.service.rule.filter.factory.DefaultLogicFactory;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import javax.annotation.Resource;
-
 /**
- * 用户抽奖n次后可解锁
+ * 用户抽奖n次后可解锁；规则值从奖品规则索引获取，抽奖次数为本次抽奖前已完成的次数
  */
 @Slf4j
 @Component
 @LogicStrategy(logicMode = DefaultLogicFactory.LogicModel.RULE_LOCK)
 public class RuleLockLogicFilter implements ILogicFilter<RuleActionEntity.RaffleCenterEntity> {
 
-    @Resource
-    private IStrategyRepository strategyRepository;
+    private final IStrategyRepository strategyRepository;
 
-    private Long userRaffleCount = 0L;
+    public RuleLockLogicFilter(IStrategyRepository strategyRepository) {
+        this.strategyRepository = strategyRepository;
+    }
 
     @Override
     public RuleActionEntity<RuleActionEntity.RaffleCenterEntity> filter(RuleMatterEntity ruleMatterEntity) {
         log.info("规则过滤-次数锁 userId:{} strategyId:{} ruleModel:{}", ruleMatterEntity.getUserId(), ruleMatterEntity.getStrategyId(), ruleMatterEntity.getRuleModel());
 
-        String ruleValue = strategyRepository.queryStrategyRuleValue(ruleMatterEntity.getStrategyId(), ruleMatterEntity.getAwardId(), ruleMatterEntity.getRuleModel());
-        long raffleCount = Long.parseLong(ruleValue);
+        Long raffleCount = strategyRepository.queryStrategyAwardRuleLockCount(ruleMatterEntity.getStrategyId(), ruleMatterEntity.getAwardId());
+        Long userRaffleCount = ruleMatterEntity.getUserRaffleCount();
+        if (null == userRaffleCount) {
+            userRaffleCount = strategyRepository.queryUserRaffleCount(ruleMatterEntity.getUserId(), ruleMatterEntity.getStrategyId());
+        }
 
-        if (raffleCount <= userRaffleCount) {
+        // 未配置规则值或已完成的抽奖次数达到规则值，放行
+        if (null == raffleCount || raffleCount <= userRaffleCount) {
             return RuleActionEntity.<RuleActionEntity.RaffleCenterEntity>builder()
                     .code(RuleLogicCheckTypeVO.ALLOW.getCode())
                     .info(RuleLogicCheckTypeVO.ALLOW.getInfo())
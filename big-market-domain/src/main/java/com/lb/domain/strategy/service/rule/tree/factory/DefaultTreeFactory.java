@@ -1,5 +1,7 @@
 package com.lb.domain.strategy.service.rule.tree.factory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.lb.domain.strategy.model.valobj.RuleLogicCheckTypeVO;
 import com.lb.domain.strategy.model.valobj.RuleTreeVO;
 import com.lb.domain.strategy.service.rule.tree.ILogicTreeNode;
@@ -12,6 +14,7 @@ import lombok.NoArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 规则树工厂
@@ -21,12 +24,31 @@ public class DefaultTreeFactory {
 
     private final Map<String, ILogicTreeNode> logicTreeNodeGroup;
 
+    /** 已编译的决策树引擎；key 为规则树ID，规则树变化时替换，长时间未使用的规则树淘汰 */
+    private final Cache<Integer, DecisionTreeEngine> treeEngineCache = CacheBuilder.newBuilder()
+            .maximumSize(10000)
+            .expireAfterAccess(1, TimeUnit.HOURS)
+            .build();
+
     public DefaultTreeFactory(Map<String, ILogicTreeNode> logicTreeNodeGroup) {
         this.logicTreeNodeGroup = logicTreeNodeGroup;
     }
 
+    /**
+     * 获取决策树引擎；按规则树ID缓存编译结果，规则树对象变化时重新编译并替换旧引擎
+     * 仓储在规则树内容未变化时沿用同一对象，规则树对象在打开后不应再修改
+     *
+     * @param ruleTreeVO 规则树
+     * @return 决策树引擎
+     */
     public IDecisionTreeEngine openLogicTree(RuleTreeVO ruleTreeVO) {
-        return new DecisionTreeEngine(logicTreeNodeGroup, ruleTreeVO);
+        DecisionTreeEngine treeEngine = treeEngineCache.getIfPresent(ruleTreeVO.getTreeId());
+        if (null != treeEngine && treeEngine.getRuleTreeVO() == ruleTreeVO) {
+            return treeEngine;
+        }
+        treeEngine = new DecisionTreeEngine(logicTreeNodeGroup, ruleTreeVO);
+        treeEngineCache.put(ruleTreeVO.getTreeId(), treeEngine);
+        return treeEngine;
     }
 
     /**
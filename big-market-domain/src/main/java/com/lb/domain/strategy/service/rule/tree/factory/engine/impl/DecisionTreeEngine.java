@@ -9,74 +9,141 @@ import com.lb.domain.strategy.service.rule.tree.factory.DefaultTreeFactory;
 import com.lb.domain.strategy.service.rule.tree.factory.engine.IDecisionTreeEngine;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
- * 决策树引擎
+ * 决策树引擎；创建时将规则树编译为数组结构，执行时只做下标跳转
+ * 1. 节点按下标存放，决策节点在编译时绑定
+ * 2. 节点的每种决策结果（RuleLogicCheckTypeVO）在编译时按连线顺序求出下一个节点下标，即跳转表
+ * 3. 接管（TAKE_OVER）表示节点已给出结果；未配置接管连线时决策结束，如库存扣减成功后直接返回奖品
+ * 4. 编译后不可变，同一规则树的并发执行共用一个引擎
  */
 @Slf4j
 public class DecisionTreeEngine implements IDecisionTreeEngine {
 
-    private final Map<String, ILogicTreeNode> logicTreeNodeGroup;
+    /** 跳转表；无后续连线，决策结束 */
+    private static final int END = -1;
+    /** 跳转表；有连线但放行结果未匹配任何连线 */
+    private static final int UNMATCHED = -2;
+
+    private static final RuleLogicCheckTypeVO[] CHECK_TYPES = RuleLogicCheckTypeVO.values();
 
     private final RuleTreeVO ruleTreeVO;
 
+    /** 根节点下标 */
+    private final int root;
+    /** 节点规则Key；按下标 */
+    private final String[] ruleKeys;
+    /** 决策节点；按下标 */
+    private final ILogicTreeNode[] logicTreeNodes;
+    /** 跳转表；[节点下标][决策结果 ordinal] -> 下个节点下标 */
+    private final int[][] jumpTable;
+
     public DecisionTreeEngine(Map<String, ILogicTreeNode> logicTreeNodeGroup, RuleTreeVO ruleTreeVO) {
-        this.logicTreeNodeGroup = logicTreeNodeGroup;
         this.ruleTreeVO = ruleTreeVO;
+
+        // 1. 节点编号
+        Map<String, RuleTreeNodeVO> treeNodeMap = ruleTreeVO.getTreeNodeMap();
+        Map<String, Integer> indexes = new HashMap<>();
+        ruleKeys = new String[treeNodeMap.size()];
+        logicTreeNodes = new ILogicTreeNode[treeNodeMap.size()];
+        for (Map.Entry<String, RuleTreeNodeVO> entry : treeNodeMap.entrySet()) {
+            int index = indexes.size();
+            String ruleKey = entry.getValue().getRuleKey();
+            ILogicTreeNode logicTreeNode = logicTreeNodeGroup.get(ruleKey);
+            if (null == logicTreeNode) {
+                throw new RuntimeException("决策树引擎，编译失败，未找到决策节点 treeId:" + ruleTreeVO.getTreeId() + " ruleKey:" + ruleKey);
+            }
+            indexes.put(entry.getKey(), index);
+            ruleKeys[index] = entry.getKey();
+            logicTreeNodes[index] = logicTreeNode;
+        }
+        root = indexOf(indexes, ruleTreeVO.getTreeRootRuleNode());
+
+        // 2. 跳转表；每种决策结果按连线顺序取第一个匹配的连线
+        jumpTable = new int[ruleKeys.length][CHECK_TYPES.length];
+        for (int i = 0; i < ruleKeys.length; i++) {
+            List<RuleTreeNodeLineVO> treeNodeLineVOList = treeNodeMap.get(ruleKeys[i]).getTreeNodeLineVOList();
+            for (RuleLogicCheckTypeVO checkType : CHECK_TYPES) {
+                jumpTable[i][checkType.ordinal()] = jump(indexes, checkType, treeNodeLineVOList);
+            }
+        }
     }
 
     @Override
     public DefaultTreeFactory.StrategyAwardData process(String userId, Long strategyId, Integer awardId) {
         DefaultTreeFactory.StrategyAwardData strategyAwardData = null;
 
-        // 获取基础信息
-        String nextNode = ruleTreeVO.getTreeRootRuleNode();
-        Map<String, RuleTreeNodeVO> treeNodeMap = ruleTreeVO.getTreeNodeMap();
-
-        // 获取起始节点「根节点记录了第一个要执行的规则」
-        RuleTreeNodeVO ruleTreeNode = treeNodeMap.get(nextNode);
-        while (null != nextNode) {
-            // 获取决策节点
-            ILogicTreeNode logicTreeNode = logicTreeNodeGroup.get(ruleTreeNode.getRuleKey());
-
-            // 决策节点计算
-            DefaultTreeFactory.TreeActionEntity logicEntity = logicTreeNode.logic(userId, strategyId, awardId);
+        // 从根节点开始，按决策结果查跳转表
+        int node = root;
+        while (node >= 0) {
+            DefaultTreeFactory.TreeActionEntity logicEntity = logicTreeNodes[node].logic(userId, strategyId, awardId);
             RuleLogicCheckTypeVO ruleLogicCheckTypeVO = logicEntity.getRuleLogicCheckType();
             strategyAwardData = logicEntity.getStrategyAwardData();
-            log.info("决策树引擎【{}】treeId:{} node:{} code:{}", ruleTreeVO.getTreeName(), ruleTreeVO.getTreeId(), nextNode, ruleLogicCheckTypeVO.getCode());
+            if (log.isDebugEnabled()) {
+                log.debug("决策树引擎【{}】treeId:{} node:{} code:{}", ruleTreeVO.getTreeName(), ruleTreeVO.getTreeId(), ruleKeys[node], ruleLogicCheckTypeVO.getCode());
+            }
 
-            // 获取下个节点
-            nextNode = nextNode(ruleLogicCheckTypeVO.getCode(), ruleTreeNode.getTreeNodeLineVOList());
-            ruleTreeNode = treeNodeMap.get(nextNode);
+            node = jumpTable[node][ruleLogicCheckTypeVO.ordinal()];
+            if (UNMATCHED == node) {
+                throw new RuntimeException("决策树引擎，nextNode 计算失败，未找到可执行节点！");
+            }
         }
 
         // 返回最终结果
         return strategyAwardData;
     }
 
-    public String nextNode(String matterValue, List<RuleTreeNodeLineVO> treeNodeLineVOList) {
-        if (null == treeNodeLineVOList || treeNodeLineVOList.isEmpty()) return null;
+    public RuleTreeVO getRuleTreeVO() {
+        return ruleTreeVO;
+    }
+
+    private int jump(Map<String, Integer> indexes, RuleLogicCheckTypeVO checkType, List<RuleTreeNodeLineVO> treeNodeLineVOList) {
+        if (null == treeNodeLineVOList || treeNodeLineVOList.isEmpty()) return END;
         for (RuleTreeNodeLineVO nodeLine : treeNodeLineVOList) {
-            if (decisionLogic(matterValue, nodeLine)) {
-                return nodeLine.getRuleNodeTo();
+            if (decisionLogic(checkType.getCode(), nodeLine)) {
+                return indexOf(indexes, nodeLine.getRuleNodeTo());
             }
         }
-        throw new RuntimeException("决策树引擎，nextNode 计算失败，未找到可执行节点！");
+        // 接管未配置连线，以当前节点的结果结束
+        return RuleLogicCheckTypeVO.TAKE_OVER == checkType ? END : UNMATCHED;
     }
 
+    private int indexOf(Map<String, Integer> indexes, String ruleNode) {
+        Integer index = indexes.get(ruleNode);
+        if (null == index) {
+            throw new RuntimeException("决策树引擎，编译失败，未找到节点 treeId:" + ruleTreeVO.getTreeId() + " node:" + ruleNode);
+        }
+        return index;
+    }
+
+    /**
+     * 连线判定；决策结果编码为数字串（0000、0001），大小比较按数值
+     */
     public boolean decisionLogic(String matterValue, RuleTreeNodeLineVO nodeLine) {
+        String limitValue = nodeLine.getRuleLimitValue().getCode();
         switch (nodeLine.getRuleLimitType()) {
             case EQUAL:
-                return matterValue.equals(nodeLine.getRuleLimitValue().getCode());
-            // 以下规则暂时不需要实现
+                return matterValue.equals(limitValue);
             case GT:
+                return compare(matterValue, limitValue) > 0;
             case LT:
+                return compare(matterValue, limitValue) < 0;
             case GE:
+                return compare(matterValue, limitValue) >= 0;
             case LE:
+                return compare(matterValue, limitValue) <= 0;
+            // 枚举范围暂不支持
+            case ENUM:
             default:
                 return false;
         }
     }
+
+    private int compare(String matterValue, String limitValue) {
+        return Long.compare(Long.parseLong(matterValue), Long.parseLong(limitValue));
+    }
+
 }
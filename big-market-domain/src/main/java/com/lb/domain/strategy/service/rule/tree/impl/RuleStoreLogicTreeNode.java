@@ -1,21 +1,55 @@
 package com.lb.domain.strategy.service.rule.tree.impl;
 
 import com.lb.domain.strategy.model.valobj.RuleLogicCheckTypeVO;
+import com.lb.domain.strategy.model.valobj.StrategyAwardStockKeyVO;
+import com.lb.domain.strategy.repository.IStrategyRepository;
+import com.lb.domain.strategy.service.armory.IStrategyDispatch;
 import com.lb.domain.strategy.service.rule.tree.ILogicTreeNode;
 import com.lb.domain.strategy.service.rule.tree.factory.DefaultTreeFactory;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Resource;
+
 /**
- * 库存节点
+ * 库存节点；扣减成功接管并返回奖品，扣减失败放行到后续节点（兜底奖励）
  */
 @Slf4j
 @Component("rule_stock")
 public class RuleStoreLogicTreeNode implements ILogicTreeNode {
+
+    @Resource
+    private IStrategyDispatch strategyDispatch;
+
+    @Resource
+    private IStrategyRepository strategyRepository;
+
     @Override
     public DefaultTreeFactory.TreeActionEntity logic(String userId, Long strategyId, Integer awardId) {
+        log.info("规则过滤-库存扣减 userId:{} strategyId:{} awardId:{}", userId, strategyId, awardId);
+        // 扣减库存
+        Boolean status = strategyDispatch.subtractionAwardStock(userId, strategyId, awardId);
+        // true；扣减成功
+        if (status) {
+            // 写入延迟队列，延迟消费更新数据库记录
+            strategyRepository.awardStockConsumeSendQueue(StrategyAwardStockKeyVO.builder()
+                    .strategyId(strategyId)
+                    .awardId(awardId)
+                    .build());
+
+            return DefaultTreeFactory.TreeActionEntity.builder()
+                    .ruleLogicCheckType(RuleLogicCheckTypeVO.TAKE_OVER)
+                    .strategyAwardData(DefaultTreeFactory.StrategyAwardData.builder()
+                            .awardId(awardId)
+                            .build())
+                    .build();
+        }
+
+        // 如果库存不足，则直接返回放行
+        log.warn("规则过滤-库存扣减-告警，库存不足。userId:{} strategyId:{} awardId:{}", userId, strategyId, awardId);
         return DefaultTreeFactory.TreeActionEntity.builder()
-                .ruleLogicCheckType(RuleLogicCheckTypeVO.TAKE_OVER)
+                .ruleLogicCheckType(RuleLogicCheckTypeVO.ALLOW)
                 .build();
     }
+
 }
@@ -0,0 +1,16 @@
+package com.lb.infrastructure.persistent.dao;
+
+import com.lb.infrastructure.persistent.po.RuleTreeDetail;
+import org.apache.ibatis.annotations.Mapper;
+
+import java.util.List;
+
+/**
+ * 规则树 DAO
+ */
+@Mapper
+public interface IRuleTreeDao {
+
+    List<RuleTreeDetail> queryRuleTreeDetailList(Integer treeId);
+
+}
@@ -2,6 +2,7 @@ package com.lb.infrastructure.persistent.dao;
 
 import com.lb.infrastructure.persistent.po.StrategyAward;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 
 import java.util.List;
 
@@ -17,4 +18,8 @@ public interface IStrategyAwardDao {
 
     String queryStrategyAwardRuleModels(StrategyAward strategyAward);
 
+    List<StrategyAward> queryStrategyAwardRuleModelsList(Long strategyId);
+
+    int updateStrategyAwardStock(@Param("strategyId") Long strategyId, @Param("awardId") Integer awardId, @Param("count") Integer count);
+
 }
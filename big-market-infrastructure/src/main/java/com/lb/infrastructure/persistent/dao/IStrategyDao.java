@@ -14,4 +14,6 @@ public interface IStrategyDao {
     List<Strategy> queryStrategyList();
 
     Strategy queryStrategyByStrategyId(Long strategyId);
+
+    List<Long> queryActiveStrategyIdList();
 }
@@ -16,4 +16,8 @@ public interface IStrategyRuleDao {
     StrategyRule queryStrategyRule(StrategyRule strategyRuleReq);
 
     String queryStrategyRuleValue(StrategyRule strategyRule);
+
+    String queryStrategyRuleValueDigest(StrategyRule strategyRule);
+
+    List<StrategyRule> queryStrategyRuleListByRuleModel(StrategyRule strategyRule);
 }
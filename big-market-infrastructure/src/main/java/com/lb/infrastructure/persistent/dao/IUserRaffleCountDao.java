@@ -0,0 +1,18 @@
+package com.lb.infrastructure.persistent.dao;
+
+import com.lb.infrastructure.persistent.po.UserRaffleCount;
+import org.apache.ibatis.annotations.Mapper;
+
+import java.util.List;
+
+/**
+ * 用户抽奖次数 DAO
+ */
+@Mapper
+public interface IUserRaffleCountDao {
+
+    Long queryRaffleCount(UserRaffleCount userRaffleCount);
+
+    void upsertUserRaffleCountList(List<UserRaffleCount> userRaffleCounts);
+
+}
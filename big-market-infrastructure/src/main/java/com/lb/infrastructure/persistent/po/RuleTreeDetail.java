@@ -0,0 +1,30 @@
+package com.lb.infrastructure.persistent.po;
+
+import lombok.Data;
+
+/**
+ * 规则树明细；rule_tree、rule_tree_node、rule_tree_node_line 关联查询的一行，即一个节点的一条连线
+ */
+@Data
+public class RuleTreeDetail {
+    /** 规则树ID */
+    private Integer treeId;
+    /** 规则树名称 */
+    private String treeName;
+    /** 规则树描述 */
+    private String treeDesc;
+    /** 规则树根入口规则 */
+    private String treeRootRuleKey;
+    /** 规则Key */
+    private String ruleKey;
+    /** 规则描述 */
+    private String ruleDesc;
+    /** 规则比值 */
+    private String ruleValue;
+    /** 规则Key节点 To；节点无连线时为 null */
+    private String ruleNodeTo;
+    /** 限定类型；EQUAL、GT、LT、GE、LE、ENUM */
+    private String ruleLimitType;
+    /** 限定值（到下个节点）；ALLOW、TAKE_OVER */
+    private String ruleLimitValue;
+}
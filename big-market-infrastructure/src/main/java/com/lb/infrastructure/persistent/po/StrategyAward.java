@@ -28,6 +28,12 @@ public class StrategyAward {
     private BigDecimal awardRate;
     /** 规则模型，rule配置的模型同步到此表，便于使用 */
     private String ruleModels;
+    /** 抽奖后规则树ID */
+    private Integer treeId;
+    /** 库存分段数 */
+    private Integer stockSegments;
+    /** 库存租约；0-关闭、1-开启 */
+    private Integer stockLease;
     /** 排序 */
     private Integer sort;
     /** 创建时间 */
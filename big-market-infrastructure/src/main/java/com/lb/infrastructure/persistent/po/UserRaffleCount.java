@@ -0,0 +1,24 @@
+package com.lb.infrastructure.persistent.po;
+
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * 用户抽奖次数表
+ */
+@Data
+public class UserRaffleCount {
+    /** 自增ID */
+    private Long id;
+    /** 用户ID */
+    private String userId;
+    /** 抽奖策略ID */
+    private Long strategyId;
+    /** 抽奖次数 */
+    private Long raffleCount;
+    /** 创建时间 */
+    private Date createTime;
+    /** 更新时间 */
+    private Date updateTime;
+}
@@ -2,6 +2,9 @@ package com.lb.infrastructure.persistent.redis;
 
 import org.redisson.api.*;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * Redis 服务
  */
@@ -32,6 +35,59 @@ public interface IRedisService {
      */
     <T> T getValue(String key);
 
+    /**
+     * 获取指定 key 的字符串值；用于读取 Lua 脚本按字符串写入的值
+     *
+     * @param key 键
+     * @return 值
+     */
+    String getString(String key);
+
+    /**
+     * 批量获取字符串值；多个 key 一次读取，不存在的 key 不在结果中
+     *
+     * @param keys 键
+     * @return 键值
+     */
+    Map<String, String> getStrings(List<String> keys);
+
+    /**
+     * 获取指定 key 的二进制值
+     *
+     * @param key 键
+     * @return 值
+     */
+    byte[] getBytes(String key);
+
+    /**
+     * 获取指定 key 二进制值的一段；GETRANGE
+     *
+     * @param key    键
+     * @param offset 起始偏移
+     * @param length 长度
+     * @return 值；超出部分不返回
+     */
+    byte[] getBytes(String key, long offset, int length);
+
+    /**
+     * 重命名 key；目标 key 已存在时原子覆盖
+     *
+     * @param key    键
+     * @param newKey 新键
+     */
+    void rename(String key, String newKey);
+
+    /**
+     * 执行 Lua 脚本；参数和返回值按字符串编解码
+     *
+     * @param script     脚本
+     * @param returnType 返回值类型
+     * @param keys       键
+     * @param values     参数
+     * @return 脚本返回值
+     */
+    <T> T evalScript(String script, RScript.ReturnType returnType, List<Object> keys, Object... values);
+
     /**
      * 获取队列
      *
@@ -59,6 +115,14 @@ public interface IRedisService {
      */
     <T> RDelayedQueue<T> getDelayedQueue(RBlockingQueue<T> rBlockingQueue);
 
+    /**
+     * 发布/订阅主题
+     *
+     * @param key 键
+     * @return 主题
+     */
+    RTopic getTopic(String key);
+
     /**
      * 自增 Key 的值；1、2、3、4
      *
@@ -92,6 +156,40 @@ public interface IRedisService {
     long decrBy(String key, long delta);
 
 
+    /**
+     * 设置原子计数的值
+     *
+     * @param key   键
+     * @param value 值
+     */
+    void setAtomicLong(String key, long value);
+
+    /**
+     * 获取原子计数的值；不存在时为 0
+     *
+     * @param key 键
+     * @return 值
+     */
+    long getAtomicLong(String key);
+
+    /**
+     * 原子计数不存在时设置初始值
+     *
+     * @param key   键
+     * @param value 值
+     * @return 是否设置成功；已存在时返回 false
+     */
+    boolean setAtomicLongIfAbsent(String key, long value);
+
+    /**
+     * 不存在时设置 key，用于加锁
+     *
+     * @param key     键
+     * @param expired 过期时间（毫秒）
+     * @return 是否设置成功
+     */
+    boolean setNx(String key, long expired);
+
     /**
      * 移除指定 key 的值
      *
@@ -99,6 +197,14 @@ public interface IRedisService {
      */
     void remove(String key);
 
+    /**
+     * 设置指定 key 的过期时间
+     *
+     * @param key     键
+     * @param expired 过期时间（毫秒）
+     */
+    void expire(String key, long expired);
+
     /**
      * 判断指定 key 的值是否存在
      *
@@ -124,6 +230,14 @@ public interface IRedisService {
      */
     boolean isSetMember(String key, String value);
 
+    /**
+     * 获取集合
+     *
+     * @param key 键
+     * @return 集合
+     */
+    <T> RSet<T> getSet(String key);
+
     /**
      * 将指定的值添加到列表中
      *
@@ -235,6 +349,13 @@ public interface IRedisService {
      */
     RCountDownLatch getCountDownLatch(String key);
 
+    /**
+     * 批量操作；命令在客户端缓存，execute 时以流水线方式一次发送
+     *
+     * @return RBatch
+     */
+    RBatch createBatch();
+
     /**
      * 布隆过滤器
      *
@@ -1,10 +1,19 @@
 package com.lb.infrastructure.persistent.redis;
 
 import org.redisson.api.*;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.redisson.client.codec.StringCodec;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Redis 服务 - Redisson
@@ -29,6 +38,43 @@ public class RedissonService implements IRedisService {
         return redissonClient.<T>getBucket(key).get();
     }
 
+    @Override
+    public String getString(String key) {
+        return redissonClient.<String>getBucket(key, StringCodec.INSTANCE).get();
+    }
+
+    @Override
+    public Map<String, String> getStrings(List<String> keys) {
+        return redissonClient.getBuckets(StringCodec.INSTANCE).get(keys.toArray(new String[0]));
+    }
+
+    @Override
+    public byte[] getBytes(String key) {
+        return redissonClient.<byte[]>getBucket(key, ByteArrayCodec.INSTANCE).get();
+    }
+
+    @Override
+    public byte[] getBytes(String key, long offset, int length) {
+        try (SeekableByteChannel channel = redissonClient.getBinaryStream(key).getChannel()) {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            channel.position(offset);
+            channel.read(buffer);
+            return Arrays.copyOf(buffer.array(), buffer.position());
+        } catch (IOException e) {
+            throw new RuntimeException("redis getrange error " + key, e);
+        }
+    }
+
+    @Override
+    public void rename(String key, String newKey) {
+        redissonClient.getBucket(key).rename(newKey);
+    }
+
+    @Override
+    public <T> T evalScript(String script, RScript.ReturnType returnType, List<Object> keys, Object... values) {
+        return redissonClient.getScript(StringCodec.INSTANCE).eval(RScript.Mode.READ_WRITE, script, returnType, keys, values);
+    }
+
     @Override
     public <T> RQueue<T> getQueue(String key) {
         return redissonClient.getQueue(key);
@@ -44,6 +90,11 @@ public class RedissonService implements IRedisService {
         return redissonClient.getDelayedQueue(rBlockingQueue);
     }
 
+    @Override
+    public RTopic getTopic(String key) {
+        return redissonClient.getTopic(key);
+    }
+
     @Override
     public long incr(String key) {
         return redissonClient.getAtomicLong(key).incrementAndGet();
@@ -64,11 +115,37 @@ public class RedissonService implements IRedisService {
         return redissonClient.getAtomicLong(key).addAndGet(-delta);
     }
 
+    @Override
+    public void setAtomicLong(String key, long value) {
+        redissonClient.getAtomicLong(key).set(value);
+    }
+
+    @Override
+    public long getAtomicLong(String key) {
+        return redissonClient.getAtomicLong(key).get();
+    }
+
+    @Override
+    public boolean setAtomicLongIfAbsent(String key, long value) {
+        // 原子计数以数字字符串存储，与 RAtomicLong 的 INCRBY/DECRBY 兼容
+        return redissonClient.<String>getBucket(key, StringCodec.INSTANCE).trySet(String.valueOf(value));
+    }
+
+    @Override
+    public boolean setNx(String key, long expired) {
+        return redissonClient.<String>getBucket(key, StringCodec.INSTANCE).trySet("lock", expired, TimeUnit.MILLISECONDS);
+    }
+
     @Override
     public void remove(String key) {
         redissonClient.getBucket(key).delete();
     }
 
+    @Override
+    public void expire(String key, long expired) {
+        redissonClient.getBucket(key).expire(Duration.ofMillis(expired));
+    }
+
     @Override
     public boolean isExists(String key) {
         return redissonClient.getBucket(key).isExists();
@@ -84,6 +161,11 @@ public class RedissonService implements IRedisService {
         return set.contains(value);
     }
 
+    @Override
+    public <T> RSet<T> getSet(String key) {
+        return redissonClient.getSet(key);
+    }
+
     public void addToList(String key, String value) {
         RList<String> list = redissonClient.getList(key);
         list.add(value);
@@ -149,6 +231,11 @@ public class RedissonService implements IRedisService {
         return redissonClient.getCountDownLatch(key);
     }
 
+    @Override
+    public RBatch createBatch() {
+        return redissonClient.createBatch(BatchOptions.defaults());
+    }
+
     @Override
     public <T> RBloomFilter<T> getBloomFilter(String key) {
         return redissonClient.getBloomFilter(key);
@@ -0,0 +1,386 @@
+package com.lb.infrastructure.persistent.repository;
+
+import com.lb.domain.strategy.model.valobj.StrategyAwardStockKeyVO;
+import com.lb.domain.strategy.model.valobj.StrategyAwardStockResultVO;
+import com.lb.infrastructure.persistent.redis.IRedisService;
+import com.lb.types.common.Constants;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RDelayedQueue;
+import org.redisson.api.RScript;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 奖品库存租约；大库存奖品由各节点从 Redis 库存计数中一次领取一段库存，本地 CAS 扣减，用完后再领取下一段。
+ * 1. 领取的库存从 Redis 计数中扣除，归本节点独占，本地扣减不会超卖，也不需要库存值加锁
+ * 2. 租约大小按上一段库存的消耗速度调整，目标为一段库存约可使用 targetDuration 毫秒
+ * 3. 租约空闲超过 idleTimeout 或应用关闭时，未使用的库存归还 Redis
+ * 4. 本地扣减的库存按奖品累计，定时合并为一条带数量的扣减记录写入队列
+ * 5. 各节点持有的库存记录在 Redis 租约记录中，随定时任务同步；节点宕机、心跳过期后，由库存任务将其租约库存归还
+ */
+@Slf4j
+@Component
+public class StrategyAwardStockLease {
+
+    /**
+     * 领取一段库存；库存不足时领取剩余全部。本地租约已用完，上一段的租约记录清除，领取数量记入本段的租约记录
+     * 库存耗尽时，其他节点仍持有租约库存返回 -1，否则返回 0
+     * KEYS[1] 库存 key KEYS[2] 租约记录 KEYS[3] 租约记录集合 KEYS[4] 上一段的租约记录 ARGV[1] 领取数量 ARGV[2] 节点ID
+     */
+    private static final String CLAIM_SCRIPT =
+            "local surplus = tonumber(redis.call('GET', KEYS[1]) or '0')\n" +
+            "if surplus <= 0 then\n" +
+            "  local values = redis.call('HGETALL', KEYS[2])\n" +
+            "  for i = 1, #values, 2 do\n" +
+            "    if values[i] ~= ARGV[2] and tonumber(values[i + 1]) > 0 then return -1 end\n" +
+            "  end\n" +
+            "  return 0\n" +
+            "end\n" +
+            "local count = math.min(surplus, tonumber(ARGV[1]))\n" +
+            "redis.call('DECRBY', KEYS[1], count)\n" +
+            "redis.call('HDEL', KEYS[4], ARGV[2])\n" +
+            "redis.call('HSET', KEYS[2], ARGV[2], count)\n" +
+            "redis.call('SADD', KEYS[3], KEYS[1])\n" +
+            "return count";
+
+    /**
+     * 同步本地剩余库存到租约记录；剩余库存大于 0 而租约记录已不存在时，租约已被回收，返回 0
+     * KEYS[1] 租约记录 ARGV[1] 节点ID ARGV[2] 本地剩余库存
+     */
+    private static final String SYNC_SCRIPT =
+            "if tonumber(ARGV[2]) <= 0 then redis.call('HDEL', KEYS[1], ARGV[1]) return 1 end\n" +
+            "if redis.call('HEXISTS', KEYS[1], ARGV[1]) == 0 then return 0 end\n" +
+            "redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])\n" +
+            "return 1";
+
+    /**
+     * 归还未使用的库存；租约记录已被回收时不再归还，避免重复归还
+     * KEYS[1] 库存 key KEYS[2] 租约记录 ARGV[1] 节点ID ARGV[2] 归还数量
+     */
+    private static final String RELEASE_SCRIPT =
+            "if redis.call('HDEL', KEYS[2], ARGV[1]) == 0 then return 0 end\n" +
+            "if tonumber(ARGV[2]) > 0 then redis.call('INCRBY', KEYS[1], ARGV[2]) end\n" +
+            "return 1";
+
+    /**
+     * 回收节点的租约库存；租约记录为空时移出租约记录集合
+     * KEYS[1] 库存 key KEYS[2] 租约记录 KEYS[3] 租约记录集合 ARGV[1] 节点ID
+     */
+    private static final String RECLAIM_SCRIPT =
+            "local count = tonumber(redis.call('HGET', KEYS[2], ARGV[1]) or '0')\n" +
+            "redis.call('HDEL', KEYS[2], ARGV[1])\n" +
+            "if count > 0 then redis.call('INCRBY', KEYS[1], count) end\n" +
+            "if redis.call('HLEN', KEYS[2]) == 0 then redis.call('SREM', KEYS[3], KEYS[1]) end\n" +
+            "return count";
+
+    /**
+     * 租约记录集合
+     * KEYS[1] 租约记录集合
+     */
+    private static final String MEMBERS_SCRIPT = "return redis.call('SMEMBERS', KEYS[1])";
+
+    /**
+     * 持有租约的节点
+     * KEYS[1] 租约记录
+     */
+    private static final String NODES_SCRIPT = "return redis.call('HKEYS', KEYS[1])";
+
+
+    private final IRedisService redisService;
+
+    /** 租约最小数量 */
+    private final int minSize;
+    /** 租约最大数量 */
+    private final int maxSize;
+    /** 一段库存的目标使用时长（毫秒） */
+    private final long targetDuration;
+    /** 租约空闲时长（毫秒）；超过后归还未使用的库存 */
+    private final long idleTimeout;
+    /** 扣减记录合并写入队列的间隔（毫秒） */
+    private final long flushInterval;
+    /** 节点心跳过期时间（毫秒）；心跳过期的节点视为宕机，其租约库存被回收。应远大于 flushInterval */
+    private final long leaseTtl;
+    /** 库存扣减记录的延迟时间（毫秒） */
+    private final long stockQueueDelay;
+
+    /** 本节点持有的租约；key 为库存 key */
+    private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+
+    /** 待写入队列的扣减数量；key 为不含数量的扣减记录 */
+    private final Map<StrategyAwardStockKeyVO, LongAdder> pendingCounts = new ConcurrentHashMap<>();
+
+    private RDelayedQueue<StrategyAwardStockKeyVO> awardStockDelayedQueue;
+
+    private ScheduledExecutorService scheduledExecutorService;
+
+    /** 节点ID；每次启动重新生成，宕机的节点不会以相同ID恢复 */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public StrategyAwardStockLease(IRedisService redisService,
+                                   @Value("${strategy.stock.lease.min-size:10}") int minSize,
+                                   @Value("${strategy.stock.lease.max-size:1000}") int maxSize,
+                                   @Value("${strategy.stock.lease.target-duration:1000}") long targetDuration,
+                                   @Value("${strategy.stock.lease.idle-timeout:10000}") long idleTimeout,
+                                   @Value("${strategy.stock.lease.flush-interval:1000}") long flushInterval,
+                                   @Value("${strategy.stock.lease.ttl:30000}") long leaseTtl,
+                                   @Value("${strategy.stock.queue-delay:3000}") long stockQueueDelay) {
+        this.redisService = redisService;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.targetDuration = targetDuration;
+        this.idleTimeout = idleTimeout;
+        this.flushInterval = flushInterval;
+        this.leaseTtl = leaseTtl;
+        this.stockQueueDelay = stockQueueDelay;
+    }
+
+    @PostConstruct
+    public void init() {
+        heartbeat();
+        awardStockDelayedQueue = redisService.getDelayedQueue(redisService.getBlockingQueue(Constants.RedisKey.STRATEGY_AWARD_COUNT_QUERY_KEY));
+        scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "award-stock-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduledExecutorService.scheduleWithFixedDelay(this::maintain, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduledExecutorService.shutdown();
+        flush();
+        for (String cacheKey : leases.keySet()) {
+            release(cacheKey);
+        }
+        redisService.remove(Constants.RedisKey.STRATEGY_AWARD_STOCK_LEASE_NODE_KEY + nodeId);
+    }
+
+    /**
+     * 扣减库存；优先本地扣减，本地租约用完后从 Redis 领取下一段
+     *
+     * @param cacheKey    库存 key
+     * @param segmentKeys 领取库存的 key；分段库存为各分段 key，否则为库存 key
+     * @return 扣减结果；各分段均已耗尽且其他节点未持有租约库存时为售罄
+     */
+    public StrategyAwardStockResultVO subtraction(String cacheKey, String[] segmentKeys) {
+        Lease lease = leases.computeIfAbsent(cacheKey, key -> new Lease(minSize));
+        lease.accessTime = System.currentTimeMillis();
+        while (true) {
+            if (lease.tryAcquire()) return StrategyAwardStockResultVO.SUCCESS;
+            synchronized (lease) {
+                // 租约已归还，使用新的租约
+                if (lease.released) {
+                    lease = leases.computeIfAbsent(cacheKey, key -> new Lease(minSize));
+                    continue;
+                }
+                // 等锁期间其他线程可能已领取
+                if (lease.remaining.get() > 0) continue;
+                StrategyAwardStockResultVO claimed = claim(lease, segmentKeys, lease.nextSize(minSize, maxSize, targetDuration));
+                if (StrategyAwardStockResultVO.SUCCESS != claimed) return claimed;
+                log.info("奖品库存租约领取 cacheKey: {} count: {}", cacheKey, lease.remaining.get());
+            }
+        }
+    }
+
+    /**
+     * 累计本地扣减记录；由定时任务合并写入队列
+     *
+     * @param strategyAwardStockKeyVO 扣减记录
+     */
+    public void consume(StrategyAwardStockKeyVO strategyAwardStockKeyVO) {
+        StrategyAwardStockKeyVO stockKey = StrategyAwardStockKeyVO.builder()
+                .strategyId(strategyAwardStockKeyVO.getStrategyId())
+                .awardId(strategyAwardStockKeyVO.getAwardId())
+                .build();
+        pendingCounts.computeIfAbsent(stockKey, key -> new LongAdder()).increment();
+    }
+
+    /**
+     * 回收心跳过期节点的租约库存；由库存任务定时调用
+     *
+     * @return 回收的库存数量
+     */
+    public long reclaim() {
+        List<Object> claimKeys = redisService.evalScript(MEMBERS_SCRIPT, RScript.ReturnType.MULTI,
+                Collections.singletonList(Constants.RedisKey.STRATEGY_AWARD_STOCK_LEASE_SET_KEY));
+        if (null == claimKeys || claimKeys.isEmpty()) return 0;
+        long reclaimed = 0;
+        for (Object claimKey : claimKeys) {
+            String leaseKey = leaseKey(String.valueOf(claimKey));
+            List<Object> nodeIds = redisService.evalScript(NODES_SCRIPT, RScript.ReturnType.MULTI, Collections.singletonList(leaseKey));
+            if (null == nodeIds || nodeIds.isEmpty()) {
+                // 租约记录已清空，移出租约记录集合；空节点ID不会对应任何租约
+                reclaim(claimKey, leaseKey, "");
+                continue;
+            }
+            for (Object leaseNodeId : nodeIds) {
+                if (nodeId.equals(leaseNodeId) || redisService.isExists(Constants.RedisKey.STRATEGY_AWARD_STOCK_LEASE_NODE_KEY + leaseNodeId)) continue;
+                long count = reclaim(claimKey, leaseKey, String.valueOf(leaseNodeId));
+                if (count <= 0) continue;
+                reclaimed += count;
+                log.info("奖品库存租约回收 claimKey: {} nodeId: {} count: {}", claimKey, leaseNodeId, count);
+            }
+        }
+        return reclaimed;
+    }
+
+    private long reclaim(Object claimKey, String leaseKey, String leaseNodeId) {
+        Long count = redisService.evalScript(RECLAIM_SCRIPT, RScript.ReturnType.INTEGER,
+                Arrays.asList(claimKey, leaseKey, Constants.RedisKey.STRATEGY_AWARD_STOCK_LEASE_SET_KEY), leaseNodeId);
+        return null == count ? 0 : count;
+    }
+
+    /**
+     * 领取一段库存；分段库存随机选择起始分段，耗尽时依次尝试其余分段
+     */
+    private StrategyAwardStockResultVO claim(Lease lease, String[] segmentKeys, int size) {
+        StrategyAwardStockResultVO result = StrategyAwardStockResultVO.SOLD_OUT;
+        int start = segmentKeys.length > 1 ? ThreadLocalRandom.current().nextInt(segmentKeys.length) : 0;
+        for (int i = 0; i < segmentKeys.length; i++) {
+            String segmentKey = segmentKeys[(start + i) % segmentKeys.length];
+            String previousLeaseKey = leaseKey(null == lease.claimKey ? segmentKey : lease.claimKey);
+            List<Object> keys = Arrays.asList(segmentKey, leaseKey(segmentKey), Constants.RedisKey.STRATEGY_AWARD_STOCK_LEASE_SET_KEY, previousLeaseKey);
+            Long count = redisService.evalScript(CLAIM_SCRIPT, RScript.ReturnType.INTEGER, keys, String.valueOf(size), nodeId);
+            if (null != count && count > 0) {
+                lease.claimKey = segmentKey;
+                lease.remaining.addAndGet(count);
+                return StrategyAwardStockResultVO.SUCCESS;
+            }
+            // 其他节点仍持有该分段的租约库存
+            if (null != count && count < 0) result = StrategyAwardStockResultVO.FAILED;
+        }
+        return result;
+    }
+
+    private void maintain() {
+        try {
+            heartbeat();
+            flush();
+            long now = System.currentTimeMillis();
+            for (Map.Entry<String, Lease> entry : leases.entrySet()) {
+                if (now - entry.getValue().accessTime >= idleTimeout) {
+                    release(entry.getKey());
+                } else {
+                    sync(entry.getKey(), entry.getValue());
+                }
+            }
+        } catch (Exception e) {
+            log.error("奖品库存租约维护失败", e);
+        }
+    }
+
+    private void heartbeat() {
+        redisService.setValue(Constants.RedisKey.STRATEGY_AWARD_STOCK_LEASE_NODE_KEY + nodeId, System.currentTimeMillis(), leaseTtl);
+    }
+
+    /**
+     * 本地剩余库存同步到租约记录；与领取互斥，宕机时最多多归还一个同步间隔内扣减的库存
+     */
+    private void sync(String cacheKey, Lease lease) {
+        synchronized (lease) {
+            if (lease.released || null == lease.claimKey) return;
+            Long synced = redisService.evalScript(SYNC_SCRIPT, RScript.ReturnType.INTEGER,
+                    Collections.singletonList(leaseKey(lease.claimKey)), nodeId, String.valueOf(lease.remaining.get()));
+            if (null == synced || 1 == synced) return;
+            // 心跳曾过期，租约已被回收，本地剩余库存作废
+            leases.remove(cacheKey, lease);
+            lease.released = true;
+            log.warn("奖品库存租约已被回收 cacheKey: {} count: {}", cacheKey, lease.remaining.getAndSet(0));
+        }
+    }
+
+    private void flush() {
+        for (Map.Entry<StrategyAwardStockKeyVO, LongAdder> entry : pendingCounts.entrySet()) {
+            long count = entry.getValue().sumThenReset();
+            if (count <= 0) continue;
+            awardStockDelayedQueue.offer(StrategyAwardStockKeyVO.builder()
+                    .strategyId(entry.getKey().getStrategyId())
+                    .awardId(entry.getKey().getAwardId())
+                    .count((int) count)
+                    .build(), stockQueueDelay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 归还未使用的库存；归还到最后一次领取的 key，分段库存的总量不变
+     */
+    private void release(String cacheKey) {
+        Lease lease = leases.remove(cacheKey);
+        if (null == lease) return;
+        long remaining;
+        synchronized (lease) {
+            lease.released = true;
+            remaining = lease.remaining.getAndSet(0);
+        }
+        if (null == lease.claimKey) return;
+        Long released = redisService.evalScript(RELEASE_SCRIPT, RScript.ReturnType.INTEGER,
+                Arrays.asList(lease.claimKey, leaseKey(lease.claimKey)), nodeId, String.valueOf(remaining));
+        if (remaining <= 0) return;
+        if (null == released || 0 == released) {
+            log.warn("奖品库存租约已被回收，不再归还 cacheKey: {} count: {}", cacheKey, remaining);
+            return;
+        }
+        log.info("奖品库存租约归还 cacheKey: {} count: {}", cacheKey, remaining);
+    }
+
+    private String leaseKey(String claimKey) {
+        return Constants.RedisKey.STRATEGY_AWARD_STOCK_LEASE_KEY + claimKey;
+    }
+
+    private static class Lease {
+
+        /** 本地剩余库存 */
+        private final AtomicLong remaining = new AtomicLong();
+        /** 上一段领取的数量 */
+        private volatile int size;
+        /** 上一段领取的时间 */
+        private volatile long claimTime;
+        /** 最近一次扣减的时间 */
+        private volatile long accessTime;
+        /** 归还库存的 key */
+        private volatile String claimKey;
+        /** 是否已归还 */
+        private volatile boolean released;
+
+        private Lease(int size) {
+            this.size = size;
+        }
+
+        private boolean tryAcquire() {
+            long current;
+            do {
+                current = remaining.get();
+                if (current <= 0) return false;
+            } while (!remaining.compareAndSet(current, current - 1));
+            return true;
+        }
+
+        /**
+         * 下一段领取的数量；上一段用完的耗时短于目标时长时增大，长于目标时长时减小
+         */
+        private int nextSize(int minSize, int maxSize, long targetDuration) {
+            long now = System.currentTimeMillis();
+            if (claimTime > 0) {
+                long elapsed = Math.max(1, now - claimTime);
+                long next = size * targetDuration / elapsed;
+                size = (int) Math.max(minSize, Math.min(maxSize, next));
+            }
+            claimTime = now;
+            return size;
+        }
+
+    }
+
+}
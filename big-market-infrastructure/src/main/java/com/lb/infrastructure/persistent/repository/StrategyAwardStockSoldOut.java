@@ -0,0 +1,143 @@
+package com.lb.infrastructure.persistent.repository;
+
+import com.lb.domain.strategy.model.valobj.StrategyAwardStockKeyVO;
+import com.lb.infrastructure.persistent.redis.IRedisService;
+import com.lb.types.common.Constants;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 奖品售罄标记；按策略记录本节点已知售罄的奖品，抽奖时直接判定库存不足，不访问 Redis。
+ * 1. 奖品售罄时本地标记，并通过 Redis 发布/订阅通知集群内其他节点
+ * 2. 标记为与策略奖品ID升序数组等长的标记时间数组，按奖品下标记录；写时复制，读取无锁
+ * 3. 每个奖品的标记各自超过校验间隔后失效，下次抽奖重新访问 Redis；运营补充库存、租约归还库存后可再次发放
+ * 4. 策略奖品ID变化（奖品配置变更后索引重新加载）时，按旧下标的标记作废
+ */
+@Slf4j
+@Component
+public class StrategyAwardStockSoldOut {
+
+    private final IRedisService redisService;
+
+    /** 售罄标记的校验间隔（毫秒） */
+    private final long recheckInterval;
+
+    /** 售罄奖品；key 为策略ID */
+    private final Map<Long, SoldOutAwards> soldOutAwards = new ConcurrentHashMap<>();
+
+    /** 策略奖品ID升序数组；由仓储提供，未加载的策略为 null，本节点未抽过的策略不记录售罄标记 */
+    private Function<Long, int[]> strategyAwardIds;
+
+    private RTopic topic;
+
+    private int listenerId;
+
+    public StrategyAwardStockSoldOut(IRedisService redisService,
+                                     @Value("${strategy.stock.sold-out.recheck-interval:60000}") long recheckInterval) {
+        this.redisService = redisService;
+        this.recheckInterval = recheckInterval;
+    }
+
+    @PostConstruct
+    public void init() {
+        topic = redisService.getTopic(Constants.RedisKey.STRATEGY_AWARD_SOLD_OUT_TOPIC);
+        listenerId = topic.addListener(StrategyAwardStockKeyVO.class, (channel, message) -> mark(message.getStrategyId(), message.getAwardId()));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        topic.removeListener(listenerId);
+    }
+
+    /**
+     * 设置策略奖品ID的来源；由仓储在初始化时设置
+     */
+    public void setStrategyAwardIds(Function<Long, int[]> strategyAwardIds) {
+        this.strategyAwardIds = strategyAwardIds;
+    }
+
+    /**
+     * 奖品是否已售罄
+     *
+     * @param strategyId 策略ID
+     * @param awardId    奖品ID
+     * @return 是否已售罄
+     */
+    public boolean isSoldOut(Long strategyId, Integer awardId) {
+        SoldOutAwards awards = soldOutAwards.get(strategyId);
+        if (null == awards) return false;
+        if (!Arrays.equals(awards.awardIds, strategyAwardIds.apply(strategyId))) {
+            soldOutAwards.remove(strategyId, awards);
+            return false;
+        }
+        int index = Arrays.binarySearch(awards.awardIds, awardId);
+        return index >= 0 && isMarked(awards.markTimes[index], System.currentTimeMillis());
+    }
+
+    /**
+     * 标记奖品售罄并通知集群内其他节点
+     *
+     * @param strategyId 策略ID
+     * @param awardId    奖品ID
+     */
+    public void soldOut(Long strategyId, Integer awardId) {
+        mark(strategyId, awardId);
+        try {
+            topic.publish(StrategyAwardStockKeyVO.builder().strategyId(strategyId).awardId(awardId).build());
+        } catch (Exception e) {
+            // 通知失败时其他节点各自访问 Redis 后标记
+            log.error("奖品售罄通知失败 strategyId: {} awardId: {}", strategyId, awardId, e);
+        }
+    }
+
+    private void mark(Long strategyId, Integer awardId) {
+        if (null == strategyAwardIds) return;
+        int[] awardIds = strategyAwardIds.apply(strategyId);
+        if (null == awardIds) return;
+        int index = Arrays.binarySearch(awardIds, awardId);
+        if (index < 0) return;
+        soldOutAwards.compute(strategyId, (key, awards) -> {
+            long now = System.currentTimeMillis();
+            // 奖品ID数组已变化的标记不再沿用
+            if (null == awards || !Arrays.equals(awards.awardIds, awardIds)) {
+                awards = new SoldOutAwards(awardIds, new long[awardIds.length]);
+            }
+            if (isMarked(awards.markTimes[index], now)) return awards;
+            long[] markTimes = awards.markTimes.clone();
+            markTimes[index] = now;
+            log.info("奖品售罄标记 strategyId: {} awardId: {}", strategyId, awardId);
+            return new SoldOutAwards(awardIds, markTimes);
+        });
+    }
+
+    /**
+     * 标记存在且未超过校验间隔
+     */
+    private boolean isMarked(long markTime, long now) {
+        return markTime > 0 && now - markTime < recheckInterval;
+    }
+
+    private static class SoldOutAwards {
+
+        /** 策略奖品ID；升序，下标即标记时间的下标 */
+        private final int[] awardIds;
+        /** 各奖品的售罄标记时间；0 为未标记，发布后不再修改 */
+        private final long[] markTimes;
+
+        private SoldOutAwards(int[] awardIds, long[] markTimes) {
+            this.awardIds = awardIds;
+            this.markTimes = markTimes;
+        }
+
+    }
+
+}
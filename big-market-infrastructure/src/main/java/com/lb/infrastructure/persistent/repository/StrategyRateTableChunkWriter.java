@@ -0,0 +1,149 @@
+package com.lb.infrastructure.persistent.repository;
+
+import com.lb.infrastructure.persistent.redis.IRedisService;
+import com.lb.types.common.Constants;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.redisson.api.RBatch;
+import org.redisson.api.RScript;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 策略概率表分块写入；大表一次写入会形成长时间阻塞的单条命令，这里按 chunkBytes 切块 SETRANGE，
+ * 每 batchChunks 个块组成一次流水线批量发送，块与块之间其他客户端的命令可以正常穿插执行。
+ * <p>
+ * 分块先写入构建中的 key，全部写完后 RENAME 为共享概率表 key。
+ * 写入进度（表指纹:已写入字节数）随每个批次一同写入 Redis，批次发送失败后据此从已写入位置重试。
+ * <p>
+ * 续写只用于同一次写入内的重试；概率表装配时会打乱顺序，其他进程重新装配得到的编码不同，表指纹不匹配时从头写入，
+ * 不会把两次打乱的结果拼接在一起。进程中断后遗留的构建 key 与进度由 buildingTtl 过期清理。
+ */
+@Slf4j
+@Component
+public class StrategyRateTableChunkWriter {
+
+    private static final String SET_RANGE_SCRIPT = "return redis.call('SETRANGE', KEYS[1], ARGV[1], ARGV[2])";
+
+    /** 每块写入的字节数 */
+    @Value("${strategy.rate-table.store.chunk-bytes:65536}")
+    private int chunkBytes;
+    /** 每次流水线批量发送的块数 */
+    @Value("${strategy.rate-table.store.batch-chunks:8}")
+    private int batchChunks;
+    /** 批量发送失败后，从已写入位置续写的重试次数 */
+    @Value("${strategy.rate-table.store.retry-attempts:3}")
+    private int retryAttempts;
+    /** 构建 key 与写入进度的过期时间（毫秒）；每个批次写入后续期 */
+    @Value("${strategy.rate-table.store.building-ttl:600000}")
+    private long buildingTtl;
+
+    @Resource
+    private IRedisService redisService;
+
+    /**
+     * 分块写入编码后的概率表
+     *
+     * @param key       构建标识；共享概率表ID，同一 tableId 的写入由调用方加锁互斥
+     * @param tableKey  写入完成后的概率表 key
+     * @param rateTable 概率表编码；{@link StrategyRateTableCodec}
+     */
+    public void write(String key, String tableKey, byte[] rateTable) {
+        String buildingKey = Constants.RedisKey.STRATEGY_RATE_TABLE_BUILDING_KEY + key;
+        String progressKey = Constants.RedisKey.STRATEGY_RATE_TABLE_PROGRESS_KEY + key;
+        int total = rateTable.length;
+        String fingerprint = fingerprint(rateTable);
+
+        // 1. 相同概率表的未完成写入，从已写入位置续写；否则清理上次残留的构建 key
+        int written = queryWritten(progressKey, fingerprint);
+        if (written > 0) {
+            log.info("策略概率表续写 key: {} written: {}/{}", key, written, total);
+        } else {
+            redisService.remove(buildingKey);
+        }
+
+        // 2. 分块写入，失败后从已写入位置重试
+        int attempts = 0;
+        while (written < total) {
+            try {
+                written = writeBatch(buildingKey, progressKey, fingerprint, rateTable, written);
+                log.info("策略概率表写入进度 key: {} written: {}/{}", key, written, total);
+            } catch (RuntimeException e) {
+                if (++attempts > retryAttempts) {
+                    log.error("策略概率表写入中断 key: {} written: {}/{}", key, written, total, e);
+                    throw e;
+                }
+                log.warn("策略概率表写入失败，从已写入位置重试 key: {} written: {}/{} attempts: {}", key, written, total, attempts);
+                written = queryWritten(progressKey, fingerprint);
+            }
+        }
+
+        // 3. 写入完成，重命名为概率表 key 并清理进度
+        redisService.rename(buildingKey, tableKey);
+        redisService.remove(progressKey);
+    }
+
+    /**
+     * 按字节区间写入；用于增量更新，区间来自同一编码
+     *
+     * @param tableKey  概率表 key
+     * @param rateTable 完整编码
+     * @param offsets   区间起始偏移
+     * @param lengths   区间长度
+     */
+    public void patch(String tableKey, byte[] rateTable, int[] offsets, int[] lengths) {
+        List<Object> keys = Collections.singletonList(tableKey);
+        int limit = chunkBytes * batchChunks;
+        int i = 0;
+        while (i < offsets.length) {
+            // 每批写入的字节数不超过 chunkBytes * batchChunks
+            RBatch batch = redisService.createBatch();
+            int size = 0;
+            do {
+                byte[] offset = String.valueOf(offsets[i]).getBytes(StandardCharsets.US_ASCII);
+                batch.getScript(ByteArrayCodec.INSTANCE).evalAsync(RScript.Mode.READ_WRITE, SET_RANGE_SCRIPT, RScript.ReturnType.INTEGER, keys, offset, Arrays.copyOfRange(rateTable, offsets[i], offsets[i] + lengths[i]));
+                size += lengths[i];
+                i++;
+            } while (i < offsets.length && size < limit);
+            batch.execute();
+        }
+    }
+
+    private int writeBatch(String buildingKey, String progressKey, String fingerprint, byte[] rateTable, int from) {
+        int total = rateTable.length;
+        List<Object> keys = Collections.singletonList(buildingKey);
+        RBatch batch = redisService.createBatch();
+        int to = from;
+        for (int i = 0; i < batchChunks && to < total; i++) {
+            int end = Math.min(to + chunkBytes, total);
+            byte[] offset = String.valueOf(to).getBytes(StandardCharsets.US_ASCII);
+            batch.getScript(ByteArrayCodec.INSTANCE).evalAsync(RScript.Mode.READ_WRITE, SET_RANGE_SCRIPT, RScript.ReturnType.INTEGER, keys, offset, Arrays.copyOfRange(rateTable, to, end));
+            to = end;
+        }
+        batch.getBucket(buildingKey, ByteArrayCodec.INSTANCE).expireAsync(Duration.ofMillis(buildingTtl));
+        batch.<String>getBucket(progressKey).setAsync(fingerprint + Constants.COLON + to, Duration.ofMillis(buildingTtl));
+        batch.execute();
+        return to;
+    }
+
+    private int queryWritten(String progressKey, String fingerprint) {
+        String progress = redisService.getValue(progressKey);
+        if (StringUtils.isBlank(progress)) return 0;
+        String[] parts = progress.split(Constants.COLON);
+        if (parts.length != 2 || !fingerprint.equals(parts[0])) return 0;
+        return Integer.parseInt(parts[1]);
+    }
+
+    private String fingerprint(byte[] rateTable) {
+        return rateTable.length + Constants.UNDERLINE + Integer.toHexString(Arrays.hashCode(rateTable));
+    }
+
+}
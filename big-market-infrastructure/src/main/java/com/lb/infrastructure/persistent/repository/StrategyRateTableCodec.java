@@ -0,0 +1,253 @@
+package com.lb.infrastructure.persistent.repository;
+
+import com.lb.domain.strategy.model.valobj.StrategyAwardAliasTableVO;
+import com.lb.domain.strategy.model.valobj.StrategyRateTableVO;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 策略概率表二进制编码；整张表存为一个 Redis String，代替每个概率值一个 JSON 字段的 Hash。
+ * <pre>
+ * 头部 16 字节（大端）
+ *   [0]      格式版本
+ *   [1]      表类型；1 概率查找表、2 别名表
+ *   [2]      奖品下标宽度；1、2、4 字节
+ *   [3]      保留
+ *   [4, 8)   条目数；概率查找表为 rateRange，别名表为列数
+ *   [8, 12)  奖品字典长度 d
+ *   [12, 16) 别名表列容量；概率查找表为 0
+ * 奖品字典 d * 4 字节；奖品ID
+ * 表体
+ *   概率查找表；rateRange * width 字节，每个概率值对应的奖品下标
+ *   别名表；列数 * 4 字节的列内阈值 + 列数 * width 字节的别名下标
+ * </pre>
+ * 单个概率值可通过 {@link #GET_AWARD_ID_SCRIPT} 用 GETRANGE 读取，或通过 {@link #DRAW_SCRIPT} 一次往返完成抽奖，或整表读取一次后解码到本地。
+ */
+public class StrategyRateTableCodec {
+
+    public static final byte FORMAT_VERSION = 1;
+    public static final byte TYPE_RATE_TABLE = 1;
+    public static final byte TYPE_ALIAS_TABLE = 2;
+    public static final int HEADER_LENGTH = 16;
+
+    /**
+     * 按 GETRANGE 读取单个概率值对应的奖品ID；一次调用内完成头部、下标、字典的读取
+     * KEYS[1] 概率表 ARGV[1] 概率值；概率值超出表的概率范围时返回 nil
+     */
+    public static final String GET_AWARD_ID_SCRIPT =
+            "local function int32(s, p) return ((string.byte(s, p) * 256 + string.byte(s, p + 1)) * 256 + string.byte(s, p + 2)) * 256 + string.byte(s, p + 3) end\n" +
+            "local header = redis.call('GETRANGE', KEYS[1], 0, 15)\n" +
+            "if string.len(header) < 16 or string.byte(header, 2) ~= 1 then return nil end\n" +
+            "if tonumber(ARGV[1]) >= int32(header, 5) then return nil end\n" +
+            "local width = string.byte(header, 3)\n" +
+            "local dictionaryOffset = 16\n" +
+            "local slotOffset = dictionaryOffset + int32(header, 9) * 4 + tonumber(ARGV[1]) * width\n" +
+            "local slot = redis.call('GETRANGE', KEYS[1], slotOffset, slotOffset + width - 1)\n" +
+            "local index = 0\n" +
+            "for i = 1, width do index = index * 256 + string.byte(slot, i) end\n" +
+            "local awardOffset = dictionaryOffset + index * 4\n" +
+            "return int32(redis.call('GETRANGE', KEYS[1], awardOffset, awardOffset + 3), 1)";
+
+    /**
+     * 单次往返抽奖；一次调用内完成头部、下标、字典的读取，概率查找表与别名表均适用。
+     * 随机值由客户端生成，按头部中的条目数换算为概率值；共享概率表内容不可变，读取期间不会出现概率范围不一致。
+     * 指针由客户端解析，概率表 key 在 KEYS 中声明，适用于集群和代理部署；概率表不存在时返回 nil。
+     * KEYS[1] 概率表 ARGV[1] 随机值 [0, 1) ARGV[2] 别名表列内随机值 [0, 1)
+     */
+    public static final String DRAW_SCRIPT =
+            "local function int32(s, p) return ((string.byte(s, p) * 256 + string.byte(s, p + 1)) * 256 + string.byte(s, p + 2)) * 256 + string.byte(s, p + 3) end\n" +
+            "local key = KEYS[1]\n" +
+            "local header = redis.call('GETRANGE', key, 0, 15)\n" +
+            "if string.len(header) < 16 then return nil end\n" +
+            "local tableType = string.byte(header, 2)\n" +
+            "local width = string.byte(header, 3)\n" +
+            "local count = int32(header, 5)\n" +
+            "local bodyOffset = 16 + int32(header, 9) * 4\n" +
+            "local function index(offset)\n" +
+            "  local slot = redis.call('GETRANGE', key, offset, offset + width - 1)\n" +
+            "  local value = 0\n" +
+            "  for i = 1, width do value = value * 256 + string.byte(slot, i) end\n" +
+            "  return value\n" +
+            "end\n" +
+            "local function award(i) return int32(redis.call('GETRANGE', key, 16 + i * 4, 19 + i * 4), 1) end\n" +
+            "local column = math.min(math.floor(tonumber(ARGV[1]) * count), count - 1)\n" +
+            "if tableType == 1 then return award(index(bodyOffset + column * width)) end\n" +
+            "local probabilityRange = int32(header, 13)\n" +
+            "local coin = math.min(math.floor(tonumber(ARGV[2]) * probabilityRange), probabilityRange - 1)\n" +
+            "local threshold = int32(redis.call('GETRANGE', key, bodyOffset + column * 4, bodyOffset + column * 4 + 3), 1)\n" +
+            "if coin < threshold then return award(column) end\n" +
+            "return award(index(bodyOffset + count * 4 + column * width))";
+
+    /**
+     * 编码概率查找表
+     *
+     * @param rateTable 下标为概率值，值为奖品ID
+     */
+    public static byte[] encode(int[] rateTable) {
+        int[] dictionary = Arrays.stream(rateTable).distinct().sorted().toArray();
+        int width = width(dictionary.length);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + dictionary.length * 4 + rateTable.length * width);
+        putHeader(buffer, TYPE_RATE_TABLE, width, rateTable.length, dictionary, 0);
+        for (int awardId : rateTable) {
+            putIndex(buffer, width, Arrays.binarySearch(dictionary, awardId));
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 编码别名表；奖品字典即为别名表的列
+     */
+    public static byte[] encode(StrategyAwardAliasTableVO aliasTable) {
+        int[] dictionary = aliasTable.getAwardIds();
+        int columnCount = dictionary.length;
+        int width = width(columnCount);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + columnCount * 4 + columnCount * 4 + columnCount * width);
+        putHeader(buffer, TYPE_ALIAS_TABLE, width, columnCount, dictionary, aliasTable.getProbabilityRange());
+        for (int probability : aliasTable.getProbabilities()) {
+            buffer.putInt(probability);
+        }
+        for (int alias : aliasTable.getAliases()) {
+            putIndex(buffer, width, alias);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 整表解码为本地快照
+     */
+    public static StrategyRateTableVO decode(byte[] bytes, String tableId) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.get();
+        byte type = buffer.get();
+        int width = buffer.get();
+        buffer.get();
+        int count = buffer.getInt();
+        int[] dictionary = new int[buffer.getInt()];
+        int probabilityRange = buffer.getInt();
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = buffer.getInt();
+        }
+
+        if (TYPE_ALIAS_TABLE == type) {
+            int[] probabilities = new int[count];
+            int[] aliases = new int[count];
+            for (int i = 0; i < count; i++) {
+                probabilities[i] = buffer.getInt();
+            }
+            for (int i = 0; i < count; i++) {
+                aliases[i] = getIndex(buffer, width);
+            }
+            return StrategyRateTableVO.builder()
+                    .tableId(tableId)
+                    .aliasTable(StrategyAwardAliasTableVO.builder()
+                            .awardIds(dictionary)
+                            .probabilities(probabilities)
+                            .aliases(aliases)
+                            .probabilityRange(probabilityRange)
+                            .build())
+                    .build();
+        }
+
+        int[] rateTable = new int[count];
+        for (int i = 0; i < count; i++) {
+            rateTable[i] = dictionary[getIndex(buffer, width)];
+        }
+        return StrategyRateTableVO.builder()
+                .tableId(tableId)
+                .rateTable(rateTable)
+                .build();
+    }
+
+    /**
+     * 头部中的表类型
+     */
+    public static byte type(byte[] header) {
+        return header[1];
+    }
+
+    /**
+     * 头部中的条目数；概率查找表即为 rateRange
+     */
+    public static int count(byte[] header) {
+        return ByteBuffer.wrap(header, 4, 4).getInt();
+    }
+
+    /**
+     * 头部与奖品字典的长度；即表体的起始偏移
+     */
+    public static int prefixLength(byte[] header) {
+        return HEADER_LENGTH + ByteBuffer.wrap(header, 8, 4).getInt() * 4;
+    }
+
+    /**
+     * 下标宽度
+     */
+    public static int width(byte[] header) {
+        return header[2];
+    }
+
+    /**
+     * 两个编码的表类型、下标宽度和奖品字典是否一致；一致时同一概率值在两个编码中的偏移相同
+     *
+     * @param prefix 头部与奖品字典
+     * @param bytes  完整编码
+     */
+    public static boolean isSameLayout(byte[] prefix, byte[] bytes) {
+        if (null == prefix || prefix.length < HEADER_LENGTH) return false;
+        int prefixLength = prefixLength(bytes);
+        if (prefix.length != prefixLength || prefixLength(prefix) != prefixLength) return false;
+        if (prefix[0] != bytes[0] || prefix[1] != bytes[1] || prefix[2] != bytes[2]) return false;
+        for (int i = HEADER_LENGTH; i < prefixLength; i++) {
+            if (prefix[i] != bytes[i]) return false;
+        }
+        return true;
+    }
+
+    private static void putHeader(ByteBuffer buffer, byte type, int width, int count, int[] dictionary, int probabilityRange) {
+        buffer.put(FORMAT_VERSION);
+        buffer.put(type);
+        buffer.put((byte) width);
+        buffer.put((byte) 0);
+        buffer.putInt(count);
+        buffer.putInt(dictionary.length);
+        buffer.putInt(probabilityRange);
+        for (int awardId : dictionary) {
+            buffer.putInt(awardId);
+        }
+    }
+
+    /**
+     * 下标宽度按最大下标 dictionarySize - 1 取值；256 个奖品的下标 [0, 255] 仍为 1 字节
+     */
+    private static int width(int dictionarySize) {
+        if (dictionarySize <= 0x100) return 1;
+        if (dictionarySize <= 0x10000) return 2;
+        return 4;
+    }
+
+    private static void putIndex(ByteBuffer buffer, int width, int index) {
+        switch (width) {
+            case 1:
+                buffer.put((byte) index);
+                break;
+            case 2:
+                buffer.putShort((short) index);
+                break;
+            default:
+                buffer.putInt(index);
+        }
+    }
+
+    private static int getIndex(ByteBuffer buffer, int width) {
+        switch (width) {
+            case 1:
+                return buffer.get() & 0xFF;
+            case 2:
+                return buffer.getShort() & 0xFFFF;
+            default:
+                return buffer.getInt();
+        }
+    }
+
+}
@@ -0,0 +1,134 @@
+package com.lb.infrastructure.persistent.repository;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.lb.domain.strategy.model.valobj.StrategyRateTableVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 策略概率表本地缓存；Redis 为唯一数据源，本地只保存共享概率表的只读快照。
+ * 1. 快照按 tableId 缓存，奖品概率相同的装配 key 共用同一份快照；tableId 为内容摘要，快照不可变
+ * 2. 装配 key 到 tableId 的指针超过校验间隔后，仅由一个线程读取 Redis，其余线程继续使用当前快照
+ * 3. 按快照占用字节数做容量控制，超出后淘汰最近最少使用的概率表
+ */
+@Slf4j
+@Component
+public class StrategyRateTableLocalCache {
+
+    /** 是否开启本地缓存 */
+    @Value("${strategy.rate-table.local-cache.enabled:true}")
+    private boolean enabled;
+    /** 本地缓存容量上限（字节），默认 128M */
+    @Value("${strategy.rate-table.local-cache.maximum-bytes:134217728}")
+    private long maximumBytes;
+    /** 指针校验间隔（毫秒） */
+    @Value("${strategy.rate-table.local-cache.check-interval:1000}")
+    private long checkInterval;
+    /** 装配 key 指针数量上限 */
+    @Value("${strategy.rate-table.local-cache.maximum-keys:100000}")
+    private long maximumKeys;
+
+    /** 共享概率表快照；key 为 tableId */
+    private Cache<String, StrategyRateTableVO> tables;
+    /** 装配 key 指向的 tableId */
+    private Cache<String, Pointer> pointers;
+
+    @PostConstruct
+    public void init() {
+        tables = CacheBuilder.newBuilder()
+                .maximumWeight(maximumBytes)
+                .weigher((String tableId, StrategyRateTableVO rateTable) -> rateTable.weight())
+                .build();
+        pointers = CacheBuilder.newBuilder()
+                .maximumSize(maximumKeys)
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 获取本地快照；指针不存在时加载，超过校验间隔时比对 tableId，指向变化则切换到新的共享快照
+     *
+     * @param key           策略装配 key
+     * @param pointerLoader 装配 key 指向的 tableId 加载；返回 null 表示未装配
+     * @param tableLoader   共享概率表加载；返回 null 表示已被清理
+     * @return 本地快照，未装配时返回 null
+     */
+    public StrategyRateTableVO get(String key, Function<String, String> pointerLoader, Function<String, StrategyRateTableVO> tableLoader) {
+        Pointer pointer = pointers.getIfPresent(key);
+        if (null == pointer) {
+            String tableId = pointerLoader.apply(key);
+            if (null == tableId) return null;
+            StrategyRateTableVO rateTable = table(tableId, tableLoader);
+            if (null == rateTable) return null;
+            pointers.put(key, new Pointer(tableId));
+            return rateTable;
+        }
+
+        long now = System.currentTimeMillis();
+        long checkTime = pointer.checkTime.get();
+        if (now - checkTime >= checkInterval && pointer.checkTime.compareAndSet(checkTime, now)) {
+            // 仅获得校验权的线程访问 Redis
+            String tableId = pointerLoader.apply(key);
+            if (null != tableId && !tableId.equals(pointer.tableId) && null != table(tableId, tableLoader)) {
+                log.info("策略概率表本地缓存切换 key: {} tableId: {} -> {}", key, pointer.tableId, tableId);
+                pointer.tableId = tableId;
+            }
+        }
+
+        StrategyRateTableVO rateTable = table(pointer.tableId, tableLoader);
+        // 快照被容量淘汰且 Redis 中已清理时，重新读取指针
+        if (null == rateTable) pointers.invalidate(key);
+        return rateTable;
+    }
+
+    public void invalidate(String key) {
+        pointers.invalidate(key);
+    }
+
+    private StrategyRateTableVO table(String tableId, Function<String, StrategyRateTableVO> tableLoader) {
+        StrategyRateTableVO rateTable = tables.getIfPresent(tableId);
+        if (null != rateTable) return rateTable;
+        // 同一 tableId 的并发加载只执行一次
+        try {
+            return tables.get(tableId, () -> load(tableId, tableLoader));
+        } catch (CacheLoader.InvalidCacheLoadException e) {
+            // 已被清理，不缓存
+            return null;
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            log.warn("策略概率表本地缓存加载失败 tableId: {}", tableId, e.getCause());
+            return null;
+        }
+    }
+
+    private StrategyRateTableVO load(String tableId, Function<String, StrategyRateTableVO> tableLoader) {
+        StrategyRateTableVO rateTable = tableLoader.apply(tableId);
+        if (null == rateTable) return null;
+        log.info("策略概率表本地缓存加载 tableId: {} weight: {}", tableId, rateTable.weight());
+        return rateTable;
+    }
+
+    private static class Pointer {
+
+        private volatile String tableId;
+        private final AtomicLong checkTime;
+
+        private Pointer(String tableId) {
+            this.tableId = tableId;
+            this.checkTime = new AtomicLong(System.currentTimeMillis());
+        }
+
+    }
+
+}
@@ -1,31 +1,111 @@
 package com.lb.infrastructure.persistent.repository;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.lb.domain.strategy.model.entity.StrategyAwardEntity;
 import com.lb.domain.strategy.model.entity.StrategyEntity;
 import com.lb.domain.strategy.model.entity.StrategyRuleEntity;
+import com.lb.domain.strategy.model.valobj.RuleLimitTypeVO;
+import com.lb.domain.strategy.model.valobj.RuleLogicCheckTypeVO;
+import com.lb.domain.strategy.model.valobj.RuleTreeNodeLineVO;
+import com.lb.domain.strategy.model.valobj.RuleTreeNodeVO;
+import com.lb.domain.strategy.model.valobj.RuleTreeVO;
+import com.lb.domain.strategy.model.valobj.RuleWeightVO;
+import com.lb.domain.strategy.model.valobj.StrategyAwardAliasTableVO;
 import com.lb.domain.strategy.model.valobj.StrategyAwardRuleModelVO;
+import com.lb.domain.strategy.model.valobj.StrategyAwardStockKeyVO;
+import com.lb.domain.strategy.model.valobj.StrategyAwardStockResultVO;
+import com.lb.domain.strategy.model.valobj.StrategyRateTableVO;
 import com.lb.domain.strategy.repository.IStrategyRepository;
+import com.lb.infrastructure.persistent.dao.IRuleTreeDao;
 import com.lb.infrastructure.persistent.dao.IStrategyAwardDao;
 import com.lb.infrastructure.persistent.dao.IStrategyDao;
 import com.lb.infrastructure.persistent.dao.IStrategyRuleDao;
+import com.lb.infrastructure.persistent.po.RuleTreeDetail;
 import com.lb.infrastructure.persistent.po.Strategy;
 import com.lb.infrastructure.persistent.po.StrategyAward;
 import com.lb.infrastructure.persistent.po.StrategyRule;
 import com.lb.infrastructure.persistent.redis.IRedisService;
 import com.lb.types.common.Constants;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.redisson.api.RBlockingQueue;
+import org.redisson.api.RDelayedQueue;
+import org.redisson.api.RLock;
+import org.redisson.api.RScript;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 策略仓储实现
  */
+@Slf4j
 @Repository
 public class StrategyRepository implements IStrategyRepository {
 
+    /**
+     * 装配 key 指向共享概率表，并维护引用计数；指针与预期不一致时返回 -1，共享概率表不存在时返回 0。
+     * 旧表不再被任何装配 key 引用时延迟过期，新表若处于延迟过期中则取消过期。
+     * KEYS[1] 指针 KEYS[2] 新表 KEYS[3] 新表引用 KEYS[4] 旧表 KEYS[5] 旧表引用
+     * ARGV[1] 预期的旧 tableId ARGV[2] 新 tableId ARGV[3] 装配 key ARGV[4] 旧表保留时长
+     */
+    private static final String LINK_SCRIPT =
+            "local current = redis.call('GET', KEYS[1]) or ''\n" +
+            "if current ~= ARGV[1] then return -1 end\n" +
+            "if redis.call('EXISTS', KEYS[2]) == 0 then return 0 end\n" +
+            "redis.call('PERSIST', KEYS[2])\n" +
+            "redis.call('SADD', KEYS[3], ARGV[3])\n" +
+            "redis.call('SET', KEYS[1], ARGV[2])\n" +
+            "if current ~= '' and current ~= ARGV[2] then\n" +
+            "  redis.call('SREM', KEYS[5], ARGV[3])\n" +
+            "  if redis.call('SCARD', KEYS[5]) == 0 then redis.call('PEXPIRE', KEYS[4], ARGV[4]) end\n" +
+            "end\n" +
+            "return 1";
+
+    /**
+     * 服务端复制；KEYS[1] 不存在时返回 0
+     * KEYS[1] 源 KEYS[2] 目标
+     */
+    private static final String COPY_SCRIPT =
+            "local value = redis.call('GET', KEYS[1])\n" +
+            "if not value then return 0 end\n" +
+            "redis.call('SET', KEYS[2], value)\n" +
+            "return 1";
+
+    /**
+     * 库存大于 0 时扣减并返回扣减后的库存，否则不扣减并返回 -1；库存不会被扣为负数
+     * KEYS[1] 库存 key
+     */
+    private static final String DECR_SCRIPT =
+            "local surplus = tonumber(redis.call('GET', KEYS[1]) or '0')\n" +
+            "if surplus <= 0 then return -1 end\n" +
+            "return redis.call('DECR', KEYS[1])";
+
+    /** 分段库存 key 后缀；cacheKey_segment_分段序号 */
+    private static final String STOCK_SEGMENT = "_segment_";
+
+    private static final String RULE_LOCK = "rule_lock";
+
+    /** 增量写入时相邻区间合并的最大间隔（字节） */
+    private static final int PATCH_MERGE_GAP = 64;
+
     @Resource
     private IStrategyDao strategyDao;
 
@@ -35,9 +115,136 @@ public class StrategyRepository implements IStrategyRepository {
     @Resource
     private IStrategyAwardDao strategyAwardDao;
 
+    @Resource
+    private IRuleTreeDao ruleTreeDao;
+
     @Resource
     private IRedisService redisService;
 
+    @Resource
+    private StrategyRateTableLocalCache strategyRateTableLocalCache;
+
+    @Resource
+    private StrategyRateTableChunkWriter strategyRateTableChunkWriter;
+
+    @Resource
+    private StrategyRuleBlacklistIndex strategyRuleBlacklistIndex;
+
+    @Resource
+    private StrategyAwardStockLease strategyAwardStockLease;
+
+    @Resource
+    private StrategyAwardStockSoldOut strategyAwardStockSoldOut;
+
+    @Resource
+    private UserRaffleCounter userRaffleCounter;
+
+    /** 不再被引用的共享概率表保留时长（毫秒）；供切换前已读取旧指针的请求继续使用 */
+    @Value("${strategy.rate-table.gc-grace-period:60000}")
+    private long gcGracePeriod;
+    /** 写入后尚未被引用的共享概率表保留时长（毫秒）；应大于一次装配的耗时，装配中断时由 Redis 过期清理 */
+    @Value("${strategy.rate-table.unreferenced-ttl:600000}")
+    private long unreferencedTtl;
+
+    /** 单次往返抽奖的指针缓存时长（毫秒）；应小于 gcGracePeriod，缓存期内旧概率表仍保留 */
+    @Value("${strategy.dispatch.table-id-ttl:1000}")
+    private long tableIdTtl;
+
+    /** 单次往返抽奖的指针；按装配 key 缓存 */
+    private Cache<String, String> tableIdCache;
+
+    /** 概率范围；按 tableId 缓存 */
+    private final Cache<String, Integer> rateRangeCache = CacheBuilder.newBuilder()
+            .maximumSize(10000)
+            .build();
+
+    /** 权重规则刷新间隔（毫秒）；超过间隔后由一个线程重新查询并编译，其余线程继续使用当前结果 */
+    @Value("${strategy.rule-weight.refresh-interval:60000}")
+    private long ruleWeightRefreshInterval;
+
+    /** 预编译的权重规则；按策略ID缓存 */
+    private LoadingCache<Long, RuleWeightVO> ruleWeightCache;
+
+    /** 奖品规则刷新间隔（毫秒）；超过间隔后由一个线程重新查询，其余线程继续使用当前索引 */
+    @Value("${strategy.award-rule-model.refresh-interval:60000}")
+    private long awardRuleModelRefreshInterval;
+
+    /** 奖品规则索引；按策略ID缓存 */
+    private LoadingCache<Long, StrategyAwardRuleModelIndex> awardRuleModelCache;
+
+    /** 规则树刷新间隔（毫秒）；超过间隔后由一个线程重新读取 Redis，其余线程继续使用当前规则树 */
+    @Value("${strategy.rule-tree.refresh-interval:60000}")
+    private long ruleTreeRefreshInterval;
+
+    /** 规则树；按规则树ID缓存，Redis 中的规则树不过期，库表变更后需清理对应缓存 */
+    private LoadingCache<Integer, RuleTreeVO> ruleTreeCache;
+
+    /** 库存值锁的过期时间（毫秒）；应覆盖活动周期 */
+    @Value("${strategy.stock.slot-lock-ttl:604800000}")
+    private long stockSlotLockTtl;
+    /** 库存扣减记录的延迟时间（毫秒） */
+    @Value("${strategy.stock.queue-delay:3000}")
+    private long stockQueueDelay;
+
+    /** 库存扣减记录队列 */
+    private RBlockingQueue<StrategyAwardStockKeyVO> awardStockQueue;
+    private RDelayedQueue<StrategyAwardStockKeyVO> awardStockDelayedQueue;
+
+    @PostConstruct
+    public void init() {
+        // 售罄标记按奖品规则索引的奖品ID数组下标置位；只取已加载的索引，不触发加载
+        strategyAwardStockSoldOut.setStrategyAwardIds(strategyId -> {
+            StrategyAwardRuleModelIndex index = awardRuleModelCache.getIfPresent(strategyId);
+            return null == index ? null : index.awardIds;
+        });
+        tableIdCache = CacheBuilder.newBuilder()
+                .maximumSize(100000)
+                .expireAfterWrite(tableIdTtl, TimeUnit.MILLISECONDS)
+                .build();
+        awardStockQueue = redisService.getBlockingQueue(Constants.RedisKey.STRATEGY_AWARD_COUNT_QUERY_KEY);
+        awardStockDelayedQueue = redisService.getDelayedQueue(awardStockQueue);
+        ruleTreeCache = CacheBuilder.newBuilder()
+                .maximumSize(10000)
+                .refreshAfterWrite(ruleTreeRefreshInterval, TimeUnit.MILLISECONDS)
+                .build(new CacheLoader<Integer, RuleTreeVO>() {
+                    @Override
+                    public RuleTreeVO load(Integer treeId) {
+                        return loadRuleTreeVO(treeId);
+                    }
+
+                    @Override
+                    public ListenableFuture<RuleTreeVO> reload(Integer treeId, RuleTreeVO ruleTreeVO) {
+                        // 内容未变化时沿用当前对象，决策树引擎按对象引用命中编译缓存
+                        RuleTreeVO reloaded = loadRuleTreeVO(treeId);
+                        if (null == reloaded || reloaded.equals(ruleTreeVO)) return Futures.immediateFuture(ruleTreeVO);
+                        log.info("规则树变化，重新加载 treeId: {}", treeId);
+                        return Futures.immediateFuture(reloaded);
+                    }
+                });
+        awardRuleModelCache = CacheBuilder.newBuilder()
+                .maximumSize(10000)
+                .refreshAfterWrite(awardRuleModelRefreshInterval, TimeUnit.MILLISECONDS)
+                .build(CacheLoader.from(this::buildStrategyAwardRuleModelIndex));
+        ruleWeightCache = CacheBuilder.newBuilder()
+                .maximumSize(10000)
+                .refreshAfterWrite(ruleWeightRefreshInterval, TimeUnit.MILLISECONDS)
+                .build(new CacheLoader<Long, RuleWeightVO>() {
+                    @Override
+                    public RuleWeightVO load(Long strategyId) {
+                        return RuleWeightVO.create(strategyId, queryStrategyRuleValue(strategyId, "rule_weight"));
+                    }
+
+                    @Override
+                    public ListenableFuture<RuleWeightVO> reload(Long strategyId, RuleWeightVO ruleWeight) {
+                        // 规则值未变化时沿用当前编译结果
+                        String ruleValue = queryStrategyRuleValue(strategyId, "rule_weight");
+                        if (Objects.equals(ruleValue, ruleWeight.getRuleValue())) return Futures.immediateFuture(ruleWeight);
+                        log.info("权重规则变化，重新编译 strategyId: {} ruleValue: {}", strategyId, ruleValue);
+                        return Futures.immediateFuture(RuleWeightVO.create(strategyId, ruleValue));
+                    }
+                });
+    }
+
     @Override
     public List<StrategyAwardEntity> queryStrategyAwardList(Long strategyId) {
         // 优先从缓存获取
@@ -63,17 +270,164 @@ public class StrategyRepository implements IStrategyRepository {
     }
 
     @Override
-    public void storeStrategyAwardSearchRateTable(String key, Integer rateRange, Map<Integer, Integer> strategyAwardSearchRateTable) {
-        // 1. 存储抽奖策略范围值，如10000，用于生成1000以内的随机数
-        redisService.setValue(Constants.RedisKey.STRATEGY_RATE_RANGE_KEY + key, rateRange);
-        // 2. 存储概率查找表
-        Map<Integer, Integer> cacheRateTable = redisService.getMap(Constants.RedisKey.STRATEGY_RATE_TABLE_KEY + key);
-        cacheRateTable.putAll(strategyAwardSearchRateTable);
+    public List<StrategyAwardEntity> refreshStrategyAwardList(Long strategyId) {
+        redisService.remove(Constants.RedisKey.STRATEGY_AWARD_KEY + strategyId);
+        awardRuleModelCache.invalidate(strategyId);
+        return queryStrategyAwardList(strategyId);
+    }
+
+    @Override
+    public List<Long> queryActiveStrategyIdList() {
+        return strategyDao.queryActiveStrategyIdList();
+    }
+
+    @Override
+    public boolean existStrategyRateTableById(String tableId) {
+        return redisService.isExists(strategyRateTableKey(tableId));
+    }
+
+    @Override
+    public void storeStrategyAwardSearchRateTable(String tableId, int[] strategyAwardSearchRateTable) {
+        // 概率范围记录在编码头部
+        storeStrategyRateTable(tableId, StrategyRateTableCodec.encode(strategyAwardSearchRateTable));
+    }
+
+    @Override
+    public void storeStrategyAwardAliasTable(String tableId, StrategyAwardAliasTableVO strategyAwardAliasTable) {
+        // 别名表与概率查找表共用 key，以编码头部的表类型区分装配模式
+        storeStrategyRateTable(tableId, StrategyRateTableCodec.encode(strategyAwardAliasTable));
+    }
+
+    @Override
+    public void patchStrategyAwardSearchRateTable(String currentTableId, String tableId, int[] strategyAwardSearchRateTable, int[] changedRateKeys) {
+        byte[] rateTable = StrategyRateTableCodec.encode(strategyAwardSearchRateTable);
+        RLock lock = redisService.getLock(Constants.RedisKey.STRATEGY_RATE_TABLE_LOCK_KEY + tableId);
+        lock.lock();
+        try {
+            String tableKey = strategyRateTableKey(tableId);
+            if (redisService.isExists(tableKey)) return;
+
+            // 1. 当前表已清理，或奖品字典、下标宽度变化导致偏移变化时，全量写入
+            String currentTableKey = strategyRateTableKey(currentTableId);
+            byte[] currentPrefix = redisService.getBytes(currentTableKey, 0, StrategyRateTableCodec.prefixLength(rateTable));
+            if (!StrategyRateTableCodec.isSameLayout(currentPrefix, rateTable)) {
+                log.info("策略概率表无法增量写入，全量写入 tableId: {} -> {}", currentTableId, tableId);
+                writeStrategyRateTable(tableId, tableKey, rateTable);
+                return;
+            }
+
+            // 2. 服务端复制当前表到构建 key，不经过网络传输整表；当前表为共享表，不能原地修改
+            String buildingKey = Constants.RedisKey.STRATEGY_RATE_TABLE_BUILDING_KEY + tableId;
+            Long copied = redisService.evalScript(COPY_SCRIPT, RScript.ReturnType.INTEGER, Arrays.asList(currentTableKey, buildingKey));
+            if (null == copied || 0 == copied) {
+                writeStrategyRateTable(tableId, tableKey, rateTable);
+                return;
+            }
+
+            // 3. 只写入头部和变化的概率值；缩短的表以头部条目数为准，尾部多余字节不再读取
+            try {
+                writeStrategyRateTablePatch(buildingKey, rateTable, changedRateKeys);
+            } catch (RuntimeException e) {
+                redisService.remove(buildingKey);
+                throw e;
+            }
+
+            // 4. 写入完成后重命名为共享概率表 key
+            redisService.rename(buildingKey, tableKey);
+            redisService.expire(tableKey, unreferencedTtl);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 变化的概率值按字节区间合并写入；相邻区间间隔不超过 PATCH_MERGE_GAP 字节时合并为一次写入
+     */
+    private void writeStrategyRateTablePatch(String tableKey, byte[] rateTable, int[] changedRateKeys) {
+        int prefixLength = StrategyRateTableCodec.prefixLength(rateTable);
+        int width = StrategyRateTableCodec.width(rateTable);
+        List<Integer> offsets = new ArrayList<>();
+        List<Integer> lengths = new ArrayList<>();
+        offsets.add(0);
+        lengths.add(StrategyRateTableCodec.HEADER_LENGTH);
+        int start = -1, end = -1;
+        for (int rateKey : changedRateKeys) {
+            int offset = prefixLength + rateKey * width;
+            if (start >= 0 && offset - end <= PATCH_MERGE_GAP) {
+                end = offset + width;
+                continue;
+            }
+            if (start >= 0) {
+                offsets.add(start);
+                lengths.add(end - start);
+            }
+            start = offset;
+            end = offset + width;
+        }
+        if (start >= 0) {
+            offsets.add(start);
+            lengths.add(end - start);
+        }
+        strategyRateTableChunkWriter.patch(tableKey, rateTable,
+                offsets.stream().mapToInt(Integer::intValue).toArray(),
+                lengths.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    @Override
+    public boolean linkStrategyRateTable(String key, String tableId) {
+        String pointerKey = Constants.RedisKey.STRATEGY_RATE_TABLE_ID_KEY + key;
+        // 指针被并发修改时重新读取后重试
+        while (true) {
+            String current = redisService.getString(pointerKey);
+            String previous = null == current ? "" : current;
+            Long linked = redisService.evalScript(LINK_SCRIPT, RScript.ReturnType.INTEGER,
+                    Arrays.asList(pointerKey, strategyRateTableKey(tableId), strategyRateTableReferenceKey(tableId), strategyRateTableKey(previous), strategyRateTableReferenceKey(previous)),
+                    previous, tableId, key, gcGracePeriod);
+            if (null == linked || 0 == linked) return false;
+            if (1 == linked) {
+                strategyRateTableLocalCache.invalidate(key);
+                tableIdCache.invalidate(key);
+                log.info("策略概率表指针切换 key: {} tableId: {} -> {}", key, current, tableId);
+                return true;
+            }
+        }
     }
 
     @Override
     public Integer getStrategyAwardAssemble(String key, Integer rateKey) {
-        return redisService.getFromMap(Constants.RedisKey.STRATEGY_RATE_TABLE_KEY + key, rateKey);
+        String tableId = queryStrategyRateTableId(key);
+        if (null == tableId) return null;
+        Long awardId = redisService.evalScript(StrategyRateTableCodec.GET_AWARD_ID_SCRIPT, RScript.ReturnType.INTEGER,
+                Collections.singletonList(strategyRateTableKey(tableId)), rateKey);
+        return null == awardId ? null : awardId.intValue();
+    }
+
+    @Override
+    public Integer getStrategyAwardAssemble(String key, double random, double aliasRandom) {
+        // 1. 指针按装配 key 短时缓存；缓存期内指针切换时旧概率表仍在保留期内，可继续读取
+        String tableId = tableIdCache.getIfPresent(key);
+        if (null == tableId) {
+            tableId = queryStrategyRateTableId(key);
+            if (null == tableId) return null;
+            tableIdCache.put(key, tableId);
+        }
+
+        // 2. 概率范围、概率值在一次脚本调用内读取；开启脚本缓存后以 EVALSHA 发送
+        Long awardId = drawStrategyAward(tableId, random, aliasRandom);
+        if (null == awardId) {
+            // 缓存的概率表已回收，重新解析指针后重试一次
+            tableIdCache.invalidate(key);
+            String current = queryStrategyRateTableId(key);
+            if (null == current || current.equals(tableId)) return null;
+            tableIdCache.put(key, current);
+            awardId = drawStrategyAward(current, random, aliasRandom);
+        }
+        return null == awardId ? null : awardId.intValue();
+    }
+
+    private Long drawStrategyAward(String tableId, double random, double aliasRandom) {
+        return redisService.evalScript(StrategyRateTableCodec.DRAW_SCRIPT, RScript.ReturnType.INTEGER,
+                Collections.singletonList(strategyRateTableKey(tableId)), random, aliasRandom);
     }
 
     @Override
@@ -82,8 +436,120 @@ public class StrategyRepository implements IStrategyRepository {
     }
 
     @Override
-    public int getRateRange(String key) {
-        return redisService.getValue(Constants.RedisKey.STRATEGY_RATE_RANGE_KEY + key);
+    public Integer getRateRange(String key) {
+        String tableId = queryStrategyRateTableId(key);
+        if (null == tableId) return null;
+        // 共享概率表内容不可变，头部按 tableId 缓存
+        Integer rateRange = rateRangeCache.getIfPresent(tableId);
+        if (null != rateRange) return rateRange;
+        byte[] header = redisService.getBytes(strategyRateTableKey(tableId), 0, StrategyRateTableCodec.HEADER_LENGTH);
+        // 未装配或为别名表时返回 null
+        if (null == header || header.length < StrategyRateTableCodec.HEADER_LENGTH) return null;
+        if (StrategyRateTableCodec.TYPE_RATE_TABLE != StrategyRateTableCodec.type(header)) return null;
+        rateRange = StrategyRateTableCodec.count(header);
+        rateRangeCache.put(tableId, rateRange);
+        return rateRange;
+    }
+
+    @Override
+    public StrategyAwardAliasTableVO getStrategyAwardAliasTable(String key) {
+        StrategyRateTableVO strategyRateTable = loadStrategyRateTable(key);
+        if (null == strategyRateTable || !strategyRateTable.isAlias()) return null;
+        return strategyRateTable.getAliasTable();
+    }
+
+    @Override
+    public StrategyRateTableVO queryStrategyRateTable(String key) {
+        if (!strategyRateTableLocalCache.isEnabled()) return null;
+        return strategyRateTableLocalCache.get(key, this::queryStrategyRateTableId, this::loadStrategyRateTableById);
+    }
+
+    @Override
+    public boolean existStrategyRateTable(String key) {
+        return null != queryStrategyRateTableId(key);
+    }
+
+    @Override
+    public boolean tryLockStrategyAssemble(Long strategyId, long waitTime) {
+        RLock lock = redisService.getLock(Constants.RedisKey.STRATEGY_ASSEMBLE_LOCK_KEY + strategyId);
+        try {
+            // 不指定租期，由看门狗续期，装配耗时较长时锁不会提前释放
+            return lock.tryLock(waitTime, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public void unlockStrategyAssemble(Long strategyId) {
+        RLock lock = redisService.getLock(Constants.RedisKey.STRATEGY_ASSEMBLE_LOCK_KEY + strategyId);
+        if (lock.isHeldByCurrentThread()) {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String queryStrategyAssembleMarker(Long strategyId) {
+        return redisService.getValue(Constants.RedisKey.STRATEGY_ASSEMBLE_MARKER_KEY + strategyId);
+    }
+
+    @Override
+    public void storeStrategyAssembleMarker(Long strategyId, String assembleMarker) {
+        redisService.setValue(Constants.RedisKey.STRATEGY_ASSEMBLE_MARKER_KEY + strategyId, assembleMarker);
+    }
+
+    /**
+     * 写入共享概率表；同一 tableId 集群内只写入一次，不同策略奖品概率相同时可能由不同节点同时装配。
+     * 写入后设置过期，被装配 key 引用时取消过期；装配中断未被引用的表由 Redis 过期清理。
+     */
+    private void storeStrategyRateTable(String tableId, byte[] rateTable) {
+        RLock lock = redisService.getLock(Constants.RedisKey.STRATEGY_RATE_TABLE_LOCK_KEY + tableId);
+        lock.lock();
+        try {
+            String tableKey = strategyRateTableKey(tableId);
+            if (redisService.isExists(tableKey)) {
+                log.info("共享概率表已存在，跳过写入 tableId: {}", tableId);
+                return;
+            }
+            writeStrategyRateTable(tableId, tableKey, rateTable);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeStrategyRateTable(String tableId, String tableKey, byte[] rateTable) {
+        // 分块流水线写入构建 key，写完后重命名为共享概率表 key
+        strategyRateTableChunkWriter.write(tableId, tableKey, rateTable);
+        redisService.expire(tableKey, unreferencedTtl);
+    }
+
+    private String strategyRateTableKey(String tableId) {
+        return Constants.RedisKey.STRATEGY_RATE_TABLE_KEY + tableId;
+    }
+
+    private String strategyRateTableReferenceKey(String tableId) {
+        return Constants.RedisKey.STRATEGY_RATE_TABLE_REFERENCE_KEY + tableId;
+    }
+
+    private String queryStrategyRateTableId(String key) {
+        return redisService.getString(Constants.RedisKey.STRATEGY_RATE_TABLE_ID_KEY + key);
+    }
+
+    @Override
+    public StrategyRateTableVO loadStrategyRateTable(String key) {
+        String tableId = queryStrategyRateTableId(key);
+        if (null == tableId) return null;
+        return loadStrategyRateTableById(tableId);
+    }
+
+    /**
+     * 从 Redis 整表读取共享概率表并解码；共享概率表写完后才会被指针引用，读到即完整
+     */
+    private StrategyRateTableVO loadStrategyRateTableById(String tableId) {
+        byte[] bytes = redisService.getBytes(strategyRateTableKey(tableId));
+        if (null == bytes || bytes.length < StrategyRateTableCodec.HEADER_LENGTH) return null;
+        return StrategyRateTableCodec.decode(bytes, tableId);
     }
 
     @Override
@@ -134,13 +600,331 @@ public class StrategyRepository implements IStrategyRepository {
         return strategyRuleDao.queryStrategyRuleValue(strategyRule);
     }
 
+    @Override
+    public RuleWeightVO queryRuleWeight(Long strategyId) {
+        return ruleWeightCache.getUnchecked(strategyId);
+    }
+
+    @Override
+    public Integer queryRuleBlacklistAwardId(Long strategyId, String userId) {
+        return strategyRuleBlacklistIndex.queryAwardId(strategyId, userId);
+    }
+
     @Override
     public StrategyAwardRuleModelVO queryStrategyAwardRuleModelVO(Long strategyId, Integer awardId) {
-        StrategyAward strategyAward = new StrategyAward();
-        strategyAward.setStrategyId(strategyId);
-        strategyAward.setAwardId(awardId);
-        String ruleModels = strategyAwardDao.queryStrategyAwardRuleModels(strategyAward);
-        return StrategyAwardRuleModelVO.builder().ruleModels(ruleModels).build();
+        if (null == awardId) return StrategyAwardRuleModelVO.EMPTY;
+        return awardRuleModelCache.getUnchecked(strategyId).get(awardId);
+    }
+
+    @Override
+    public RuleTreeVO queryRuleTreeVOByTreeId(Integer treeId) {
+        try {
+            return ruleTreeCache.getUnchecked(treeId);
+        } catch (CacheLoader.InvalidCacheLoadException e) {
+            // 规则树未配置，不缓存
+            return null;
+        }
+    }
+
+    @Override
+    public void cacheStrategyAwardCount(String cacheKey, Integer awardCount, int segments) {
+        if (segments <= 1) {
+            if (redisService.setAtomicLongIfAbsent(cacheKey, awardCount)) {
+                log.info("奖品库存预加载 cacheKey: {} awardCount: {}", cacheKey, awardCount);
+            }
+            return;
+        }
+        // 分段库存；均分到各分段，余数分给前面的分段
+        for (int i = 0; i < segments; i++) {
+            long segmentCount = awardCount / segments + (i < awardCount % segments ? 1 : 0);
+            redisService.setAtomicLongIfAbsent(segmentKey(cacheKey, i), segmentCount);
+        }
+        log.info("奖品分段库存预加载 cacheKey: {} awardCount: {} segments: {}", cacheKey, awardCount, segments);
+    }
+
+    @Override
+    public StrategyAwardStockResultVO subtractionAwardStock(String cacheKey, int segments, String userId) {
+        if (segments <= 1) return subtractionAwardStock(cacheKey);
+
+        // 按用户散列选择分段，分段耗尽时依次尝试其余分段；全部分段耗尽即为售罄
+        int start = null == userId ? ThreadLocalRandom.current().nextInt(segments) : (userId.hashCode() & Integer.MAX_VALUE) % segments;
+        for (int i = 0; i < segments; i++) {
+            String segmentKey = segmentKey(cacheKey, (start + i) % segments);
+            long surplus = decrAwardStock(segmentKey);
+            if (surplus < 0) continue;
+            return lockAwardStock(segmentKey, surplus);
+        }
+        return StrategyAwardStockResultVO.SOLD_OUT;
+    }
+
+    @Override
+    public StrategyAwardStockResultVO subtractionLeasedAwardStock(String cacheKey, int segments) {
+        return strategyAwardStockLease.subtraction(cacheKey, stockClaimKeys(cacheKey, segments));
+    }
+
+    /**
+     * 领取租约库存的 key；分段库存为各分段 key，否则为库存 key
+     */
+    private String[] stockClaimKeys(String cacheKey, int segments) {
+        if (segments <= 1) return new String[]{cacheKey};
+        String[] claimKeys = new String[segments];
+        for (int i = 0; i < segments; i++) {
+            claimKeys[i] = segmentKey(cacheKey, i);
+        }
+        return claimKeys;
+    }
+
+    @Override
+    public long queryAwardStockSurplus(String cacheKey, int segments) {
+        if (segments <= 1) return Math.max(0, redisService.getAtomicLong(cacheKey));
+        long surplus = 0;
+        for (int i = 0; i < segments; i++) {
+            surplus += Math.max(0, redisService.getAtomicLong(segmentKey(cacheKey, i)));
+        }
+        return surplus;
+    }
+
+    @Override
+    public long reclaimAwardStockLease() {
+        return strategyAwardStockLease.reclaim();
+    }
+
+    @Override
+    public int queryStrategyAwardStockSegments(Long strategyId, Integer awardId) {
+        return awardRuleModelCache.getUnchecked(strategyId).stockSegments(awardId);
+    }
+
+    @Override
+    public boolean queryStrategyAwardStockLease(Long strategyId, Integer awardId) {
+        return awardRuleModelCache.getUnchecked(strategyId).stockLease(awardId);
+    }
+
+    @Override
+    public boolean queryAwardStockSoldOut(Long strategyId, Integer awardId) {
+        return strategyAwardStockSoldOut.isSoldOut(strategyId, awardId);
+    }
+
+    @Override
+    public void awardStockSoldOut(Long strategyId, Integer awardId) {
+        strategyAwardStockSoldOut.soldOut(strategyId, awardId);
+    }
+
+    private StrategyAwardStockResultVO subtractionAwardStock(String cacheKey) {
+        long surplus = decrAwardStock(cacheKey);
+        if (surplus < 0) return StrategyAwardStockResultVO.SOLD_OUT;
+        return lockAwardStock(cacheKey, surplus);
+    }
+
+    /**
+     * 库存大于 0 时扣减；库存已耗尽返回 -1，不扣减，并发扣减与补充库存之间不会出现负数覆盖
+     */
+    private long decrAwardStock(String cacheKey) {
+        Long surplus = redisService.evalScript(DECR_SCRIPT, RScript.ReturnType.INTEGER, Collections.singletonList(cacheKey));
+        return surplus;
+    }
+
+    /**
+     * 对扣减后的库存值加锁；运营补充库存或计数被重置时，已发放的库存值不会再次发放
+     */
+    private StrategyAwardStockResultVO lockAwardStock(String cacheKey, long surplus) {
+        String lockKey = cacheKey + Constants.UNDERLINE + surplus;
+        boolean lock = redisService.setNx(lockKey, stockSlotLockTtl);
+        if (!lock) {
+            log.info("奖品库存加锁失败 lockKey: {}", lockKey);
+            return StrategyAwardStockResultVO.FAILED;
+        }
+        return StrategyAwardStockResultVO.SUCCESS;
+    }
+
+    @Override
+    public void awardStockConsumeSendQueue(StrategyAwardStockKeyVO strategyAwardStockKeyVO) {
+        // 租约库存本地合并后写入队列
+        if (queryStrategyAwardStockLease(strategyAwardStockKeyVO.getStrategyId(), strategyAwardStockKeyVO.getAwardId())) {
+            strategyAwardStockLease.consume(strategyAwardStockKeyVO);
+            return;
+        }
+        awardStockDelayedQueue.offer(strategyAwardStockKeyVO, stockQueueDelay, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public List<StrategyAwardStockKeyVO> takeQueueValue(int batchSize) {
+        return awardStockQueue.poll(batchSize);
+    }
+
+    @Override
+    public void updateStrategyAwardStock(List<StrategyAwardStockKeyVO> strategyAwardStockKeyVOS) {
+        // 相同奖品合并，每个奖品一条更新语句
+        Map<StrategyAwardStockKeyVO, Integer> counts = new LinkedHashMap<>();
+        for (StrategyAwardStockKeyVO strategyAwardStockKeyVO : strategyAwardStockKeyVOS) {
+            StrategyAwardStockKeyVO stockKey = StrategyAwardStockKeyVO.builder()
+                    .strategyId(strategyAwardStockKeyVO.getStrategyId())
+                    .awardId(strategyAwardStockKeyVO.getAwardId())
+                    .build();
+            counts.merge(stockKey, null == strategyAwardStockKeyVO.getCount() ? 1 : strategyAwardStockKeyVO.getCount(), Integer::sum);
+        }
+        for (Map.Entry<StrategyAwardStockKeyVO, Integer> entry : counts.entrySet()) {
+            StrategyAwardStockKeyVO strategyAwardStockKeyVO = entry.getKey();
+            int rows = strategyAwardDao.updateStrategyAwardStock(strategyAwardStockKeyVO.getStrategyId(), strategyAwardStockKeyVO.getAwardId(), entry.getValue());
+            if (0 == rows) {
+                log.warn("奖品库存更新失败，库表库存不足 strategyId: {} awardId: {} count: {}", strategyAwardStockKeyVO.getStrategyId(), strategyAwardStockKeyVO.getAwardId(), entry.getValue());
+            }
+        }
+    }
+
+    @Override
+    public boolean queryStrategyRuleLock(Long strategyId) {
+        return awardRuleModelCache.getUnchecked(strategyId).ruleLock;
+    }
+
+    @Override
+    public Long queryStrategyAwardRuleLockCount(Long strategyId, Integer awardId) {
+        return awardRuleModelCache.getUnchecked(strategyId).ruleLockCount(awardId);
+    }
+
+    @Override
+    public long addUserRaffleCount(String userId, Long strategyId) {
+        return userRaffleCounter.increment(userId, strategyId);
+    }
+
+    @Override
+    public long queryUserRaffleCount(String userId, Long strategyId) {
+        return userRaffleCounter.query(userId, strategyId);
+    }
+
+    @Override
+    public int updateUserRaffleCount(int batchSize) {
+        return userRaffleCounter.flush(batchSize);
+    }
+
+    private String segmentKey(String cacheKey, int segment) {
+        return cacheKey + STOCK_SEGMENT + segment;
+    }
+
+    /**
+     * 加载规则树；优先从 Redis 获取，不存在时一次关联查询库表组装后写入 Redis
+     */
+    private RuleTreeVO loadRuleTreeVO(Integer treeId) {
+        String cacheKey = Constants.RedisKey.RULE_TREE_VO_KEY + treeId;
+        RuleTreeVO ruleTreeVO = redisService.getValue(cacheKey);
+        if (null != ruleTreeVO) return ruleTreeVO;
+
+        List<RuleTreeDetail> ruleTreeDetails = ruleTreeDao.queryRuleTreeDetailList(treeId);
+        if (ruleTreeDetails.isEmpty()) return null;
+
+        // 每行为一个节点的一条连线；按节点聚合，连线保持查询顺序
+        Map<String, RuleTreeNodeVO> treeNodeMap = new LinkedHashMap<>();
+        for (RuleTreeDetail ruleTreeDetail : ruleTreeDetails) {
+            if (null == ruleTreeDetail.getRuleKey()) continue;
+            RuleTreeNodeVO ruleTreeNodeVO = treeNodeMap.computeIfAbsent(ruleTreeDetail.getRuleKey(), ruleKey -> RuleTreeNodeVO.builder()
+                    .treeId(treeId)
+                    .ruleKey(ruleKey)
+                    .ruleDesc(ruleTreeDetail.getRuleDesc())
+                    .ruleValue(ruleTreeDetail.getRuleValue())
+                    .treeNodeLineVOList(new ArrayList<>())
+                    .build());
+            if (null == ruleTreeDetail.getRuleNodeTo()) continue;
+            ruleTreeNodeVO.getTreeNodeLineVOList().add(RuleTreeNodeLineVO.builder()
+                    .treeId(treeId)
+                    .ruleNodeFrom(ruleTreeDetail.getRuleKey())
+                    .ruleNodeTo(ruleTreeDetail.getRuleNodeTo())
+                    .ruleLimitType(RuleLimitTypeVO.valueOf(ruleTreeDetail.getRuleLimitType()))
+                    .ruleLimitValue(RuleLogicCheckTypeVO.valueOf(ruleTreeDetail.getRuleLimitValue()))
+                    .build());
+        }
+
+        RuleTreeDetail ruleTree = ruleTreeDetails.get(0);
+        ruleTreeVO = RuleTreeVO.builder()
+                .treeId(treeId)
+                .treeName(ruleTree.getTreeName())
+                .treeDesc(ruleTree.getTreeDesc())
+                .treeRootRuleNode(ruleTree.getTreeRootRuleKey())
+                .treeNodeMap(treeNodeMap)
+                .build();
+        redisService.setValue(cacheKey, ruleTreeVO);
+        return ruleTreeVO;
+    }
+
+    /**
+     * 一次查询策略下全部奖品的 rule_models，解析后按奖品ID排序；配置了次数锁时再一次查询全部次数锁的规则值
+     */
+    private StrategyAwardRuleModelIndex buildStrategyAwardRuleModelIndex(Long strategyId) {
+        List<StrategyAward> strategyAwards = strategyAwardDao.queryStrategyAwardRuleModelsList(strategyId);
+        strategyAwards.sort(Comparator.comparing(StrategyAward::getAwardId));
+        int[] awardIds = new int[strategyAwards.size()];
+        StrategyAwardRuleModelVO[] ruleModels = new StrategyAwardRuleModelVO[strategyAwards.size()];
+        int[] stockSegments = new int[strategyAwards.size()];
+        boolean[] stockLease = new boolean[strategyAwards.size()];
+        boolean ruleLock = false;
+        for (int i = 0; i < strategyAwards.size(); i++) {
+            StrategyAward strategyAward = strategyAwards.get(i);
+            awardIds[i] = strategyAward.getAwardId();
+            ruleModels[i] = StrategyAwardRuleModelVO.create(strategyAward.getRuleModels(), strategyAward.getTreeId());
+            stockSegments[i] = stockSegments(strategyAward.getStockSegments());
+            stockLease[i] = null != strategyAward.getStockLease() && 1 == strategyAward.getStockLease();
+            ruleLock |= Arrays.asList(ruleModels[i].raffleCenterRuleModelList()).contains(RULE_LOCK);
+        }
+
+        // 次数锁规则值；按奖品ID对应，未配置为 null
+        Long[] ruleLockCounts = new Long[strategyAwards.size()];
+        if (ruleLock) {
+            StrategyRule strategyRuleReq = new StrategyRule();
+            strategyRuleReq.setStrategyId(strategyId);
+            strategyRuleReq.setRuleModel(RULE_LOCK);
+            for (StrategyRule strategyRule : strategyRuleDao.queryStrategyRuleListByRuleModel(strategyRuleReq)) {
+                if (null == strategyRule.getAwardId() || StringUtils.isBlank(strategyRule.getRuleValue())) continue;
+                int index = Arrays.binarySearch(awardIds, strategyRule.getAwardId());
+                if (index >= 0) ruleLockCounts[index] = Long.parseLong(strategyRule.getRuleValue().trim());
+            }
+        }
+        return new StrategyAwardRuleModelIndex(awardIds, ruleModels, stockSegments, stockLease, ruleLock, ruleLockCounts);
+    }
+
+    private static int stockSegments(Integer stockSegments) {
+        return null == stockSegments || stockSegments < 1 ? 1 : stockSegments;
+    }
+
+    /**
+     * 奖品规则索引；奖品ID升序，与解析后的规则、库存分段数、库存租约、次数锁一一对应
+     */
+    private static class StrategyAwardRuleModelIndex {
+
+        private final int[] awardIds;
+        private final StrategyAwardRuleModelVO[] ruleModels;
+        private final int[] stockSegments;
+        private final boolean[] stockLease;
+        /** 策略下是否有奖品配置了次数锁 */
+        private final boolean ruleLock;
+        private final Long[] ruleLockCounts;
+
+        private StrategyAwardRuleModelIndex(int[] awardIds, StrategyAwardRuleModelVO[] ruleModels, int[] stockSegments, boolean[] stockLease, boolean ruleLock, Long[] ruleLockCounts) {
+            this.awardIds = awardIds;
+            this.ruleModels = ruleModels;
+            this.stockSegments = stockSegments;
+            this.stockLease = stockLease;
+            this.ruleLock = ruleLock;
+            this.ruleLockCounts = ruleLockCounts;
+        }
+
+        private StrategyAwardRuleModelVO get(int awardId) {
+            int index = Arrays.binarySearch(awardIds, awardId);
+            return index < 0 ? StrategyAwardRuleModelVO.EMPTY : ruleModels[index];
+        }
+
+        private int stockSegments(int awardId) {
+            int index = Arrays.binarySearch(awardIds, awardId);
+            return index < 0 ? 1 : stockSegments[index];
+        }
+
+        private boolean stockLease(int awardId) {
+            int index = Arrays.binarySearch(awardIds, awardId);
+            return index >= 0 && stockLease[index];
+        }
+
+        private Long ruleLockCount(int awardId) {
+            int index = Arrays.binarySearch(awardIds, awardId);
+            return index < 0 ? null : ruleLockCounts[index];
+        }
+
     }
 
 }
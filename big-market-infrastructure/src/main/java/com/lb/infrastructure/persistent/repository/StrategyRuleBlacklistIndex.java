@@ -0,0 +1,241 @@
+package com.lb.infrastructure.persistent.repository;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Iterables;
+import com.lb.infrastructure.persistent.dao.IStrategyRuleDao;
+import com.lb.infrastructure.persistent.po.StrategyRule;
+import com.lb.infrastructure.persistent.redis.IRedisService;
+import com.lb.types.common.Constants;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.redisson.api.RLock;
+import org.redisson.api.RSet;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 黑名单索引；rule_blacklist 规则值按策略解析一次，抽奖时 O(1) 判断用户是否在黑名单中，不访问数据库。
+ * 1. 用户数不超过 localMaxSize 时，索引为本地 HashSet
+ * 2. 用户数超过 localMaxSize 时，索引为 Redis Set，集群共用一份；本地只保存奖品ID
+ * 3. 超过刷新间隔后，仅比对库中规则值的摘要，变化时重新解析；Redis Set 按差量增删，未变化的用户始终可查
+ * 4. 名单缩小到本地索引或规则移除后，删除不再使用的 Redis Set 和摘要
+ * 5. 刷新在线程池中异步执行，刷新期间继续使用当前索引；同步锁在等待时间内未获取到时保留当前索引，下次刷新重试
+ */
+@Slf4j
+@Component
+public class StrategyRuleBlacklistIndex {
+
+    private static final String RULE_MODEL = "rule_blacklist";
+    /** 待重试索引的摘要；与任何规则值摘要都不相等，下次刷新重新构建 */
+    private static final String RETRY_DIGEST = "";
+
+    private final IStrategyRuleDao strategyRuleDao;
+    private final IRedisService redisService;
+
+    /** 本地索引的最大用户数；超过后使用 Redis Set */
+    private final int localMaxSize;
+    /** Redis Set 每批增删、扫描的成员数 */
+    private final int batchSize;
+    /** 同步锁等待时间（毫秒） */
+    private final long lockWaitTime;
+    /** 同步锁租期（毫秒）；持有锁的节点宕机后自动释放 */
+    private final long lockLeaseTime;
+
+    private final LoadingCache<Long, Blacklist> blacklistCache;
+
+    public StrategyRuleBlacklistIndex(IStrategyRuleDao strategyRuleDao,
+                                      IRedisService redisService,
+                                      ThreadPoolExecutor threadPoolExecutor,
+                                      @Value("${strategy.rule-blacklist.local-max-size:10000}") int localMaxSize,
+                                      @Value("${strategy.rule-blacklist.refresh-interval:60000}") long refreshInterval,
+                                      @Value("${strategy.rule-blacklist.batch-size:1000}") int batchSize,
+                                      @Value("${strategy.rule-blacklist.lock-wait-time:3000}") long lockWaitTime,
+                                      @Value("${strategy.rule-blacklist.lock-lease-time:60000}") long lockLeaseTime) {
+        this.strategyRuleDao = strategyRuleDao;
+        this.redisService = redisService;
+        this.localMaxSize = localMaxSize;
+        this.batchSize = batchSize;
+        this.lockWaitTime = lockWaitTime;
+        this.lockLeaseTime = lockLeaseTime;
+        this.blacklistCache = CacheBuilder.newBuilder()
+                .maximumSize(10000)
+                .refreshAfterWrite(refreshInterval, TimeUnit.MILLISECONDS)
+                .build(CacheLoader.asyncReloading(new CacheLoader<Long, Blacklist>() {
+                    @Override
+                    public Blacklist load(Long strategyId) {
+                        return build(strategyId, null);
+                    }
+
+                    @Override
+                    public Blacklist reload(Long strategyId, Blacklist blacklist) {
+                        // 只查询摘要，规则值未变化时沿用当前索引
+                        String digest = strategyRuleDao.queryStrategyRuleValueDigest(strategyRule(strategyId));
+                        if (Objects.equals(digest, blacklist.digest)) return blacklist;
+                        return build(strategyId, blacklist);
+                    }
+                }, threadPoolExecutor));
+    }
+
+    /**
+     * 查询黑名单用户对应的奖品ID
+     *
+     * @param strategyId 策略ID
+     * @param userId     用户ID
+     * @return 奖品ID；用户不在黑名单中返回 null
+     */
+    public Integer queryAwardId(Long strategyId, String userId) {
+        Blacklist blacklist = blacklistCache.getUnchecked(strategyId);
+        if (null == blacklist.awardId) return null;
+        boolean member = null != blacklist.userIds
+                ? blacklist.userIds.contains(userId)
+                : redisService.isSetMember(Constants.RedisKey.STRATEGY_RULE_BLACKLIST_KEY + strategyId, userId);
+        return member ? blacklist.awardId : null;
+    }
+
+    /**
+     * 构建索引
+     *
+     * @param strategyId 策略ID
+     * @param previous   当前索引；首次加载为 null
+     */
+    private Blacklist build(Long strategyId, Blacklist previous) {
+        // 1. 解析规则值；格式 100:user001,user002
+        String ruleValue = strategyRuleDao.queryStrategyRuleValue(strategyRule(strategyId));
+        if (StringUtils.isBlank(ruleValue)) {
+            if (removeRedisIndex(strategyId)) return new Blacklist(null, null, null);
+            return null != previous ? previous : new Blacklist(RETRY_DIGEST, null, null);
+        }
+        String digest = DigestUtils.md5Hex(ruleValue);
+        String[] splitRuleValue = ruleValue.split(Constants.COLON);
+        Integer awardId = Integer.parseInt(splitRuleValue[0]);
+        Set<String> userIds = splitRuleValue.length < 2
+                ? new HashSet<>()
+                : new HashSet<>(Arrays.asList(splitRuleValue[1].split(Constants.SPLIT)));
+
+        // 2. 小名单本地索引；遗留的 Redis Set 未删除时下次刷新重新删除
+        if (userIds.size() <= localMaxSize) {
+            boolean removed = removeRedisIndex(strategyId);
+            log.info("黑名单本地索引 strategyId: {} users: {}", strategyId, userIds.size());
+            return new Blacklist(removed ? digest : RETRY_DIGEST, awardId, Collections.unmodifiableSet(userIds));
+        }
+
+        // 3. 大名单同步到 Redis Set；集群内只由一个节点同步，其余节点按摘要判断已同步
+        RLock lock = redisService.getLock(Constants.RedisKey.STRATEGY_RULE_BLACKLIST_LOCK_KEY + strategyId);
+        if (!tryLock(lock)) {
+            // 其他节点正在同步；保留当前索引，首次加载时使用 Redis Set 中已有的成员，下次刷新重试
+            log.warn("黑名单 Redis 索引同步锁获取超时 strategyId: {}", strategyId);
+            return null != previous ? previous : new Blacklist(RETRY_DIGEST, awardId, null);
+        }
+        try {
+            String digestKey = Constants.RedisKey.STRATEGY_RULE_BLACKLIST_DIGEST_KEY + strategyId;
+            if (!digest.equals(redisService.getValue(digestKey))) {
+                sync(strategyId, userIds);
+                redisService.setValue(digestKey, digest);
+            }
+        } finally {
+            unlock(lock);
+        }
+        return new Blacklist(digest, awardId, null);
+    }
+
+    /**
+     * 差量同步；扫描现有成员删除已移出的用户，再批量添加新增的用户
+     */
+    private void sync(Long strategyId, Set<String> userIds) {
+        RSet<String> set = redisService.getSet(Constants.RedisKey.STRATEGY_RULE_BLACKLIST_KEY + strategyId);
+        Set<String> existed = new HashSet<>();
+        List<String> removed = new ArrayList<>();
+        Iterator<String> iterator = set.iterator(batchSize);
+        while (iterator.hasNext()) {
+            String userId = iterator.next();
+            if (userIds.contains(userId)) {
+                existed.add(userId);
+            } else {
+                removed.add(userId);
+            }
+        }
+        for (List<String> batch : Iterables.partition(removed, batchSize)) {
+            set.removeAll(batch);
+        }
+
+        List<String> added = new ArrayList<>();
+        for (String userId : userIds) {
+            if (!existed.contains(userId)) added.add(userId);
+        }
+        for (List<String> batch : Iterables.partition(added, batchSize)) {
+            set.addAll(batch);
+        }
+        log.info("黑名单 Redis 索引同步 strategyId: {} users: {} added: {} removed: {}", strategyId, userIds.size(), added.size(), removed.size());
+    }
+
+    /**
+     * 删除不再使用的 Redis Set；摘要存在即说明曾同步过大名单，与同步互斥
+     *
+     * @return 无需删除或已删除返回 true；同步锁获取超时返回 false
+     */
+    private boolean removeRedisIndex(Long strategyId) {
+        String digestKey = Constants.RedisKey.STRATEGY_RULE_BLACKLIST_DIGEST_KEY + strategyId;
+        if (!redisService.isExists(digestKey)) return true;
+        RLock lock = redisService.getLock(Constants.RedisKey.STRATEGY_RULE_BLACKLIST_LOCK_KEY + strategyId);
+        if (!tryLock(lock)) {
+            log.warn("黑名单 Redis 索引删除锁获取超时 strategyId: {}", strategyId);
+            return false;
+        }
+        try {
+            redisService.remove(Constants.RedisKey.STRATEGY_RULE_BLACKLIST_KEY + strategyId);
+            redisService.remove(digestKey);
+            log.info("黑名单 Redis 索引删除 strategyId: {}", strategyId);
+            return true;
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    private boolean tryLock(RLock lock) {
+        try {
+            return lock.tryLock(lockWaitTime, lockLeaseTime, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 同步耗时超过租期时锁已自动释放，不再解锁
+     */
+    private void unlock(RLock lock) {
+        if (lock.isHeldByCurrentThread()) lock.unlock();
+    }
+
+    private StrategyRule strategyRule(Long strategyId) {
+        StrategyRule strategyRule = new StrategyRule();
+        strategyRule.setStrategyId(strategyId);
+        strategyRule.setRuleModel(RULE_MODEL);
+        return strategyRule;
+    }
+
+    private static class Blacklist {
+
+        /** 规则值摘要 */
+        private final String digest;
+        /** 黑名单用户的奖品ID；未配置黑名单时为 null */
+        private final Integer awardId;
+        /** 本地索引；使用 Redis Set 时为 null */
+        private final Set<String> userIds;
+
+        private Blacklist(String digest, Integer awardId, Set<String> userIds) {
+            this.digest = digest;
+            this.awardId = awardId;
+            this.userIds = userIds;
+        }
+
+    }
+
+}
@@ -0,0 +1,167 @@
+package com.lb.infrastructure.persistent.repository;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.lb.infrastructure.persistent.dao.IUserRaffleCountDao;
+import com.lb.infrastructure.persistent.po.UserRaffleCount;
+import com.lb.infrastructure.persistent.redis.IRedisService;
+import com.lb.types.common.Constants;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RScript;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户抽奖次数；Redis 计数为准，库表为备份。
+ * 1. 每次抽奖一个脚本完成累加、续期和变更标记，只访问 Redis 一次；计数不存在时从库表加载
+ * 2. 累加后的次数写入短时本地缓存，只读查询优先读取本地缓存
+ * 3. 有变更的计数由任务批量取出，多 key 一次读取后按最新值写入库表
+ */
+@Slf4j
+@Component
+public class UserRaffleCounter {
+
+    /**
+     * 累加抽奖次数；计数不存在时返回 -1，由调用方从库表加载后重试
+     * KEYS[1] 计数 key KEYS[2] 变更集合 ARGV[1] 过期时间（毫秒） ARGV[2] 变更成员
+     */
+    private static final String INCR_SCRIPT =
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end\n" +
+            "local count = redis.call('INCR', KEYS[1])\n" +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[1])\n" +
+            "redis.call('SADD', KEYS[2], ARGV[2])\n" +
+            "return count";
+
+    /**
+     * 取出一批变更成员
+     * KEYS[1] 变更集合 ARGV[1] 数量
+     */
+    private static final String POP_SCRIPT = "return redis.call('SPOP', KEYS[1], ARGV[1])";
+
+    /**
+     * 写回变更成员；库表写入失败时下次重试
+     * KEYS[1] 变更集合 ARGV 变更成员
+     */
+    private static final String PUSH_SCRIPT = "return redis.call('SADD', KEYS[1], unpack(ARGV))";
+
+    private final IRedisService redisService;
+    private final IUserRaffleCountDao userRaffleCountDao;
+
+    /** Redis 计数过期时间（毫秒）；过期后从库表加载 */
+    private final long expire;
+
+    private final Cache<String, Long> raffleCountCache;
+
+    public UserRaffleCounter(IRedisService redisService,
+                             IUserRaffleCountDao userRaffleCountDao,
+                             @Value("${strategy.raffle-count.local-ttl:1000}") long localTtl,
+                             @Value("${strategy.raffle-count.expire:2592000000}") long expire) {
+        this.redisService = redisService;
+        this.userRaffleCountDao = userRaffleCountDao;
+        this.expire = expire;
+        // 累加后的次数在本地缓存 localTtl 毫秒
+        this.raffleCountCache = CacheBuilder.newBuilder()
+                .maximumSize(100000)
+                .expireAfterWrite(localTtl, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * 累加抽奖次数
+     *
+     * @param userId     用户ID
+     * @param strategyId 策略ID
+     * @return 累加后的抽奖次数
+     */
+    public long increment(String userId, Long strategyId) {
+        String member = member(userId, strategyId);
+        String cacheKey = Constants.RedisKey.USER_RAFFLE_COUNT_KEY + member;
+        List<Object> keys = Arrays.asList(cacheKey, Constants.RedisKey.USER_RAFFLE_COUNT_DIRTY_KEY);
+        Long count = redisService.evalScript(INCR_SCRIPT, RScript.ReturnType.INTEGER, keys, expire, member);
+        if (null == count || count < 0) {
+            // 计数不存在，从库表加载；并发加载只有一个生效
+            redisService.setAtomicLongIfAbsent(cacheKey, queryRaffleCount(userId, strategyId));
+            count = redisService.evalScript(INCR_SCRIPT, RScript.ReturnType.INTEGER, keys, expire, member);
+        }
+        raffleCountCache.put(member, count);
+        return count;
+    }
+
+    /**
+     * 查询抽奖次数；优先本地缓存，其次 Redis，最后库表
+     *
+     * @param userId     用户ID
+     * @param strategyId 策略ID
+     * @return 抽奖次数
+     */
+    public long query(String userId, Long strategyId) {
+        String member = member(userId, strategyId);
+        Long count = raffleCountCache.getIfPresent(member);
+        if (null != count) return count;
+        String value = redisService.getString(Constants.RedisKey.USER_RAFFLE_COUNT_KEY + member);
+        count = null != value ? Long.parseLong(value) : queryRaffleCount(userId, strategyId);
+        raffleCountCache.put(member, count);
+        return count;
+    }
+
+    /**
+     * 变更的计数写入库表；一次取出一批变更成员，多 key 一次读取最新值
+     *
+     * @param batchSize 单批最大条数
+     * @return 取出的变更条数；计数已过期的成员不写入
+     */
+    public int flush(int batchSize) {
+        // 1. 取出变更成员
+        List<Object> members = redisService.evalScript(POP_SCRIPT, RScript.ReturnType.MULTI,
+                Collections.singletonList(Constants.RedisKey.USER_RAFFLE_COUNT_DIRTY_KEY), batchSize);
+        if (null == members || members.isEmpty()) return 0;
+
+        // 2. 多 key 一次读取
+        List<String> cacheKeys = new ArrayList<>(members.size());
+        for (Object member : members) {
+            cacheKeys.add(Constants.RedisKey.USER_RAFFLE_COUNT_KEY + member);
+        }
+        Map<String, String> values = redisService.getStrings(cacheKeys);
+
+        // 3. 按最新值写入库表
+        List<UserRaffleCount> userRaffleCounts = new ArrayList<>(members.size());
+        for (Object member : members) {
+            String value = values.get(Constants.RedisKey.USER_RAFFLE_COUNT_KEY + member);
+            if (null == value) continue;
+            String[] parts = String.valueOf(member).split(Constants.UNDERLINE, 2);
+            UserRaffleCount userRaffleCount = new UserRaffleCount();
+            userRaffleCount.setStrategyId(Long.valueOf(parts[0]));
+            userRaffleCount.setUserId(parts[1]);
+            userRaffleCount.setRaffleCount(Long.valueOf(value));
+            userRaffleCounts.add(userRaffleCount);
+        }
+        if (userRaffleCounts.isEmpty()) return members.size();
+        try {
+            userRaffleCountDao.upsertUserRaffleCountList(userRaffleCounts);
+        } catch (RuntimeException e) {
+            redisService.evalScript(PUSH_SCRIPT, RScript.ReturnType.INTEGER,
+                    Collections.singletonList(Constants.RedisKey.USER_RAFFLE_COUNT_DIRTY_KEY), members.toArray());
+            throw e;
+        }
+        return members.size();
+    }
+
+    private long queryRaffleCount(String userId, Long strategyId) {
+        UserRaffleCount userRaffleCountReq = new UserRaffleCount();
+        userRaffleCountReq.setUserId(userId);
+        userRaffleCountReq.setStrategyId(strategyId);
+        Long raffleCount = userRaffleCountDao.queryRaffleCount(userRaffleCountReq);
+        return null == raffleCount ? 0L : raffleCount;
+    }
+
+    /**
+     * 变更成员；策略ID在前，用户ID可包含下划线
+     */
+    private String member(String userId, Long strategyId) {
+        return strategyId + Constants.UNDERLINE + userId;
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.lb.trigger.job;
+
+import com.lb.domain.strategy.service.armory.IStrategyArmory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 策略预热任务
+ * 1. 启动时预热全部已配置奖品的策略，完成前就绪状态为 REFUSING_TRAFFIC，完成后切换为 ACCEPTING_TRAFFIC
+ * 2. 定时预热，补齐新增策略以及过期的缓存
+ */
+@Slf4j
+@Component
+public class StrategyWarmupJob implements ApplicationRunner {
+
+    /** 是否开启策略预热 */
+    @Value("${strategy.warmup.enabled:true}")
+    private boolean enabled;
+    /** 并行预热的策略数；预热使用独立线程池，避免与策略装配共用线程池时相互等待 */
+    @Value("${strategy.warmup.parallelism:4}")
+    private int parallelism;
+    /** 单次预热等待超时（毫秒） */
+    @Value("${strategy.warmup.timeout:300000}")
+    private long timeout;
+
+    @Resource
+    private IStrategyArmory strategyArmory;
+
+    @Resource
+    private ApplicationEventPublisher eventPublisher;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) return;
+        AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.REFUSING_TRAFFIC);
+        try {
+            warmup();
+        } finally {
+            AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.ACCEPTING_TRAFFIC);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${strategy.warmup.fixed-delay:300000}", fixedDelayString = "${strategy.warmup.fixed-delay:300000}")
+    public void exec() {
+        if (!enabled) return;
+        warmup();
+    }
+
+    private void warmup() {
+        // 启动预热与定时预热不重叠执行
+        if (!running.compareAndSet(false, true)) return;
+        long startTime = System.currentTimeMillis();
+        ExecutorService executorService = Executors.newFixedThreadPool(parallelism);
+        try {
+            // 1. 查询需要预热的策略
+            List<Long> strategyIds = strategyArmory.queryActiveStrategyIdList();
+
+            // 2. 并行预热；单个策略失败不影响其他策略
+            List<Future<Boolean>> futures = new ArrayList<>(strategyIds.size());
+            for (Long strategyId : strategyIds) {
+                futures.add(executorService.submit(() -> strategyArmory.warmupLotteryStrategy(strategyId)));
+            }
+            long deadline = startTime + timeout;
+            int success = 0;
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                    success++;
+                } catch (ExecutionException | TimeoutException e) {
+                    log.error("策略预热失败 strategyId: {}", strategyIds.get(i), e);
+                }
+            }
+            log.info("策略预热完成 strategies: {} success: {} 耗时: {}ms", strategyIds.size(), success, System.currentTimeMillis() - startTime);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("策略预热中断");
+        } catch (Exception e) {
+            log.error("策略预热失败", e);
+        } finally {
+            executorService.shutdownNow();
+            running.set(false);
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.lb.trigger.job;
+
+import com.lb.domain.strategy.model.valobj.StrategyAwardStockKeyVO;
+import com.lb.domain.strategy.service.IRaffleStock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+/**
+ * 更新奖品库存任务；Redis 扣减库存后写入队列，任务批量取出，相同奖品合并为一次库表更新。
+ * 同时回收宕机节点持有的奖品库存租约
+ */
+@Slf4j
+@Component
+public class UpdateAwardStockJob {
+
+    /** 单批最大条数 */
+    @Value("${strategy.stock.batch-size:1000}")
+    private int batchSize;
+    /** 单次执行最大批数；队列积压时分多次执行，避免长时间占用调度线程 */
+    @Value("${strategy.stock.max-batches:100}")
+    private int maxBatches;
+
+    @Resource
+    private IRaffleStock raffleStock;
+
+    @Scheduled(fixedDelayString = "${strategy.stock.flush-interval:5000}")
+    public void exec() {
+        try {
+            long reclaimed = raffleStock.reclaimAwardStockLease();
+            if (reclaimed > 0) {
+                log.info("定时任务，回收奖品库存租约 count: {}", reclaimed);
+            }
+        } catch (Exception e) {
+            log.error("定时任务，回收奖品库存租约失败", e);
+        }
+        try {
+            for (int i = 0; i < maxBatches; i++) {
+                List<StrategyAwardStockKeyVO> strategyAwardStockKeyVOS = raffleStock.takeQueueValue(batchSize);
+                if (null == strategyAwardStockKeyVOS || strategyAwardStockKeyVOS.isEmpty()) return;
+                log.info("定时任务，更新奖品消耗库存 records: {}", strategyAwardStockKeyVOS.size());
+                raffleStock.updateStrategyAwardStock(strategyAwardStockKeyVOS);
+                if (strategyAwardStockKeyVOS.size() < batchSize) return;
+            }
+        } catch (Exception e) {
+            log.error("定时任务，更新奖品消耗库存失败", e);
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.lb.trigger.job;
+
+import com.lb.domain.strategy.service.IRaffleUserCount;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 更新用户抽奖次数任务；Redis 累加抽奖次数时标记变更，任务批量取出，按最新值写入库表
+ */
+@Slf4j
+@Component
+public class UpdateUserRaffleCountJob {
+
+    private final IRaffleUserCount raffleUserCount;
+
+    /** 单批最大条数 */
+    private final int batchSize;
+    /** 单次执行最大批数；变更积压时分多次执行，避免长时间占用调度线程 */
+    private final int maxBatches;
+
+    public UpdateUserRaffleCountJob(IRaffleUserCount raffleUserCount,
+                                    @Value("${strategy.raffle-count.batch-size:1000}") int batchSize,
+                                    @Value("${strategy.raffle-count.max-batches:100}") int maxBatches) {
+        this.raffleUserCount = raffleUserCount;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+    }
+
+    @Scheduled(fixedDelayString = "${strategy.raffle-count.flush-interval:5000}")
+    public void exec() {
+        try {
+            for (int i = 0; i < maxBatches; i++) {
+                int count = raffleUserCount.updateUserRaffleCount(batchSize);
+                if (0 == count) return;
+                log.info("定时任务，更新用户抽奖次数 records: {}", count);
+                if (count < batchSize) return;
+            }
+        } catch (Exception e) {
+            log.error("定时任务，更新用户抽奖次数失败", e);
+        }
+    }
+
+}
@@ -11,7 +11,25 @@ public class Constants {
         public static String STRATEGY_KEY = "big_market_strategy_key_";
         public static String STRATEGY_AWARD_KEY = "big_market_strategy_award_key_";
         public static String STRATEGY_RATE_TABLE_KEY = "big_market_strategy_rate_table_key_";
-        public static String STRATEGY_RATE_RANGE_KEY = "big_market_strategy_rate_range_key_";
+        public static String STRATEGY_RATE_TABLE_ID_KEY = "big_market_strategy_rate_table_id_key_";
+        public static String STRATEGY_RATE_TABLE_REFERENCE_KEY = "big_market_strategy_rate_table_reference_key_";
+        public static String STRATEGY_RATE_TABLE_LOCK_KEY = "big_market_strategy_rate_table_lock_key_";
+        public static String STRATEGY_RATE_TABLE_BUILDING_KEY = "big_market_strategy_rate_table_building_key_";
+        public static String STRATEGY_RATE_TABLE_PROGRESS_KEY = "big_market_strategy_rate_table_progress_key_";
+        public static String STRATEGY_ASSEMBLE_LOCK_KEY = "big_market_strategy_assemble_lock_key_";
+        public static String STRATEGY_ASSEMBLE_MARKER_KEY = "big_market_strategy_assemble_marker_key_";
+        public static String STRATEGY_RULE_BLACKLIST_KEY = "big_market_strategy_rule_blacklist_key_";
+        public static String STRATEGY_RULE_BLACKLIST_DIGEST_KEY = "big_market_strategy_rule_blacklist_digest_key_";
+        public static String STRATEGY_RULE_BLACKLIST_LOCK_KEY = "big_market_strategy_rule_blacklist_lock_key_";
+        public static String RULE_TREE_VO_KEY = "big_market_rule_tree_vo_key_";
+        public static String STRATEGY_AWARD_COUNT_KEY = "big_market_strategy_award_count_key_";
+        public static String STRATEGY_AWARD_COUNT_QUERY_KEY = "big_market_strategy_award_count_query_key";
+        public static String STRATEGY_AWARD_SOLD_OUT_TOPIC = "big_market_strategy_award_sold_out_topic";
+        public static String STRATEGY_AWARD_STOCK_LEASE_KEY = "big_market_strategy_award_stock_lease_key_";
+        public static String STRATEGY_AWARD_STOCK_LEASE_SET_KEY = "big_market_strategy_award_stock_lease_set_key";
+        public static String STRATEGY_AWARD_STOCK_LEASE_NODE_KEY = "big_market_strategy_award_stock_lease_node_key_";
+        public static String USER_RAFFLE_COUNT_KEY = "big_market_user_raffle_count_key_";
+        public static String USER_RAFFLE_COUNT_DIRTY_KEY = "big_market_user_raffle_count_dirty_key";
     }
 
 }
@@ -13,6 +13,8 @@ public enum ResponseCode {
     UN_ERROR("0001", "未知失败"),
     ILLEGAL_PARAMETER("0002", "非法参数"),
     STRATEGY_RULE_WEIGHT_IS_NULL("ERR_BIZ_001", "业务异常，策略规则中 rule_weight 权重规则已适用但未配置"),
+    STRATEGY_ASSEMBLE_FAILED("ERR_BIZ_002", "业务异常，策略装配失败，基础表和权重表均未写入"),
+    STRATEGY_RATE_TABLE_TOO_LARGE("ERR_BIZ_003", "业务异常，策略概率查找表超出装配大小上限，请调整概率精度或使用别名表装配"),
     ;
 
     private String code;
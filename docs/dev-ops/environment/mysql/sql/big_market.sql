@@ -111,6 +111,9 @@ CREATE TABLE `strategy_award`
     `award_count_surplus` int(8)              NOT NULL DEFAULT '0' COMMENT '奖品库存剩余',
     `award_rate`          decimal(6, 4)       NOT NULL COMMENT '奖品中奖概率',
     `rule_models`         varchar(256)                 DEFAULT NULL COMMENT '规则模型，rule配置的模型同步到此表，便于使用',
+    `tree_id`             int(11)                      DEFAULT NULL COMMENT '抽奖后规则树ID',
+    `stock_segments`      int(4)              NOT NULL DEFAULT '1' COMMENT '库存分段数；热门奖品分段扣减，变更后需清理 Redis 库存计数',
+    `stock_lease`         tinyint(1)          NOT NULL DEFAULT '0' COMMENT '库存租约；0-关闭、1-开启，大库存奖品由各节点按段领取库存本地扣减',
     `sort`                int(2)              NOT NULL DEFAULT '0' COMMENT '排序',
     `create_time`         datetime            NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     `update_time`         datetime            NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '修改时间',
@@ -124,36 +127,37 @@ LOCK TABLES `strategy_award` WRITE;
     DISABLE KEYS */;
 
 INSERT INTO `strategy_award` (`id`, `strategy_id`, `award_id`, `award_title`, `award_subtitle`, `award_count`,
-                              `award_count_surplus`, `award_rate`, `rule_models`, `sort`, `create_time`, `update_time`)
-VALUES (1, 100001, 101, '随机积分', NULL, 80000, 80000, 0.3000, 'rule_random', 1, '2023-12-09 09:38:31',
+                              `award_count_surplus`, `award_rate`, `rule_models`, `tree_id`, `sort`, `create_time`,
+                              `update_time`)
+VALUES (1, 100001, 101, '随机积分', NULL, 80000, 80000, 0.3000, 'rule_random', NULL, 1, '2023-12-09 09:38:31',
         '2023-12-31 11:14:42'),
-       (2, 100001, 102, '5次使用', NULL, 10000, 10000, 0.2000, 'rule_luck_award', 2, '2023-12-09 09:39:18',
+       (2, 100001, 102, '5次使用', NULL, 10000, 10000, 0.2000, 'rule_luck_award', NULL, 2, '2023-12-09 09:39:18',
         '2023-12-23 13:59:56'),
-       (3, 100001, 103, '10次使用', NULL, 5000, 5000, 0.2000, 'rule_luck_award', 3, '2023-12-09 09:42:36',
+       (3, 100001, 103, '10次使用', NULL, 5000, 5000, 0.2000, 'rule_luck_award', NULL, 3, '2023-12-09 09:42:36',
         '2023-12-23 14:00:00'),
-       (4, 100001, 104, '20次使用', NULL, 4000, 4000, 0.1000, 'rule_luck_award', 4, '2023-12-09 09:43:15',
+       (4, 100001, 104, '20次使用', NULL, 4000, 4000, 0.1000, 'rule_luck_award', NULL, 4, '2023-12-09 09:43:15',
         '2023-12-23 14:00:10'),
-       (5, 100001, 105, '增加gpt-4对话模型', NULL, 600, 600, 0.1000, 'rule_luck_award', 5, '2023-12-09 09:43:47',
+       (5, 100001, 105, '增加gpt-4对话模型', NULL, 600, 600, 0.1000, 'rule_luck_award', NULL, 5, '2023-12-09 09:43:47',
         '2023-12-23 14:00:12'),
-       (6, 100001, 106, '增加dall-e-2画图模型', NULL, 200, 200, 0.0500, 'rule_luck_award', 6, '2023-12-09 09:44:20',
+       (6, 100001, 106, '增加dall-e-2画图模型', NULL, 200, 200, 0.0500, 'rule_luck_award', NULL, 6, '2023-12-09 09:44:20',
         '2023-12-23 14:00:58'),
-       (7, 100001, 107, '增加dall-e-3画图模型', '抽奖1次后解锁', 200, 200, 0.0400, 'rule_lock,rule_luck_award', 7,
+       (7, 100001, 107, '增加dall-e-3画图模型', '抽奖1次后解锁', 200, 200, 0.0400, 'rule_lock,rule_luck_award', 100000001, 7,
         '2023-12-09 09:45:38', '2023-12-23 14:01:02'),
-       (8, 100001, 108, '增加100次使用', '抽奖2次后解锁', 199, 199, 0.0099, 'rule_lock,rule_luck_award', 8,
+       (8, 100001, 108, '增加100次使用', '抽奖2次后解锁', 199, 199, 0.0099, 'rule_lock,rule_luck_award', 100000001, 8,
         '2023-12-09 09:46:02', '2023-12-23 14:05:36'),
-       (9, 100001, 109, '解锁全部模型', '抽奖6次后解锁', 1, 1, 0.0001, 'rule_lock,rule_luck_award', 9,
+       (9, 100001, 109, '解锁全部模型', '抽奖6次后解锁', 1, 1, 0.0001, 'rule_lock,rule_luck_award', 100000001, 9,
         '2023-12-09 09:46:39', '2023-12-09 12:20:50'),
-       (10, 100002, 101, '随机积分', NULL, 1, 1, 0.5000, 'rule_random,rule_luck_award', 1, '2023-12-09 09:46:39',
+       (10, 100002, 101, '随机积分', NULL, 1, 1, 0.5000, 'rule_random,rule_luck_award', NULL, 1, '2023-12-09 09:46:39',
         '2023-12-23 14:23:51'),
-       (11, 100002, 102, '5次使用', NULL, 1, 1, 0.1000, 'rule_random,rule_luck_award', 2, '2023-12-09 09:46:39',
+       (11, 100002, 102, '5次使用', NULL, 1, 1, 0.1000, 'rule_random,rule_luck_award', NULL, 2, '2023-12-09 09:46:39',
         '2023-12-23 14:23:52'),
-       (12, 100002, 106, '增加dall-e-2画图模型', NULL, 1, 1, 0.0100, 'rule_random,rule_luck_award', 3,
+       (12, 100002, 106, '增加dall-e-2画图模型', NULL, 1, 1, 0.0100, 'rule_random,rule_luck_award', NULL, 3,
         '2023-12-09 09:46:39', '2023-12-23 14:23:53'),
-       (13, 100003, 107, '增加dall-e-3画图模型', '抽奖1次后解锁', 200, 200, 0.0400, 'rule_lock,rule_luck_award', 7,
+       (13, 100003, 107, '增加dall-e-3画图模型', '抽奖1次后解锁', 200, 200, 0.0400, 'rule_lock,rule_luck_award', 100000001, 7,
         '2023-12-09 09:45:38', '2023-12-23 14:01:02'),
-       (14, 100003, 108, '增加100次使用', '抽奖2次后解锁', 199, 199, 0.0099, 'rule_lock,rule_luck_award', 8,
+       (14, 100003, 108, '增加100次使用', '抽奖2次后解锁', 199, 199, 0.0099, 'rule_lock,rule_luck_award', 100000001, 8,
         '2023-12-09 09:46:02', '2024-01-13 10:26:29'),
-       (15, 100003, 109, '解锁全部模型', '抽奖6次后解锁', 1, 1, 0.0001, 'rule_lock,rule_luck_award', 9,
+       (15, 100003, 109, '解锁全部模型', '抽奖6次后解锁', 1, 1, 0.0001, 'rule_lock,rule_luck_award', 100000001, 9,
         '2023-12-09 09:46:39', '2023-12-09 12:20:50');
 
 /*!40000 ALTER TABLE `strategy_award`
@@ -173,7 +177,7 @@ CREATE TABLE `strategy_rule`
     `award_id`    int(8)                       DEFAULT NULL COMMENT '抽奖奖品ID【规则类型为策略，则不需要奖品ID】',
     `rule_type`   tinyint(1)          NOT NULL DEFAULT '0' COMMENT '抽象规则类型；1-策略规则、2-奖品规则',
     `rule_model`  varchar(16)         NOT NULL COMMENT '抽奖规则类型【rule_random - 随机值计算、rule_lock - 抽奖几次后解锁、rule_luck_award - 幸运奖(兜底奖品)】',
-    `rule_value`  varchar(256)        NOT NULL COMMENT '抽奖规则比值',
+    `rule_value`  mediumtext          NOT NULL COMMENT '抽奖规则比值',
     `rule_desc`   varchar(128)        NOT NULL COMMENT '抽奖规则描述',
     `create_time` datetime            NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     `update_time` datetime            NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
@@ -222,6 +226,127 @@ VALUES (1, 100001, 101, 2, 'rule_random', '1,1000', '随机积分策略', '2023-
 UNLOCK TABLES;
 
 
+# 转储表 rule_tree
+# ------------------------------------------------------------
+
+DROP TABLE IF EXISTS `rule_tree`;
+
+CREATE TABLE `rule_tree`
+(
+    `id`                 bigint(11) unsigned NOT NULL AUTO_INCREMENT COMMENT '自增ID',
+    `tree_id`            int(11)             NOT NULL COMMENT '规则树ID',
+    `tree_name`          varchar(64)         NOT NULL COMMENT '规则树名称',
+    `tree_desc`          varchar(128)                 DEFAULT NULL COMMENT '规则树描述',
+    `tree_root_rule_key` varchar(32)         NOT NULL COMMENT '规则树根入口规则',
+    `create_time`        datetime            NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `update_time`        datetime            NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uq_tree_id` (`tree_id`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4;
+
+LOCK TABLES `rule_tree` WRITE;
+/*!40000 ALTER TABLE `rule_tree`
+    DISABLE KEYS */;
+
+INSERT INTO `rule_tree` (`id`, `tree_id`, `tree_name`, `tree_desc`, `tree_root_rule_key`, `create_time`, `update_time`)
+VALUES (1, 100000001, '规则树', '规则树', 'rule_lock', '2024-01-13 10:00:00', '2024-01-13 10:00:00');
+
+/*!40000 ALTER TABLE `rule_tree`
+    ENABLE KEYS */;
+UNLOCK TABLES;
+
+
+# 转储表 rule_tree_node
+# ------------------------------------------------------------
+
+DROP TABLE IF EXISTS `rule_tree_node`;
+
+CREATE TABLE `rule_tree_node`
+(
+    `id`          bigint(11) unsigned NOT NULL AUTO_INCREMENT COMMENT '自增ID',
+    `tree_id`     int(11)             NOT NULL COMMENT '规则树ID',
+    `rule_key`    varchar(32)         NOT NULL COMMENT '规则Key',
+    `rule_desc`   varchar(64)         NOT NULL COMMENT '规则描述',
+    `rule_value`  varchar(128)                 DEFAULT NULL COMMENT '规则比值',
+    `create_time` datetime            NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `update_time` datetime            NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uq_tree_id_rule_key` (`tree_id`, `rule_key`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4;
+
+LOCK TABLES `rule_tree_node` WRITE;
+/*!40000 ALTER TABLE `rule_tree_node`
+    DISABLE KEYS */;
+
+INSERT INTO `rule_tree_node` (`id`, `tree_id`, `rule_key`, `rule_desc`, `rule_value`, `create_time`, `update_time`)
+VALUES (1, 100000001, 'rule_lock', '限定用户已完成N次抽奖后解锁', '1', '2024-01-13 10:00:00', '2024-01-13 10:00:00'),
+       (2, 100000001, 'rule_luck_award', '兜底奖品随机积分', '1,100', '2024-01-13 10:00:00', '2024-01-13 10:00:00'),
+       (3, 100000001, 'rule_stock', '库存扣减规则', NULL, '2024-01-13 10:00:00', '2024-01-13 10:00:00');
+
+/*!40000 ALTER TABLE `rule_tree_node`
+    ENABLE KEYS */;
+UNLOCK TABLES;
+
+
+# 转储表 rule_tree_node_line
+# ------------------------------------------------------------
+
+DROP TABLE IF EXISTS `rule_tree_node_line`;
+
+CREATE TABLE `rule_tree_node_line`
+(
+    `id`               bigint(11) unsigned NOT NULL AUTO_INCREMENT COMMENT '自增ID',
+    `tree_id`          int(11)             NOT NULL COMMENT '规则树ID',
+    `rule_node_from`   varchar(32)         NOT NULL COMMENT '规则Key节点 From',
+    `rule_node_to`     varchar(32)         NOT NULL COMMENT '规则Key节点 To',
+    `rule_limit_type`  varchar(8)          NOT NULL COMMENT '限定类型；EQUAL、GT、LT、GE、LE、ENUM',
+    `rule_limit_value` varchar(32)         NOT NULL COMMENT '限定值（到下个节点）；ALLOW、TAKE_OVER',
+    `sort`             int(2)              NOT NULL DEFAULT '0' COMMENT '连线判定顺序',
+    `create_time`      datetime            NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `update_time`      datetime            NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`id`),
+    KEY `idx_tree_id_rule_node_from` (`tree_id`, `rule_node_from`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4;
+
+LOCK TABLES `rule_tree_node_line` WRITE;
+/*!40000 ALTER TABLE `rule_tree_node_line`
+    DISABLE KEYS */;
+
+INSERT INTO `rule_tree_node_line` (`id`, `tree_id`, `rule_node_from`, `rule_node_to`, `rule_limit_type`,
+                                   `rule_limit_value`, `sort`, `create_time`, `update_time`)
+VALUES (1, 100000001, 'rule_lock', 'rule_stock', 'EQUAL', 'ALLOW', 1, '2024-01-13 10:00:00', '2024-01-13 10:00:00'),
+       (2, 100000001, 'rule_lock', 'rule_luck_award', 'EQUAL', 'TAKE_OVER', 2, '2024-01-13 10:00:00',
+        '2024-01-13 10:00:00'),
+       (3, 100000001, 'rule_stock', 'rule_luck_award', 'EQUAL', 'ALLOW', 1, '2024-01-13 10:00:00',
+        '2024-01-13 10:00:00');
+
+/*!40000 ALTER TABLE `rule_tree_node_line`
+    ENABLE KEYS */;
+UNLOCK TABLES;
+
+
+# 转储表 user_raffle_count
+# ------------------------------------------------------------
+
+DROP TABLE IF EXISTS `user_raffle_count`;
+
+CREATE TABLE `user_raffle_count`
+(
+    `id`           bigint(11) unsigned NOT NULL AUTO_INCREMENT COMMENT '自增ID',
+    `user_id`      varchar(32)         NOT NULL COMMENT '用户ID',
+    `strategy_id`  bigint(8)           NOT NULL COMMENT '抽奖策略ID',
+    `raffle_count` bigint(11)          NOT NULL DEFAULT '0' COMMENT '抽奖次数；Redis 计数定时写入',
+    `create_time`  datetime            NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `update_time`  datetime            NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uq_user_id_strategy_id` (`user_id`, `strategy_id`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4;
+
+
 
 /*!40111 SET SQL_NOTES = @OLD_SQL_NOTES */;
 /*!40101 SET SQL_MODE = @OLD_SQL_MODE */;